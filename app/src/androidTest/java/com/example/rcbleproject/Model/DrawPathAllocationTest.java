@@ -0,0 +1,99 @@
+package com.example.rcbleproject.Model;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.rcbleproject.GridParams;
+import com.example.rcbleproject.Model.BaseControlElement.ControlElementType;
+import com.example.rcbleproject.R;
+import com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu.ProfileControlActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Проверяет, что установившаяся отрисовка элементов управления (onDraw и drawStaticLayer
+ * при действительном кэше статичного слоя) не выделяет объекты в куче.
+ * Выделения считаются средствами Debug в потоке теста.
+ */
+@RunWith(AndroidJUnit4.class)
+@SuppressWarnings("deprecation")
+public class DrawPathAllocationTest {
+    private static final int WARMUP_FRAMES = 10;
+    private static final int FRAMES = 1000;
+
+    private Context context;
+    private GridParams gridParams;
+    private Bitmap bitmap;
+    private Canvas canvas;
+
+    @Before
+    public void setUp(){
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        gridParams = new GridParams(context.getResources().getDisplayMetrics());
+        bitmap = Bitmap.createBitmap(gridParams.displayWidth, gridParams.displayHeight,
+                Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(bitmap);
+    }
+
+    @After
+    public void tearDown(){
+        Debug.stopAllocCounting();
+        bitmap.recycle();
+    }
+
+    @Test
+    public void joystickXYDrawDoesNotAllocate(){
+        assertNoAllocations(create(ControlElementType.JOYSTICK_XY));
+    }
+
+    @Test
+    public void joystickXDrawDoesNotAllocate(){
+        assertNoAllocations(create(ControlElementType.JOYSTICK_X));
+    }
+
+    @Test
+    public void joystickYDrawDoesNotAllocate(){
+        assertNoAllocations(create(ControlElementType.JOYSTICK_Y));
+    }
+
+    @Test
+    public void imageDrawDoesNotAllocate(){
+        assertNoAllocations(create(ControlElementType.IMAGE));
+    }
+
+    private BaseControlElement create(ControlElementType type){
+        return BaseControlElement.getElementControl(type, -1, -1, context, gridParams, 0,
+                context.getResources().getInteger(R.integer.defElementSize),
+                false, false, gridParams.displayWidth / 2f, gridParams.displayHeight / 2f, "");
+    }
+
+    private void assertNoAllocations(BaseControlElement element){
+        for (ProfileControlActivity.MODE_TYPE mode : ProfileControlActivity.MODE_TYPE.values()){
+            // первые кадры строят кэш статичного слоя
+            for (int frame = 0; frame < WARMUP_FRAMES; ++frame) drawFrame(element, mode);
+
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+            for (int frame = 0; frame < FRAMES; ++frame) drawFrame(element, mode);
+            Debug.stopAllocCounting();
+            int allocCount = Debug.getThreadAllocCount();
+            assertEquals(element.getType() + " " + mode + ": allocations per " + FRAMES
+                    + " frames", 0, allocCount);
+        }
+    }
+
+    private void drawFrame(BaseControlElement element, ProfileControlActivity.MODE_TYPE mode){
+        element.onDraw(canvas, mode);
+        element.drawStaticLayer(canvas, mode);
+    }
+}
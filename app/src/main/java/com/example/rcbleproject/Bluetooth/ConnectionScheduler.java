@@ -0,0 +1,97 @@
+package com.example.rcbleproject.Bluetooth;
+
+import android.os.Handler;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Класс ConnectionScheduler ограничивает количество одновременно устанавливаемых соединений
+ * с хабами и откладывает повторные попытки с экспоненциально растущей паузой со случайным
+ * разбросом, чтобы несколько хабов не повторяли подключение синхронно.
+ */
+class ConnectionScheduler {
+    /**
+     * Выполняет попытку подключения (вызывается в потоке handler).
+     */
+    interface IConnector {
+        void startAttempt(HubConnection connection);
+    }
+
+    private static final long BASE_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 8000;
+
+    private final Handler handler;
+    private final IConnector connector;
+    private final ArrayDeque<HubConnection> pending = new ArrayDeque<>();
+    private final HashSet<String> active = new HashSet<>();    // адреса хабов, занявших слот
+    private final Random random = new Random();
+    private final int maxParallel;
+
+    /**
+     * @param handler - поток, в котором запускаются попытки подключения.
+     * @param connector - исполнитель попыток.
+     * @param maxParallel - максимальное количество одновременных попыток.
+     */
+    ConnectionScheduler(Handler handler, IConnector connector, int maxParallel){
+        this.handler = handler;
+        this.connector = connector;
+        this.maxParallel = Math.max(1, maxParallel);
+    }
+
+    /**
+     * Ставит соединение в очередь на подключение.
+     */
+    synchronized void enqueue(HubConnection connection){
+        if (active.contains(connection.address) || pending.contains(connection)) return;
+        pending.addLast(connection);
+        drain();
+    }
+
+    /**
+     * Ставит соединение в очередь после паузы, зависящей от количества неудачных попыток.
+     * @param failedAttempts - количество неудачных попыток подряд.
+     * @return пауза, мс.
+     */
+    long enqueueWithBackoff(HubConnection connection, int failedAttempts){
+        long delay = getBackoff(failedAttempts);
+        handler.postDelayed(() -> enqueue(connection), delay);
+        return delay;
+    }
+
+    /**
+     * Освобождает слот соединения по завершении попытки (успешной или нет).
+     */
+    synchronized void onAttemptFinished(HubConnection connection){
+        if (active.remove(connection.address)) drain();
+    }
+
+    /**
+     * Убирает соединение из очереди и освобождает его слот.
+     */
+    synchronized void cancel(HubConnection connection){
+        pending.remove(connection);
+        onAttemptFinished(connection);
+    }
+
+    /**
+     * Пауза "с равным разбросом": половина экспоненциальной паузы гарантирована,
+     * вторая половина выбирается случайно.
+     */
+    private synchronized long getBackoff(int failedAttempts){
+        long backoff = Math.min(MAX_BACKOFF_MS,
+                BASE_BACKOFF_MS << Math.min(failedAttempts - 1, 16));
+        long half = backoff / 2;
+        return half + (long)(random.nextDouble() * (backoff - half));
+    }
+
+    private void drain(){
+        while (active.size() < maxParallel && !pending.isEmpty()){
+            HubConnection connection = pending.pollFirst();
+            if (connection.getState() != HubConnection.State.CONNECTING) continue;
+            active.add(connection.address);
+            handler.post(() -> connector.startAttempt(connection));
+        }
+    }
+}
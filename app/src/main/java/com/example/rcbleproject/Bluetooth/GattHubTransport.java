@@ -0,0 +1,90 @@
+package com.example.rcbleproject.Bluetooth;
+
+import static android.bluetooth.BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import com.example.rcbleproject.Protocol.HubProtocol;
+
+import java.util.UUID;
+
+/**
+ * Класс GattHubTransport - реализация IHubTransport поверх BluetoothGatt. Записи выполняются
+ * в потоке очереди записи хаба, а события BluetoothGattCallback передаются получателю через
+ * dispatchWriteCompleted() и dispatchNotification() из HubConnectionManager.
+ */
+public class GattHubTransport implements IHubTransport {
+    private static final UUID CCCD_UUID =                   // дескриптор настройки уведомлений
+            UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+
+    private final BluetoothGatt gatt;
+    private final HubProtocol protocol;
+    private BluetoothGattCharacteristic characteristic;     // используется только потоком очереди
+    private volatile IListener listener = null;
+
+    public GattHubTransport(BluetoothGatt gatt, HubProtocol protocol){
+        this.gatt = gatt;
+        this.protocol = protocol;
+    }
+
+    @Override
+    public String getAddress(){ return gatt.getDevice().getAddress(); }
+
+    @Override
+    public void setListener(IListener listener){ this.listener = listener; }
+
+    @Override
+    public boolean isReady(){ return getCharacteristic() != null; }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public boolean write(byte[] value){
+        BluetoothGattCharacteristic characteristic = getCharacteristic();
+        if (characteristic == null) return false;
+        characteristic.setWriteType(WRITE_TYPE_NO_RESPONSE);
+        characteristic.setValue(value);
+        return gatt.writeCharacteristic(characteristic);
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public int enableNotifications(){
+        BluetoothGattCharacteristic characteristic = getCharacteristic();
+        if (characteristic == null) return NOTIFICATIONS_UNSUPPORTED;
+        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(CCCD_UUID);
+        if ((characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_NOTIFY) == 0
+                || descriptor == null || !gatt.setCharacteristicNotification(characteristic, true))
+            return NOTIFICATIONS_UNSUPPORTED;
+        descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+        return gatt.writeDescriptor(descriptor)? NOTIFICATIONS_PENDING : NOTIFICATIONS_BUSY;
+    }
+
+    /**
+     * Вызывается из BluetoothGattCallback.onCharacteristicWrite и onDescriptorWrite.
+     */
+    void dispatchWriteCompleted(){
+        IListener listener = this.listener;
+        if (listener != null) listener.onWriteCompleted();
+    }
+
+    /**
+     * Вызывается из BluetoothGattCallback.onCharacteristicChanged.
+     * @param data - копия значения характеристики.
+     */
+    void dispatchNotification(byte[] data){
+        IListener listener = this.listener;
+        if (listener != null) listener.onNotification(data);
+    }
+
+    private BluetoothGattCharacteristic getCharacteristic(){
+        if (characteristic != null) return characteristic;
+        BluetoothGattService service = gatt.getService(protocol.getServiceUuid());
+        if (service == null) return null;
+        characteristic = service.getCharacteristic(protocol.getCharacteristicUuid());
+        return characteristic;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.rcbleproject.Bluetooth;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * Класс HandlerTaskScheduler - реализация ITaskScheduler на собственном HandlerThread.
+ * Handler берет сообщения из пула, поэтому отправка задач не выделяет память.
+ */
+public class HandlerTaskScheduler implements ITaskScheduler {
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    /**
+     * @param name - имя потока.
+     */
+    public HandlerTaskScheduler(String name){
+        thread = new HandlerThread(name);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    @Override
+    public void post(Runnable task){ handler.post(task); }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs){ handler.postDelayed(task, delayMs); }
+
+    @Override
+    public void removeCallbacks(Runnable task){ handler.removeCallbacks(task); }
+
+    @Override
+    public void quit(){
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.rcbleproject.Bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Telemetry.LatencyStats;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Класс HubConnection описывает соединение с одним хабом и его конечный автомат состояний.
+ * Переходы выполняются атомарно, поэтому состояние можно изменять из потоков Binder
+ * и читать из любого потока.
+ */
+public class HubConnection {
+    /**
+     * Состояния соединения:
+     * DISCONNECTED -> CONNECTING -> NEGOTIATING_MTU -> DISCOVERING_SERVICES -> READY;
+     * CONNECTING включает ожидание в очереди планировщика и паузу перед повторной попыткой.
+     * При неудачной попытке или потере связи соединение возвращается в CONNECTING;
+     * из любого состояния соединение может перейти в DISCONNECTING (по запросу пользователя)
+     * или в DISCONNECTED (если попытки подключения исчерпаны).
+     */
+    public enum State {DISCONNECTED, CONNECTING, NEGOTIATING_MTU, DISCOVERING_SERVICES, READY, DISCONNECTING}
+
+    public final String address;
+    public final BluetoothDevice device;
+    public final LinkParams linkParams = new LinkParams();
+    public final LatencyStats latencyStats = new LatencyStats();  // сохраняется между переподключениями
+    private final AtomicReference<State> state = new AtomicReference<>(State.DISCONNECTED);
+
+    volatile BluetoothGatt gatt;
+    volatile HubProtocol protocol;
+    volatile GattHubTransport transport;
+    volatile HubWriteQueue writeQueue;
+    volatile HubTelemetry telemetry;
+
+    // поля цикла подключения изменяются под монитором соединения
+    CompletableFuture<HubConnection> readyFuture;
+    long connectRequestTime;          // время запроса подключения, мс (SystemClock.elapsedRealtime)
+    int failedAttempts = 0;
+    int attemptId = 0;                // номер текущей попытки (для отбрасывания устаревших таймаутов)
+    private volatile long timeToReady = -1;
+
+    HubConnection(BluetoothDevice device){
+        this.device = device;
+        address = device.getAddress();
+    }
+
+    public State getState(){ return state.get(); }
+
+    public boolean isReady(){ return state.get() == State.READY; }
+
+    public BluetoothGatt getGatt(){ return gatt; }
+
+    public HubWriteQueue getWriteQueue(){ return writeQueue; }
+
+    /**
+     * @return телеметрия хаба; null - если сервисы хаба еще не обнаружены.
+     */
+    public HubTelemetry getTelemetry(){ return telemetry; }
+
+    /**
+     * @return время от запроса подключения до готовности хаба, мс; -1 - если хаб еще не готов.
+     */
+    public long getTimeToReady(){ return timeToReady; }
+
+    void setTimeToReady(long timeToReady){ this.timeToReady = timeToReady; }
+
+    /**
+     * Переводит соединение в новое состояние, если переход допустим.
+     * @param newState - новое состояние.
+     * @return предыдущее состояние; null - если переход недопустим.
+     */
+    State moveTo(State newState){
+        State current;
+        do {
+            current = state.get();
+            if (!isAllowed(current, newState)) return null;
+        } while (!state.compareAndSet(current, newState));
+        return current;
+    }
+
+    private static boolean isAllowed(State from, State to){
+        switch (to){
+            case CONNECTING:
+                return from == State.DISCONNECTED || from == State.NEGOTIATING_MTU
+                        || from == State.DISCOVERING_SERVICES || from == State.READY;
+            case NEGOTIATING_MTU:
+                return from == State.CONNECTING;
+            case DISCOVERING_SERVICES:
+                return from == State.NEGOTIATING_MTU;
+            case READY:
+                return from == State.DISCOVERING_SERVICES;
+            case DISCONNECTING:
+                return from != State.DISCONNECTED && from != State.DISCONNECTING;
+            case DISCONNECTED:
+                return from != State.DISCONNECTED;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,526 @@
+package com.example.rcbleproject.Bluetooth;
+
+import static android.bluetooth.BluetoothDevice.BOND_BONDED;
+import static android.bluetooth.BluetoothDevice.BOND_BONDING;
+import static android.bluetooth.BluetoothDevice.TRANSPORT_LE;
+import static android.bluetooth.BluetoothGatt.GATT_SUCCESS;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.rcbleproject.BuildConfig;
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Protocol.HubProtocols;
+import com.example.rcbleproject.R;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Класс HubConnectionManager владеет всеми соединениями с хабами на уровне приложения,
+ * поэтому соединения не зависят от жизненного цикла Activity и переживают переходы между
+ * экранами без повторного подключения. Состояние каждого хаба хранится в HubConnection,
+ * а Activity получают изменения состояний через IHubConnectionListener в главном потоке.
+ * Подключения выполняет ConnectionScheduler: несколько хабов подключаются параллельно
+ * (не более maxParallelConnections), неудачные попытки повторяются с паузой, а о готовности
+ * хаба сообщает CompletableFuture, возвращаемый connect().
+ */
+public class HubConnectionManager {
+    /**
+     * Получатель изменений состояний соединений (вызывается в главном потоке).
+     */
+    public interface IHubConnectionListener {
+        void onHubStateChanged(BluetoothDevice device, HubConnection.State state);
+    }
+
+    private static final String TAG = "APP_TAG22";
+    private static final long CONNECT_TIMEOUT_MS = 10000;   // таймаут одной попытки до готовности хаба
+
+    private final Context context;
+    private final BluetoothAdapter bluetoothAdapter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ConcurrentHashMap<String, HubConnection> connections = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<IHubConnectionListener> listeners = new CopyOnWriteArrayList<>();
+    private final boolean isBatchingEnabled;
+    private final int refreshInterval;          // интервал повтора команд портов при простое, мс
+    private final int maxConnectAttempts;
+    private final ConnectionScheduler scheduler;
+    private volatile int connectionPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+    private volatile boolean isPortsStopped = false;    // порты остановлены до resumeAllPorts()
+
+    /**
+     * @param context - контекст приложения.
+     */
+    public HubConnectionManager(Context context){
+        this.context = context.getApplicationContext();
+        BluetoothManager manager = (BluetoothManager) this.context.getSystemService(Context.BLUETOOTH_SERVICE);
+        bluetoothAdapter = manager == null? null : manager.getAdapter();
+        isBatchingEnabled = this.context.getResources().getBoolean(R.bool.batchPortCommands);
+        refreshInterval = this.context.getResources().getInteger(R.integer.portRefreshInterval);
+        maxConnectAttempts = this.context.getResources().getInteger(R.integer.maxConnectAttempts);
+        scheduler = new ConnectionScheduler(mainHandler, this::startAttempt,
+                this.context.getResources().getInteger(R.integer.maxParallelConnections));
+    }
+
+    public void addListener(IHubConnectionListener listener){
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(IHubConnectionListener listener){
+        listeners.remove(listener);
+    }
+
+    /**
+     * Подключается к хабу. Повторный вызов для хаба, соединение с которым уже установлено
+     * или устанавливается, возвращает тот же результат.
+     * @param device - хаб.
+     * @return результат, завершающийся при готовности хаба к обмену данными или с ошибкой,
+     *         если попытки подключения исчерпаны.
+     */
+    public CompletableFuture<HubConnection> connect(BluetoothDevice device){
+        HubConnection connection = connections.computeIfAbsent(device.getAddress(),
+                address -> new HubConnection(device));
+        CompletableFuture<HubConnection> future;
+        synchronized (connection){
+            if (connection.readyFuture == null || connection.getState() == HubConnection.State.DISCONNECTED)
+                connection.readyFuture = new CompletableFuture<>();
+            future = connection.readyFuture;
+            // соединение уже готово или устанавливается - новый цикл подключения не нужен
+            if (connection.getState() != HubConnection.State.DISCONNECTED
+                    || connection.moveTo(HubConnection.State.CONNECTING) == null) return future;
+            connection.connectRequestTime = SystemClock.elapsedRealtime();
+            connection.failedAttempts = 0;
+        }
+        notifyListeners(connection, HubConnection.State.CONNECTING);
+        scheduler.enqueue(connection);
+        return future;
+    }
+
+    public CompletableFuture<HubConnection> connect(String address){
+        if (bluetoothAdapter == null) {
+            CompletableFuture<HubConnection> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("No Bluetooth adapter"));
+            return future;
+        }
+        return connect(bluetoothAdapter.getRemoteDevice(address));
+    }
+
+    /**
+     * Выполняет одну попытку подключения (в главном потоке, по команде планировщика).
+     */
+    @SuppressLint("MissingPermission")
+    private void startAttempt(HubConnection connection){
+        if (connection.getState() != HubConnection.State.CONNECTING
+                || connections.get(connection.address) != connection){
+            scheduler.onAttemptFinished(connection);
+            return;
+        }
+        int attemptId;
+        synchronized (connection){
+            attemptId = ++connection.attemptId;
+        }
+        if (BuildConfig.DEBUG) Log.v(TAG, "connect to " + connection.address + ", attempt " + attemptId);
+        // прямое подключение (autoConnect = false) быстрее фонового, а повторы обеспечивает планировщик
+        BluetoothGatt gatt = connection.device.connectGatt(context, false, gattCallback, TRANSPORT_LE);
+        if (gatt == null){
+            onAttemptFailed(connection, null);
+            return;
+        }
+        connection.gatt = gatt;
+        mainHandler.postDelayed(() -> {
+            boolean isCurrentAttempt;
+            synchronized (connection){
+                isCurrentAttempt = connection.attemptId == attemptId;
+            }
+            if (!isCurrentAttempt || connection.isReady()
+                    || connection.getState() == HubConnection.State.DISCONNECTED) return;
+            if (BuildConfig.DEBUG) Log.v(TAG, "connection timeout: " + connection.address);
+            gatt.disconnect();
+            onAttemptFailed(connection, gatt);
+        }, CONNECT_TIMEOUT_MS);
+    }
+
+    /**
+     * Разрывает соединение с хабом и забывает его.
+     * @param address - mac-адрес хаба.
+     */
+    @SuppressLint("MissingPermission")
+    public void disconnect(String address){
+        HubConnection connection = connections.remove(address);
+        if (connection == null) return;
+        if (BuildConfig.DEBUG) Log.v(TAG, "disconnect from " + address);
+        scheduler.cancel(connection);
+        synchronized (connection){
+            ++connection.attemptId;
+            if (connection.readyFuture != null)
+                connection.readyFuture.completeExceptionally(new CancellationException());
+        }
+        BluetoothGatt gatt = connection.gatt;
+        releaseResources(connection);
+        connection.moveTo(HubConnection.State.DISCONNECTING);
+        if (gatt != null){
+            gatt.disconnect();
+            gatt.close();
+        }
+        if (connection.moveTo(HubConnection.State.DISCONNECTED) != null)
+            notifyListeners(connection, HubConnection.State.DISCONNECTED);
+    }
+
+    public HubConnection getConnection(String address){
+        return address == null? null : connections.get(address);
+    }
+
+    public Collection<HubConnection> getConnections(){
+        return connections.values();
+    }
+
+    /**
+     * @return true - если соединение с хабом устанавливается или установлено.
+     */
+    public boolean isConnectedOrConnecting(String address){
+        HubConnection connection = getConnection(address);
+        return connection != null && connection.getState() != HubConnection.State.DISCONNECTED;
+    }
+
+    /**
+     * Ставит служебное сообщение в очередь записи хаба.
+     * @return true - если сообщение принято в очередь.
+     */
+    public boolean writeFrame(String address, byte[] frame){
+        HubWriteQueue writeQueue = getWriteQueue(address);
+        return writeQueue != null && writeQueue.offerFrame(frame);
+    }
+
+    /**
+     * Передает новое значение порта в очередь записи хаба.
+     * @param inputTime - время касания, вызвавшего команду, нс; 0 - неизвестно.
+     * @param axisTime - время изменения значения оси, нс.
+     * @return true - если значение принято.
+     */
+    public boolean writePortValue(String address, int portNum, int value, long inputTime,
+                                  long axisTime){
+        HubWriteQueue writeQueue = getWriteQueue(address);
+        return writeQueue != null && writeQueue.offerPortValue(portNum, value, inputTime, axisTime);
+    }
+
+    /**
+     * Останавливает порты всех подключенных хабов (например, при остановке цикла управления).
+     * До вызова resumeAllPorts() команды портов отбрасываются, в том числе для хабов,
+     * подключенных после остановки. Вызывается из любого потока.
+     */
+    public void stopAllPorts(){
+        isPortsStopped = true;
+        for (HubConnection connection : connections.values()){
+            HubWriteQueue writeQueue = connection.writeQueue;
+            if (writeQueue != null) writeQueue.stopAllPorts();
+        }
+    }
+
+    /**
+     * Снимает остановку портов (stopAllPorts): хабы снова принимают команды портов.
+     * Вызывается из любого потока.
+     */
+    public void resumeAllPorts(){
+        isPortsStopped = false;
+        for (HubConnection connection : connections.values()){
+            HubWriteQueue writeQueue = connection.writeQueue;
+            if (writeQueue != null) writeQueue.resumePorts();
+        }
+    }
+
+    private HubWriteQueue getWriteQueue(String address){
+        HubConnection connection = getConnection(address);
+        return connection == null? null : connection.writeQueue;
+    }
+
+    /**
+     * Устанавливает приоритет всех текущих и будущих соединений с хабами.
+     * @param priority - BluetoothGatt.CONNECTION_PRIORITY_*.
+     */
+    public void setConnectionPriority(int priority){
+        connectionPriority = priority;
+        for (HubConnection connection : connections.values()){
+            if (connection.isReady()) applyConnectionPriority(connection, priority);
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private static void applyConnectionPriority(HubConnection connection, int priority){
+        BluetoothGatt gatt = connection.gatt;
+        if (gatt == null || connection.linkParams.getConnectionPriority() == priority) return;
+        if (gatt.requestConnectionPriority(priority))
+            connection.linkParams.setConnectionPriority(priority);
+    }
+
+    private void notifyListeners(HubConnection connection, HubConnection.State state){
+        mainHandler.post(() -> {
+            for (IHubConnectionListener listener : listeners)
+                listener.onHubStateChanged(connection.device, state);
+        });
+    }
+
+    /**
+     * Обрабатывает неудачную попытку подключения или потерю связи: освобождает ресурсы
+     * соединения и планирует новую попытку, пока они не исчерпаны.
+     */
+    private void onAttemptFailed(HubConnection connection, BluetoothGatt gatt){
+        releaseResources(connection);
+        if (gatt != null) gatt.close();
+        if (connection.gatt == gatt) connection.gatt = null;
+        scheduler.onAttemptFinished(connection);
+        if (connections.get(connection.address) != connection) return;
+
+        HubConnection.State prevState = connection.moveTo(HubConnection.State.CONNECTING);
+        int failedAttempts;
+        synchronized (connection){
+            ++connection.attemptId;
+            if (prevState == HubConnection.State.READY){
+                // связь с готовым хабом потеряна: начинаем новый цикл подключения
+                connection.readyFuture = new CompletableFuture<>();
+                connection.connectRequestTime = SystemClock.elapsedRealtime();
+                connection.failedAttempts = 0;
+                connection.setTimeToReady(-1);
+            }
+            failedAttempts = ++connection.failedAttempts;
+        }
+        if (failedAttempts >= maxConnectAttempts){
+            if (connection.moveTo(HubConnection.State.DISCONNECTED) == null) return;
+            synchronized (connection){
+                connection.readyFuture.completeExceptionally(new IOException(
+                        "Failed to connect to " + connection.address + " after "
+                        + failedAttempts + " attempts"));
+            }
+            notifyListeners(connection, HubConnection.State.DISCONNECTED);
+            return;
+        }
+        if (prevState != null && prevState != HubConnection.State.CONNECTING)
+            notifyListeners(connection, HubConnection.State.CONNECTING);
+        long delay = scheduler.enqueueWithBackoff(connection, failedAttempts);
+        if (BuildConfig.DEBUG)
+            Log.v(TAG, "retry " + connection.address + " in " + delay + " ms");
+    }
+
+    private void onReady(HubConnection connection){
+        scheduler.onAttemptFinished(connection);
+        long timeToReady;
+        CompletableFuture<HubConnection> future;
+        synchronized (connection){
+            connection.failedAttempts = 0;
+            timeToReady = SystemClock.elapsedRealtime() - connection.connectRequestTime;
+            connection.setTimeToReady(timeToReady);
+            future = connection.readyFuture;
+        }
+        if (BuildConfig.DEBUG) Log.v(TAG, connection.address + " is ready in " + timeToReady + " ms");
+        notifyListeners(connection, HubConnection.State.READY);
+        if (future != null) future.complete(connection);
+    }
+
+    private static void releaseResources(HubConnection connection){
+        GattHubTransport transport = connection.transport;
+        connection.transport = null;
+        if (transport != null) transport.setListener(null);
+        HubTelemetry telemetry = connection.telemetry;
+        connection.telemetry = null;
+        if (telemetry != null) telemetry.close();
+        HubWriteQueue writeQueue = connection.writeQueue;
+        connection.writeQueue = null;
+        if (writeQueue != null) writeQueue.close();
+    }
+
+    @SuppressLint("MissingPermission")
+    private static void discoverServices(BluetoothGatt gatt){
+        if (BuildConfig.DEBUG) Log.v("APP_TAG2", "Discover services");
+        boolean res = gatt.discoverServices();
+        if (!res && BuildConfig.DEBUG)
+            Log.v("APP_TAG2", "Discovering services was failed");
+    }
+
+    /**
+     * @return соединение, которому принадлежит gatt; null - если хаб забыт
+     *         или gatt относится к отмененной попытке.
+     */
+    private HubConnection getConnection(BluetoothGatt gatt){
+        HubConnection connection = connections.get(gatt.getDevice().getAddress());
+        if (connection == null) return null;
+        BluetoothGatt current = connection.gatt;
+        // обратный вызов может прийти раньше, чем connectGatt вернет управление
+        return current == null || current == gatt? connection : null;
+    }
+
+    /**
+     * @return транспорт соединения, которому принадлежит gatt; null - если сервисы хаба
+     *         еще не обнаружены.
+     */
+    private GattHubTransport getTransport(BluetoothGatt gatt){
+        HubConnection connection = getConnection(gatt);
+        return connection == null? null : connection.transport;
+    }
+
+    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+        @SuppressLint("MissingPermission")
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            super.onConnectionStateChange(gatt, status, newState);
+            if (BuildConfig.DEBUG)
+                Log.v(TAG, "state changed: " + gatt.getDevice().getAddress()
+                        + "; status: " + status + "; newState: " + newState);
+            HubConnection connection = getConnection(gatt);
+            if (connection == null){
+                // хаб был забыт или попытка уже отменена по таймауту
+                gatt.close();
+                return;
+            }
+            if (connection.gatt == null) connection.gatt = gatt;
+            if (status != GATT_SUCCESS || newState == BluetoothProfile.STATE_DISCONNECTED){
+                onAttemptFailed(connection, gatt);
+                return;
+            }
+            if (newState != BluetoothProfile.STATE_CONNECTED) return;
+
+            int delay = 0;
+            switch (gatt.getDevice().getBondState()){
+                case BOND_BONDED:
+                    delay = Build.VERSION.SDK_INT <= Build.VERSION_CODES.N? 1000 : 0;
+                    break;
+                case BOND_BONDING:
+                    return;
+            }
+            if (connection.moveTo(HubConnection.State.NEGOTIATING_MTU) == null) return;
+            notifyListeners(connection, HubConnection.State.NEGOTIATING_MTU);
+            mainHandler.postDelayed(() -> {
+                if (BuildConfig.DEBUG) Log.v("APP_TAG2", "Request MTU");
+                if (!gatt.requestMtu(LinkParams.REQUESTED_MTU)) onMtuChanged(gatt, 0, -1);
+            }, delay);
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            super.onMtuChanged(gatt, mtu, status);
+            if (BuildConfig.DEBUG) Log.v("APP_TAG2", "MTU: " + mtu + "; status: " + status);
+            HubConnection connection = getConnection(gatt);
+            if (connection == null) return;
+            if (status == GATT_SUCCESS) connection.linkParams.setMtu(mtu);
+            if (connection.moveTo(HubConnection.State.DISCOVERING_SERVICES) == null) return;
+            notifyListeners(connection, HubConnection.State.DISCOVERING_SERVICES);
+            discoverServices(gatt);
+        }
+
+        @SuppressLint("MissingPermission")
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+            super.onServicesDiscovered(gatt, status);
+            HubConnection connection = getConnection(gatt);
+            if (connection == null) return;
+            HubProtocol protocol = null;
+            if (status == GATT_SUCCESS){
+                for (BluetoothGattService service : gatt.getServices()){
+                    protocol = HubProtocols.forServiceUuid(service.getUuid());
+                    if (protocol != null) break;
+                }
+            }
+            if (protocol == null){
+                // без сервиса хаба соединение бесполезно: разрываем его (onConnectionStateChange)
+                gatt.disconnect();
+                return;
+            }
+
+            GattHubTransport transport = new GattHubTransport(gatt, protocol);
+            HubWriteQueue writeQueue = new HubWriteQueue(transport, protocol, connection.latencyStats,
+                    new HandlerTaskScheduler("HubWriteQueue-" + connection.address));
+            writeQueue.setBatchingEnabled(isBatchingEnabled);
+            writeQueue.setMtu(connection.linkParams.getMtu());
+            writeQueue.setRefreshInterval(refreshInterval);
+            HubTelemetry telemetry = new HubTelemetry(gatt, protocol, writeQueue);
+            transport.setListener(new IHubTransport.IListener() {
+                @Override
+                public void onWriteCompleted() { writeQueue.onWriteCompleted(); }
+
+                @Override
+                public void onNotification(byte[] data) { telemetry.onNotification(data); }
+            });
+            connection.protocol = protocol;
+            connection.transport = transport;
+            connection.writeQueue = writeQueue;
+            connection.telemetry = telemetry;
+            // флаг проверяется после публикации очереди: остановка, начатая одновременно,
+            // останавливает очередь здесь или в stopAllPorts()
+            if (isPortsStopped) writeQueue.stopAllPorts();
+            if (connection.moveTo(HubConnection.State.READY) == null){
+                releaseResources(connection);
+                return;
+            }
+            applyConnectionPriority(connection, connectionPriority);
+            writeQueue.onServicesDiscovered();
+            telemetry.start();
+            onReady(connection);
+        }
+
+        /**
+         * Скрытый до API 33 метод BluetoothGattCallback: стек вызывает его при изменении
+         * параметров соединения, поэтому он объявлен без @Override.
+         * @param interval - интервал соединения в единицах 1.25 мс.
+         * @param latency - допустимое число пропускаемых событий соединения.
+         * @param timeout - таймаут контроля соединения в единицах 10 мс.
+         */
+        public void onConnectionUpdated(BluetoothGatt gatt, int interval, int latency,
+                                        int timeout, int status) {
+            HubConnection connection = getConnection(gatt);
+            if (connection == null || status != GATT_SUCCESS) return;
+            connection.linkParams.setConnectionParams(interval, latency, timeout);
+            if (BuildConfig.DEBUG)
+                Log.v("APP_TAG2", "connection interval: " + interval * 1.25f + " ms");
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt,
+                                          BluetoothGattCharacteristic characteristic, int status) {
+            super.onCharacteristicWrite(gatt, characteristic, status);
+            GattHubTransport transport = getTransport(gatt);
+            if (transport != null) transport.dispatchWriteCompleted();
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor,
+                                      int status) {
+            super.onDescriptorWrite(gatt, descriptor, status);
+            GattHubTransport transport = getTransport(gatt);
+            if (transport != null) transport.dispatchWriteCompleted();
+        }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt,
+                                            BluetoothGattCharacteristic characteristic) {
+            super.onCharacteristicChanged(gatt, characteristic);
+            GattHubTransport transport = getTransport(gatt);
+            byte[] value = characteristic.getValue();
+            // значение характеристики перезаписывается следующим уведомлением, поэтому копируется
+            if (transport != null && value != null) transport.dispatchNotification(value.clone());
+        }
+
+        @Override
+        public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
+            super.onReadRemoteRssi(gatt, rssi, status);
+            HubConnection connection = getConnection(gatt);
+            HubTelemetry telemetry = connection == null? null : connection.telemetry;
+            if (telemetry != null && status == GATT_SUCCESS) telemetry.onRssiRead(rssi);
+        }
+    };
+}
@@ -0,0 +1,172 @@
+package com.example.rcbleproject.Bluetooth;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothGatt;
+import android.os.SystemClock;
+
+import com.example.rcbleproject.Protocol.HubMessage;
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Telemetry.TelemetryRing;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Класс HubTelemetry принимает уведомления хаба и хранит его телеметрию: заряд батареи,
+ * уровень сигнала, нагрузку моторов (по встроенному датчику тока хаба), положение и скорость
+ * валов моторов. Уведомления передаются из потока Binder в поток очереди записи хаба
+ * и разбираются там. Последние значения доступны любому потоку без блокировок, а последние
+ * RING_CAPACITY записей - через кольцевой буфер getRing() (один потребитель, TelemetryOverlay).
+ */
+public class HubTelemetry {
+    private static final int RING_CAPACITY = 256;
+    private static final long RSSI_PERIOD_MS = 2000;   // период опроса уровня сигнала
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final BluetoothGatt gatt;
+    private final HubProtocol protocol;
+    private final HubWriteQueue writeQueue;
+    private final ITaskScheduler scheduler;  // поток очереди записи хаба
+    private final TelemetryRing ring = new TelemetryRing(RING_CAPACITY);
+    private final HubMessage message = new HubMessage();  // используется только потоком разбора
+
+    private volatile int batteryLevel = UNKNOWN;
+    private volatile int rssi = UNKNOWN;
+    private volatile int motorLoad = UNKNOWN;
+    private int motorLoadPort = -1;     // порт датчика тока (только поток разбора)
+    private final AtomicIntegerArray positions = new AtomicIntegerArray(HubWriteQueue.MAX_PORTS);
+    private final AtomicIntegerArray speeds = new AtomicIntegerArray(HubWriteQueue.MAX_PORTS);
+    private final long[] positionTimes = new long[HubWriteQueue.MAX_PORTS];   // время последнего положения, нс
+
+    private final Runnable rssiPoll = new Runnable() {
+        @SuppressLint("MissingPermission")
+        @Override
+        public void run() {
+            gatt.readRemoteRssi();
+            scheduler.postDelayed(this, RSSI_PERIOD_MS);
+        }
+    };
+
+    public HubTelemetry(BluetoothGatt gatt, HubProtocol protocol, HubWriteQueue writeQueue){
+        this.gatt = gatt;
+        this.protocol = protocol;
+        this.writeQueue = writeQueue;
+        scheduler = writeQueue.getScheduler();
+        for (int idx = 0; idx < HubWriteQueue.MAX_PORTS; ++idx){
+            positions.set(idx, UNKNOWN);
+            speeds.set(idx, UNKNOWN);
+        }
+    }
+
+    /**
+     * Включает уведомления хаба и подписывается на заряд батареи.
+     * Вызывается после обнаружения сервисов.
+     */
+    public void start(){
+        writeQueue.enableNotifications();
+        byte[] subscription = protocol.encodeBatterySubscription();
+        if (subscription != null) writeQueue.offerFrame(subscription);
+        scheduler.removeCallbacks(rssiPoll);
+        scheduler.postDelayed(rssiPoll, RSSI_PERIOD_MS);
+    }
+
+    public void close(){
+        scheduler.removeCallbacks(rssiPoll);
+    }
+
+    /**
+     * Вызывается из BluetoothGattCallback.onCharacteristicChanged (поток Binder).
+     * @param data - копия значения характеристики.
+     */
+    public void onNotification(byte[] data){
+        long time = SystemClock.elapsedRealtimeNanos();
+        scheduler.post(() -> parse(data, time));
+    }
+
+    /**
+     * Вызывается из BluetoothGattCallback.onReadRemoteRssi.
+     * @param rssi - уровень сигнала, дБм.
+     */
+    public void onRssiRead(int rssi){
+        this.rssi = rssi;
+        long time = SystemClock.elapsedRealtimeNanos();
+        scheduler.post(() -> ring.offer(HubMessage.RSSI, -1, rssi, time));
+    }
+
+    private void parse(byte[] data, long time){
+        int offset = 0;
+        while (offset < data.length){
+            int length = protocol.decodeMessage(data, offset, data.length - offset, message);
+            if (length == 0) break;
+            offset += length;
+            if (message.type == HubMessage.UNKNOWN) continue;
+            if (message.type == HubMessage.PORT_VALUE && message.portNum == motorLoadPort)
+                message.set(HubMessage.MOTOR_LOAD, -1, protocol.decodeMotorLoad(message.value));
+            apply(message, time);
+            ring.offer(message.type, message.portNum, message.value, time);
+        }
+    }
+
+    private void apply(HubMessage message, long time){
+        int portNum = message.portNum;
+        boolean isOutputPort = portNum >= 0 && portNum < HubWriteQueue.MAX_PORTS;
+        switch (message.type){
+            case HubMessage.BATTERY:
+                batteryLevel = message.value;
+                break;
+            case HubMessage.MOTOR_LOAD:
+                motorLoad = message.value;
+                break;
+            case HubMessage.IO_ATTACHED:
+                if (protocol.isMotorLoadSensor(message.value)) motorLoadPort = portNum;
+                else if (!isOutputPort) break;
+                byte[] subscription = protocol.encodePortValueSubscription(portNum, message.value);
+                if (subscription != null) writeQueue.offerFrame(subscription);
+                break;
+            case HubMessage.IO_DETACHED:
+                if (!isOutputPort) break;
+                positions.set(portNum, UNKNOWN);
+                speeds.set(portNum, UNKNOWN);
+                break;
+            case HubMessage.PORT_VALUE:
+                if (!isOutputPort) break;
+                int lastPosition = positions.get(portNum);
+                long lastTime = positionTimes[portNum];
+                if (lastPosition != UNKNOWN && time > lastTime)
+                    speeds.set(portNum, (int)((message.value - lastPosition) * 1_000_000_000L
+                            / (time - lastTime)));
+                positions.set(portNum, message.value);
+                positionTimes[portNum] = time;
+                break;
+        }
+    }
+
+    /**
+     * @return заряд батареи, %; UNKNOWN - если хаб его не сообщил.
+     */
+    public int getBatteryLevel(){ return batteryLevel; }
+
+    /**
+     * @return уровень сигнала, дБм; UNKNOWN - если еще не измерен.
+     */
+    public int getRssi(){ return rssi; }
+
+    /**
+     * @return нагрузка моторов хаба (ток), % диапазона датчика; UNKNOWN - если хаб ее не сообщает.
+     */
+    public int getMotorLoad(){ return motorLoad; }
+
+    /**
+     * @return положение вала мотора порта, градусы; UNKNOWN - если мотор его не сообщает.
+     */
+    public int getPortPosition(int portNum){ return positions.get(portNum); }
+
+    /**
+     * @return скорость вала мотора порта, градусы/с; UNKNOWN - если мотор ее не сообщает.
+     */
+    public int getPortSpeed(int portNum){ return speeds.get(portNum); }
+
+    /**
+     * @return буфер всех записей телеметрии (с одним потребителем).
+     */
+    public TelemetryRing getRing(){ return ring; }
+}
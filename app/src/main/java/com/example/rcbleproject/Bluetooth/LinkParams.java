@@ -0,0 +1,57 @@
+package com.example.rcbleproject.Bluetooth;
+
+import android.bluetooth.BluetoothGatt;
+
+/**
+ * Класс LinkParams хранит фактически согласованные параметры соединения с хабом.
+ */
+public class LinkParams {
+    public static final int REQUESTED_MTU = 185;    // MTU, запрашиваемый при подключении
+
+    private volatile int mtu = HubWriteQueue.DEFAULT_MTU;
+    private volatile int connectionPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+    private volatile int connectionInterval = -1;   // интервал соединения в единицах 1.25 мс
+    private volatile int slaveLatency = -1;
+    private volatile int supervisionTimeout = -1;   // в единицах 10 мс
+
+    /**
+     * @return согласованный MTU.
+     */
+    public int getMtu() { return mtu; }
+
+    public void setMtu(int mtu) { this.mtu = mtu; }
+
+    /**
+     * @return последний принятый стеком приоритет соединения
+     *         (BluetoothGatt.CONNECTION_PRIORITY_*).
+     */
+    public int getConnectionPriority() { return connectionPriority; }
+
+    public void setConnectionPriority(int connectionPriority) {
+        this.connectionPriority = connectionPriority;
+    }
+
+    /**
+     * @return интервал соединения в миллисекундах; -1 - если стек его не сообщил.
+     */
+    public float getConnectionIntervalMs() {
+        int interval = connectionInterval;
+        return interval < 0? -1 : interval * 1.25f;
+    }
+
+    public int getSlaveLatency() { return slaveLatency; }
+
+    /**
+     * @return таймаут контроля соединения в миллисекундах; -1 - если стек его не сообщил.
+     */
+    public int getSupervisionTimeoutMs() {
+        int timeout = supervisionTimeout;
+        return timeout < 0? -1 : timeout * 10;
+    }
+
+    public void setConnectionParams(int interval, int latency, int timeout){
+        connectionInterval = interval;
+        slaveLatency = latency;
+        supervisionTimeout = timeout;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.rcbleproject.Bluetooth;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.rcbleproject.BuildConfig;
+import com.example.rcbleproject.R;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс ScanScheduler управляет сканированием BLE для всего приложения.
+ * Режимы:
+ * PAIRING - непрерывное сканирование SCAN_MODE_LOW_LATENCY, пока пользователь ищет новые хабы;
+ * RECONNECT - окна сканирования SCAN_MODE_LOW_POWER с паузами между ними, только по адресам
+ * хабов, которые нужно переподключить. Сканирование останавливается, как только все
+ * такие хабы подключены;
+ * OFF - сканирование остановлено.
+ * Запуски сканирования ограничиваются, чтобы не превысить лимит Android
+ * (не более 5 запусков за 30 секунд), иначе система молча перестает выдавать результаты.
+ * Все методы вызываются в главном потоке.
+ */
+public class ScanScheduler {
+    public enum Mode {OFF, PAIRING, RECONNECT}
+
+    private static final String TAG = "ScanScheduler";
+    static final int MAX_SCAN_STARTS = 5;                 // лимит Android на число запусков...
+    static final long SCAN_STARTS_PERIOD_MS = 30_000;     // ...за этот период
+
+    private final BluetoothAdapter bluetoothAdapter;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long reconnectWindow;
+    private final long reconnectPause;
+
+    private Mode mode = Mode.OFF;
+    private ScanCallback callback;
+    private List<ScanFilter> pairingFilters;
+    private boolean isScanning = false;
+    private long scanStartTime;
+    private long totalScanTime = 0;                       // суммарное время сканирования, мс
+    private final long[] startTimes = new long[MAX_SCAN_STARTS];  // время последних запусков
+    private int startIdx = 0;
+
+    // адрес хаба -> суммарное время сканирования в момент, когда хаб потребовалось найти
+    private final HashMap<String, Long> targets = new HashMap<>();
+    // адрес хаба -> время сканирования до его подключения, мс
+    private final HashMap<String, Long> scanTimes = new HashMap<>();
+
+    private final Runnable startScan = this::startScan;
+    private final Runnable endWindow = this::endWindow;
+
+    public ScanScheduler(Context context){
+        BluetoothManager manager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        bluetoothAdapter = manager == null? null : manager.getAdapter();
+        reconnectWindow = context.getResources().getInteger(R.integer.reconnectScanWindow);
+        reconnectPause = context.getResources().getInteger(R.integer.reconnectScanPause);
+    }
+
+    public Mode getMode(){ return mode; }
+
+    public boolean isScanning(){ return isScanning; }
+
+    /**
+     * Запускает непрерывный поиск новых хабов.
+     * @param callback - получатель результатов сканирования.
+     * @param filters - фильтры по UUID сервисов поддерживаемых хабов.
+     */
+    public void startPairing(ScanCallback callback, List<ScanFilter> filters){
+        if (this.callback != callback) stopScan();
+        this.callback = callback;
+        pairingFilters = filters;
+        if (mode == Mode.PAIRING && isScanning) return;
+        stopScan();
+        handler.removeCallbacks(startScan);
+        mode = Mode.PAIRING;
+        startScan();
+    }
+
+    /**
+     * Завершает поиск новых хабов. Если остались хабы для переподключения,
+     * после паузы возобновляются окна сканирования в режиме RECONNECT.
+     */
+    public void stopPairing(){
+        if (mode != Mode.PAIRING) return;
+        stopScan();
+        handler.removeCallbacks(startScan);
+        mode = targets.isEmpty()? Mode.OFF : Mode.RECONNECT;
+        if (mode == Mode.RECONNECT) handler.postDelayed(startScan, reconnectPause);
+    }
+
+    /**
+     * Запускает окна сканирования для переподключения хабов.
+     * @param callback - получатель результатов сканирования.
+     * @param addresses - mac-адреса еще не подключенных хабов.
+     */
+    public void startReconnect(ScanCallback callback, Collection<String> addresses){
+        if (this.callback != callback) stopScan();
+        this.callback = callback;
+        boolean isChanged = false;
+        Iterator<Map.Entry<String, Long>> iterator = targets.entrySet().iterator();
+        while (iterator.hasNext())
+            if (!addresses.contains(iterator.next().getKey())){
+                iterator.remove();
+                isChanged = true;
+            }
+        for (String address : addresses)
+            if (!targets.containsKey(address)){
+                targets.put(address, getTotalScanTime());
+                isChanged = true;
+            }
+        if (mode == Mode.PAIRING) return;
+        if (targets.isEmpty()){
+            stop(callback);
+            return;
+        }
+        if (mode == Mode.RECONNECT && !isChanged) return;
+        // фильтры по адресам изменились - текущее окно перезапускается
+        stopScan();
+        mode = Mode.RECONNECT;
+        startScan();
+    }
+
+    /**
+     * Останавливает сканирование в любом режиме.
+     * @param callback - получатель, для которого было запущено сканирование.
+     */
+    public void stop(ScanCallback callback){
+        if (this.callback != callback) return;
+        stopScan();
+        handler.removeCallbacks(startScan);
+        mode = Mode.OFF;
+        targets.clear();
+        this.callback = null;
+    }
+
+    /**
+     * Вызывается, когда хаб готов к работе. Если это был последний хаб для переподключения,
+     * сканирование в режиме RECONNECT останавливается.
+     */
+    public void onHubReady(String address){
+        Long targetTime = targets.remove(address);
+        if (targetTime == null) return;
+        long scanTime = getTotalScanTime() - targetTime;
+        scanTimes.put(address, scanTime);
+        if (BuildConfig.DEBUG) Log.v(TAG, "hub " + address + " found after " + scanTime + " ms of scanning");
+        if (targets.isEmpty() && mode == Mode.RECONNECT){
+            stopScan();
+            handler.removeCallbacks(startScan);
+            mode = Mode.OFF;
+        }
+    }
+
+    /**
+     * Вызывается при потере связи с хабом, который нужно переподключить.
+     */
+    public void onHubLost(String address){
+        if (callback == null || targets.containsKey(address)) return;
+        targets.put(address, getTotalScanTime());
+        if (mode != Mode.OFF) return;
+        mode = Mode.RECONNECT;
+        startScan();
+    }
+
+    /**
+     * @return время сканирования до подключения хаба, мс; -1 - если хаб не искался сканированием.
+     */
+    public long getScanTime(String address){
+        Long scanTime = scanTimes.get(address);
+        return scanTime == null? -1 : scanTime;
+    }
+
+    /**
+     * @return суммарное время сканирования с запуска приложения, мс.
+     */
+    public long getTotalScanTime(){
+        return isScanning? totalScanTime + SystemClock.elapsedRealtime() - scanStartTime
+                         : totalScanTime;
+    }
+
+    @SuppressLint("MissingPermission")
+    private void startScan(){
+        handler.removeCallbacks(startScan);
+        if (mode == Mode.OFF || isScanning || callback == null || bluetoothAdapter == null) return;
+        long time = SystemClock.elapsedRealtime();
+        long oldestStart = startTimes[startIdx];
+        if (oldestStart != 0 && time - oldestStart < SCAN_STARTS_PERIOD_MS){
+            // лимит запусков исчерпан - запуск откладывается до освобождения
+            handler.postDelayed(startScan, SCAN_STARTS_PERIOD_MS - (time - oldestStart));
+            return;
+        }
+        BluetoothLeScanner scanner = bluetoothAdapter.getBluetoothLeScanner();
+        if (scanner == null) return;
+        if (mode == Mode.PAIRING){
+            ScanSettings settings = new ScanSettings.Builder()
+                    .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+                    .setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES)
+                    .setMatchMode(ScanSettings.MATCH_MODE_AGGRESSIVE)
+                    .setNumOfMatches(ScanSettings.MATCH_NUM_ONE_ADVERTISEMENT).build();
+            scanner.startScan(pairingFilters, settings, callback);
+        }
+        else {
+            ArrayList<ScanFilter> filters = new ArrayList<>(targets.size());
+            for (String address : targets.keySet())
+                filters.add(new ScanFilter.Builder().setDeviceAddress(address).build());
+            ScanSettings settings = new ScanSettings.Builder()
+                    .setScanMode(ScanSettings.SCAN_MODE_LOW_POWER).build();
+            scanner.startScan(filters, settings, callback);
+            handler.postDelayed(endWindow, reconnectWindow);
+        }
+        startTimes[startIdx] = time;
+        startIdx = (startIdx + 1) % MAX_SCAN_STARTS;
+        isScanning = true;
+        scanStartTime = time;
+        if (BuildConfig.DEBUG) Log.v(TAG, "start scan, mode = " + mode);
+    }
+
+    private void endWindow(){
+        stopScan();
+        if (mode == Mode.RECONNECT) handler.postDelayed(startScan, reconnectPause);
+    }
+
+    @SuppressLint("MissingPermission")
+    private void stopScan(){
+        handler.removeCallbacks(endWindow);
+        if (!isScanning) return;
+        isScanning = false;
+        totalScanTime += SystemClock.elapsedRealtime() - scanStartTime;
+        BluetoothLeScanner scanner = bluetoothAdapter.getBluetoothLeScanner();
+        if (scanner != null) scanner.stopScan(callback);
+    }
+}
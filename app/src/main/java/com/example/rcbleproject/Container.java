@@ -1,24 +1,21 @@
 package com.example.rcbleproject;
 
 import android.annotation.SuppressLint;
-import android.bluetooth.BluetoothGatt;
 import android.content.Context;
 import android.os.Build;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 
+import com.example.rcbleproject.Bluetooth.HubConnectionManager;
+import com.example.rcbleproject.Bluetooth.ScanScheduler;
 import com.example.rcbleproject.Database.DatabaseAdapterPortConnections;
 import com.example.rcbleproject.Database.DatabaseAdapterDisplays;
 import com.example.rcbleproject.Database.DatabaseAdapterElementsControl;
 import com.example.rcbleproject.Database.DatabaseAdapterForHubs;
 import com.example.rcbleproject.Database.DatabaseAdapterProfilesControl;
-import com.example.rcbleproject.Model.BluetoothHub;
 import com.example.rcbleproject.ViewAndPresenter.BaseAppActivity;
 
-import java.util.HashMap;
-import java.util.UUID;
-
 public class Container {
     public static final String appPrefKey = "app_preferences_key";
     public static final String currDisIdxPrefKey = "current_display_index_";
@@ -28,9 +25,8 @@ public class Container {
     public static final String numOfDisplaysPrefKey = "number_of_displays_";
     public static final String imageUriKey = "image_uri_key";
 
-    private static HashMap<String, BluetoothGatt> gatts = null;
-    private static HashMap<BluetoothHub.HubTypes, UUID> serviceUUIDs = null,
-                                                        characteristicUUIDs = null;
+    private static HubConnectionManager connectionManager = null;
+    private static ScanScheduler scanScheduler = null;
 
     @SuppressLint("StaticFieldLeak")
     private static DatabaseAdapterPortConnections dbPortConnections = null;
@@ -44,12 +40,28 @@ public class Container {
     private static DatabaseAdapterProfilesControl dbProfilesControl = null;
 
     /**
-     * Получаем список профилей BLE, сопоставленных с их mac-адресами.
-     * @return HashMap профилей BLE.
+     * Получаем менеджер соединений с хабами, общий для всего приложения.
+     * @param context - используется для получения контекста приложения.
+     * @return экземпляр менеджера соединений.
      */
-    public static HashMap<String, BluetoothGatt> getGatts(){
-        if (gatts == null) gatts = new HashMap<>();
-        return gatts;
+    public static synchronized HubConnectionManager getConnectionManager(@NonNull Context context){
+        if (connectionManager == null){
+            connectionManager = new HubConnectionManager(context.getApplicationContext());
+        }
+        return connectionManager;
+    }
+
+    /**
+     * Получаем планировщик сканирования, общий для всего приложения
+     * (лимит запусков сканирования действует на все приложение).
+     * @param context - используется для получения контекста приложения.
+     * @return экземпляр планировщика сканирования.
+     */
+    public static synchronized ScanScheduler getScanScheduler(@NonNull Context context){
+        if (scanScheduler == null){
+            scanScheduler = new ScanScheduler(context.getApplicationContext());
+        }
+        return scanScheduler;
     }
 
     /**
@@ -112,32 +124,4 @@ public class Container {
         }
         return dbProfilesControl;
     }
-
-    /**
-     * Получаем экземпляр коллекции UUID BLE-сервисов.
-     * @param context - используется для инициализации экземпляра БД
-     * @return экземпляр таблицы ProfilesControl БД.
-     */
-    public static HashMap<BluetoothHub.HubTypes, UUID> getServiceUUIDs(@NonNull Context context){
-        if (serviceUUIDs == null){
-            serviceUUIDs = new HashMap<>();
-            serviceUUIDs.put(BluetoothHub.HubTypes.PowerFunctionsHub, UUID.fromString(context.getString(R.string.gecko_service_uuid)));
-            serviceUUIDs.put(BluetoothHub.HubTypes.PoweredUpHub, UUID.fromString(context.getString(R.string.pu_service_uuid)));
-        }
-        return serviceUUIDs;
-    }
-
-    /**
-     * Получаем экземпляр коллекции UUID BLE-характеристик.
-     * @param context - используется для инициализации экземпляра БД
-     * @return экземпляр таблицы ProfilesControl БД.
-     */
-    public static HashMap<BluetoothHub.HubTypes, UUID> getCharacteristicUUIDs(@NonNull Context context){
-        if (characteristicUUIDs == null){
-            characteristicUUIDs = new HashMap<>();
-            characteristicUUIDs.put(BluetoothHub.HubTypes.PowerFunctionsHub, UUID.fromString(context.getString(R.string.gecko_characteristic_uuid)));
-            characteristicUUIDs.put(BluetoothHub.HubTypes.PoweredUpHub, UUID.fromString(context.getString(R.string.pu_characteristic_uuid)));
-        }
-        return characteristicUUIDs;
-    }
 }
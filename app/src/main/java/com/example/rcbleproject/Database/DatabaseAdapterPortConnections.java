@@ -11,6 +11,7 @@ import com.example.rcbleproject.Model.BaseControlElement;
 import com.example.rcbleproject.Model.BluetoothHub;
 import com.example.rcbleproject.BuildConfig;
 import com.example.rcbleproject.Container;
+import com.example.rcbleproject.Control.ResponseCurve;
 import com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu.GameControllersDrawer;
 import com.example.rcbleproject.Model.Port;
 import com.example.rcbleproject.Model.PortConnection;
@@ -29,6 +30,13 @@ public class DatabaseAdapterPortConnections extends DatabaseAdapter{
     public static final String DEVICE_PORT_NUM = "device_port_num";
     public static final String DISPLAY_ID = "display_id";
     public static final String DIRECTION_OF_ROTATION = "direction_of_rotation";
+    // параметры передаточной характеристики (ResponseCurve), с версии БД 2
+    public static final String DEAD_ZONE = "dead_zone";
+    public static final String EXPO = "expo";
+    public static final String MIN_OUTPUT = "min_output";
+    public static final String MAX_OUTPUT = "max_output";
+    public static final String SLEW_RATE = "slew_rate";
+    public static final String INVERTED = "inverted";
 
     //private static List<List<PortConnection>> portConnections;
     //private static long profileID = -1;
@@ -49,6 +57,7 @@ public class DatabaseAdapterPortConnections extends DatabaseAdapter{
                 + DISPLAY_ID + " INTEGER NOT NULL, "
                 + DIRECTION_OF_ROTATION + " INTEGER NOT NULL CHECK(" + DIRECTION_OF_ROTATION + " = -1"
                     + " OR " + DIRECTION_OF_ROTATION + " = 1),"
+                + String.join(", ", getResponseCurveColumns()) + ", "
                 + "FOREIGN KEY (" + ELEMENT_ID + ") REFERENCES " + DatabaseAdapterElementsControl.TABLE_NAME
                     + "(" + DatabaseAdapterElementsControl.ID + ") ON DELETE CASCADE, "
                 + "FOREIGN KEY (" + DEVICE_ADDRESS + ") REFERENCES " + DatabaseAdapterForHubs.TABLE_NAME
@@ -58,9 +67,29 @@ public class DatabaseAdapterPortConnections extends DatabaseAdapter{
                 //+ "PRIMARY KEY(" + DEVICE_ADDRESS + ", " + DISPLAY_ID + ", " + DEVICE_PORT_NUM + "));");
     }
 
+    /**
+     * Добавляет в таблицу столбцы передаточной характеристики (переход на версию БД 2).
+     * Существующие соединения получают линейную характеристику.
+     */
+    public static void upgradeToVersion2(SQLiteDatabase db){
+        for (String column : getResponseCurveColumns())
+            db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + column + ";");
+    }
+
+    private static String[] getResponseCurveColumns(){
+        ResponseCurve linear = ResponseCurve.LINEAR;
+        return new String[] {
+                DEAD_ZONE + " INTEGER NOT NULL DEFAULT " + linear.deadZone,
+                EXPO + " INTEGER NOT NULL DEFAULT " + linear.expo,
+                MIN_OUTPUT + " INTEGER NOT NULL DEFAULT " + linear.minOutput,
+                MAX_OUTPUT + " INTEGER NOT NULL DEFAULT " + linear.maxOutput,
+                SLEW_RATE + " INTEGER NOT NULL DEFAULT " + linear.slewRate,
+                INVERTED + " INTEGER NOT NULL DEFAULT 0"};
+    }
+
     public String[] getColumns(){
         return new String[] {ID, ELEMENT_ID, AXIS_NUM, DEVICE_ADDRESS, DEVICE_PORT_NUM, DISPLAY_ID,
-                DIRECTION_OF_ROTATION};
+                DIRECTION_OF_ROTATION, DEAD_ZONE, EXPO, MIN_OUTPUT, MAX_OUTPUT, SLEW_RATE, INVERTED};
     }
 
     /*public void insertPortConnection(PortConnection portConnection, BaseAppActivity activity){
@@ -123,6 +152,14 @@ public class DatabaseAdapterPortConnections extends DatabaseAdapter{
             }
         }
 
+        ResponseCurve curve = portConnection.getResponseCurve();
+        contentValues.put(DEAD_ZONE, curve.deadZone);
+        contentValues.put(EXPO, curve.expo);
+        contentValues.put(MIN_OUTPUT, curve.minOutput);
+        contentValues.put(MAX_OUTPUT, curve.maxOutput);
+        contentValues.put(SLEW_RATE, curve.slewRate);
+        contentValues.put(INVERTED, curve.isInverted? 1 : 0);
+
         database.update(TABLE_NAME, contentValues, ID + " = " + portConnection.getId(),
                 null);
     }
@@ -158,7 +195,13 @@ public class DatabaseAdapterPortConnections extends DatabaseAdapter{
             devicePortNumIndex = cursor.getColumnIndexOrThrow(DEVICE_PORT_NUM),
             directionIndex = cursor.getColumnIndexOrThrow(DIRECTION_OF_ROTATION),
             deviceAddressIndex = cursor.getColumnIndexOrThrow(DEVICE_ADDRESS),
-            idIndex = cursor.getColumnIndexOrThrow(ID);
+            idIndex = cursor.getColumnIndexOrThrow(ID),
+            deadZoneIndex = cursor.getColumnIndexOrThrow(DEAD_ZONE),
+            expoIndex = cursor.getColumnIndexOrThrow(EXPO),
+            minOutputIndex = cursor.getColumnIndexOrThrow(MIN_OUTPUT),
+            maxOutputIndex = cursor.getColumnIndexOrThrow(MAX_OUTPUT),
+            slewRateIndex = cursor.getColumnIndexOrThrow(SLEW_RATE),
+            invertedIndex = cursor.getColumnIndexOrThrow(INVERTED);
         while (cursor.moveToNext()){
             id = cursor.getLong(idIndex);
             axisNum = cursor.getInt(axisNumIndex);
@@ -184,7 +227,13 @@ public class DatabaseAdapterPortConnections extends DatabaseAdapter{
                 BaseControlElement element = GameControllersDrawer.getElementByID(elementID);
                 axis = element == null? null : element.getControllerAxes().get(axisNum);
             }
-            portConnections.add(new PortConnection(id, displayID, hub, port, axis));
+            PortConnection portConnection = new PortConnection(id, displayID, hub, port, axis);
+            ResponseCurve curve = new ResponseCurve(cursor.getInt(deadZoneIndex),
+                    cursor.getInt(expoIndex), cursor.getInt(minOutputIndex),
+                    cursor.getInt(maxOutputIndex), cursor.getInt(slewRateIndex),
+                    cursor.getInt(invertedIndex) != 0);
+            portConnection.setResponseCurve(curve.isLinear()? ResponseCurve.LINEAR : curve);
+            portConnections.add(portConnection);
             //controlledPort.hubAddress = cursor.getString(cursor.getColumnIndexOrThrow(DEVICE_ADDRESS));
         }
         return portConnections;
@@ -6,7 +6,7 @@ import android.database.sqlite.SQLiteOpenHelper;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "RCBLE.db"; // название бд
-    private static final int ActualVersion = 1; // версия базы данных
+    private static final int ActualVersion = 2; // версия базы данных
     protected final Context context;
 
     public DatabaseHelper(Context context){
@@ -24,5 +24,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion){}
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion){
+        if (oldVersion < 2) DatabaseAdapterPortConnections.upgradeToVersion2(db);
+    }
 }
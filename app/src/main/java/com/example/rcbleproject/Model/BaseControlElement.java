@@ -4,12 +4,14 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
-import android.graphics.Paint;
+import android.graphics.Color;
 import android.graphics.Path;
-import android.graphics.PointF;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.view.MotionEvent;
 
 import com.example.rcbleproject.GridParams;
+import com.example.rcbleproject.Layout.ElementSpatialIndex;
 import com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu.ProfileControlActivity;
 import com.example.rcbleproject.R;
 import com.example.rcbleproject.ViewAndPresenter.SettingPortConnectionsMenu.BaseParam;
@@ -20,7 +22,7 @@ import java.util.ArrayList;
  * Класс BaseControlElement содержит поля и методы для взаимодействия с элементом управления
  */
 
-public abstract class BaseControlElement {
+public abstract class BaseControlElement implements ElementSpatialIndex.IElement {
 
     /**
      * Класс ControllerAxis включает поля и методы для взаимодействия с осью, как с базовым
@@ -35,6 +37,9 @@ public abstract class BaseControlElement {
         private final String axisName;
 
         public volatile int axisValue = 0;
+        public volatile long inputTime = 0;     // время касания, изменившего значение, нс
+        public volatile long changeTime = 0;    // время изменения значения, нс (System.nanoTime)
+        private volatile IAxisValueListener axisValueListener = null;
 
         public ControllerAxis(BaseControlElement parent, String axisName, int axisNum, boolean hideAxisName){
             this.parent = parent;
@@ -43,6 +48,27 @@ public abstract class BaseControlElement {
             this.axisNum = axisNum;
         }
 
+        /**
+         * Устанавливает новое значение оси и уведомляет слушателя, если значение изменилось.
+         * @param newAxisValue - новое значение оси.
+         */
+        public void setAxisValue(int newAxisValue){
+            if (axisValue == newAxisValue) return;
+            inputTime = parent.inputEventTime;
+            changeTime = System.nanoTime();
+            axisValue = newAxisValue;
+            IAxisValueListener listener = axisValueListener;
+            if (listener != null) listener.onAxisValueChanged(this);
+        }
+
+        /**
+         * Устанавливает слушателя изменений значения оси.
+         * @param listener - слушатель изменений; null - чтобы отписать текущего слушателя.
+         */
+        public void setAxisValueListener(IAxisValueListener listener){
+            axisValueListener = listener;
+        }
+
         @Override
         public String getName(){
             return axisName;
@@ -72,6 +98,9 @@ public abstract class BaseControlElement {
     public volatile int elementSize;            // коэффициент размера элемента управления
     public volatile int elementIndex;           // индекс элемента в списке элементов дисплея
     public volatile boolean isElementLocked;    // флаг блокировки элемента управления
+    // время текущего события касания элемента, нс; часы MotionEvent.getEventTime()
+    // (uptimeMillis) и System.nanoTime() в Android совпадают (CLOCK_MONOTONIC)
+    public volatile long inputEventTime = 0;
 
 
     public enum ControlElementType {JOYSTICK_XY, JOYSTICK_X, JOYSTICK_Y, BUTTON, IMAGE, UNKNOWN}
@@ -84,6 +113,20 @@ public abstract class BaseControlElement {
 
     protected String strResource = "";          // поле для хранения строкового ресурса элемента
 
+    protected final int colorBoard,             // цвет табличек элемента без фокуса
+                        colorFocusedBoard;      // цвет табличек элемента в фокусе
+    protected final Rect textBounds = new Rect();  // границы надписи для расчета табличек
+    private String numLabel;                    // надпись с номером элемента
+    private int numLabelIndex;                  // индекс, для которого построена надпись numLabel
+
+    private Bitmap staticLayer;                 // кэш статичного слоя элемента (контур, таблички)
+    private final Canvas staticLayerCanvas = new Canvas();
+    private final RectF staticLayerBounds = new RectF();
+    private final RectF hitBounds = new RectF();     // границы для индекса поиска (главный поток)
+    private float staticLayerLeft, staticLayerTop;  // смещение кэша относительно центра элемента
+    private int staticLayerKey;                 // состояние, по которому построен кэш
+    private volatile boolean isStaticLayerValid = false;
+
     public boolean focus = false;               // флаг присутствия фокуса на элементе управления
 
     /**
@@ -109,6 +152,8 @@ public abstract class BaseControlElement {
         this.elementSize = elementSize;
         this.isElementLocked = isElementLocked;
         controllerAxes = new ArrayList<>();
+        colorBoard = context.getColor(R.color.white);
+        colorFocusedBoard = context.getColor(R.color.yellow);
 
         bitmapLock = BitmapFactory.decodeResource(context.getResources(), R.drawable.baseline_lock_black_18);
         bitmapSettings = BitmapFactory.decodeResource(context.getResources(), R.drawable.settings_black);
@@ -148,6 +193,81 @@ public abstract class BaseControlElement {
      */
     public abstract void onDraw(Canvas canvas, ProfileControlActivity.MODE_TYPE mode);
 
+    /**
+     * Отрисовывает статичную часть элемента (контур, указатели, таблички номера, настроек
+     * и блокировки) в текущих координатах элемента. Результат кэшируется в растровом
+     * изображении, поэтому метод вызывается только при перестроении кэша.
+     * @param canvas - холст для отрисовки статичного слоя.
+     * @param mode - режим работы с профилем управления.
+     */
+    protected abstract void onDrawStaticLayer(Canvas canvas, ProfileControlActivity.MODE_TYPE mode);
+
+    /**
+     * Возвращает границы статичного слоя элемента в текущих координатах.
+     * @param bounds - прямоугольник, в который записываются границы.
+     */
+    protected abstract void getStaticLayerBounds(RectF bounds);
+
+    /**
+     * Отрисовывает статичный слой элемента из кэша. Кэш перестраивается, только если изменились
+     * режим, фокус, блокировка, номер или размер элемента либо кэш сброшен
+     * invalidateStaticLayer(). При перемещении элемента кэш лишь рисуется в новых координатах.
+     * @param canvas - холст для отрисовки элемента.
+     * @param mode - режим работы с профилем управления.
+     */
+    protected void drawStaticLayer(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
+        int key = (elementSize << 16) ^ (elementIndex << 3) ^ (mode.ordinal() << 2)
+                ^ (focus? 2 : 0) ^ (isElementLocked? 1 : 0);
+        if (!isStaticLayerValid || staticLayer == null || key != staticLayerKey)
+            buildStaticLayer(mode, key);
+        if (staticLayer == null) return;
+        canvas.drawBitmap(staticLayer, posX + staticLayerLeft, posY + staticLayerTop, null);
+    }
+
+    /**
+     * Возвращает границы элемента вместе с табличками. Область касания (contains)
+     * лежит внутри этих границ.
+     * @param bounds - массив {left, top, right, bottom}, в который записываются границы.
+     */
+    @Override
+    public void getBounds(float[] bounds){
+        getStaticLayerBounds(hitBounds);
+        bounds[0] = hitBounds.left;
+        bounds[1] = hitBounds.top;
+        bounds[2] = hitBounds.right;
+        bounds[3] = hitBounds.bottom;
+    }
+
+    /**
+     * Сбрасывает кэш статичного слоя (например, после смены изображения элемента).
+     */
+    protected void invalidateStaticLayer(){ isStaticLayerValid = false; }
+
+    private void buildStaticLayer(ProfileControlActivity.MODE_TYPE mode, int key){
+        getStaticLayerBounds(staticLayerBounds);
+        float left = (float) Math.floor(staticLayerBounds.left) - 1;
+        float top = (float) Math.floor(staticLayerBounds.top) - 1;
+        int width = (int) Math.ceil(staticLayerBounds.right - left) + 1;
+        int height = (int) Math.ceil(staticLayerBounds.bottom - top) + 1;
+        if (width <= 0 || height <= 0) return;
+        if (staticLayer == null || staticLayer.getWidth() != width
+                || staticLayer.getHeight() != height){
+            if (staticLayer != null) staticLayer.recycle();
+            staticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            staticLayerCanvas.setBitmap(staticLayer);
+        }
+        else staticLayer.eraseColor(Color.TRANSPARENT);
+
+        staticLayerCanvas.save();
+        staticLayerCanvas.translate(-left, -top);
+        onDrawStaticLayer(staticLayerCanvas, mode);
+        staticLayerCanvas.restore();
+        staticLayerLeft = left - posX;
+        staticLayerTop = top - posY;
+        staticLayerKey = key;
+        isStaticLayerValid = true;
+    }
+
     /**
      * Определяет находится ли указатель на элементе управления по координатам указателя.
      * @param pointerX - координата X указателя.
@@ -217,22 +337,35 @@ public abstract class BaseControlElement {
     protected float square(float value){ return value*value; }
 
     /**
-     * По заданным точкам p1, p2, p3 строит треугольник в экзепляре canvas
-     * @param canvas - полотно для отрисовки в surface
-     * @param paint - параметры отрисовки
-     * @param p1 - 1-я вершина треугольника
-     * @param p2 - 2-я вершина треугольника
-     * @param p3 - 3-я вершина треугольника
+     * Перестраивает контур path в треугольник с заданными вершинами. Контур переиспользуется,
+     * поэтому при перемещении элемента новые объекты не создаются.
+     * @param path - контур треугольника.
+     * @param x1, y1 - 1-я вершина треугольника
+     * @param x2, y2 - 2-я вершина треугольника
+     * @param x3, y3 - 3-я вершина треугольника
      */
-    protected void drawTriangle(Canvas canvas, Paint paint, PointF p1, PointF p2, PointF p3){
-        Path path = new Path();
+    protected void setTriangle(Path path, float x1, float y1, float x2, float y2,
+                               float x3, float y3){
+        path.rewind();
         path.setFillType(Path.FillType.EVEN_ODD);
-        path.moveTo(p1.x, p1.y);
-        path.lineTo(p2.x, p2.y);
-        path.lineTo(p3.x, p3.y);
+        path.moveTo(x1, y1);
+        path.lineTo(x2, y2);
+        path.lineTo(x3, y3);
         path.close();
+    }
 
-        canvas.drawPath(path, paint);
+    /**
+     * Возвращает надпись с номером элемента ("#N"). Строка создается заново только
+     * после изменения индекса элемента.
+     * @return надпись с номером элемента.
+     */
+    protected String getNumLabel(){
+        int index = elementIndex;
+        if (numLabel == null || numLabelIndex != index){
+            numLabel = "#" + (index + 1);
+            numLabelIndex = index;
+        }
+        return numLabel;
     }
 
     /**
@@ -5,35 +5,31 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.le.ScanResult;
 import android.content.Context;
 import android.os.ParcelUuid;
-import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
-import com.example.rcbleproject.BuildConfig;
 import com.example.rcbleproject.ViewAndPresenter.BluetoothLeService;
 import com.example.rcbleproject.Container;
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Protocol.HubProtocols;
 import com.example.rcbleproject.Database.DatabaseAdapterForHubs;
 import com.example.rcbleproject.R;
 import com.example.rcbleproject.ViewAndPresenter.SettingPortConnectionsMenu.BaseParam;
-import com.google.android.gms.common.util.ArrayUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
 
 
-public class BluetoothHub implements BaseParam, Comparable<BluetoothHub>{
+public class BluetoothHub implements BaseParam, Comparable<BluetoothHub> {
     public enum HubTypes {PowerFunctionsHub, PoweredUpHub, Unknown}
+    private static final int DEFAULT_NUM_OF_PORTS = 4;
 
     private String name;
     public final String address;
     public final HubTypes hubType;
-    public final UUID serviceUuid;
-    public final UUID characteristicUuid;
-    public long lastTimeAdv;
+    public final HubProtocol protocol;  // null - если тип хаба неизвестен
+    public volatile long lastTimeAdv;
     public volatile boolean isActive = true;
     public volatile boolean availability = false;
     public volatile boolean stateConnection = true;
@@ -43,10 +39,9 @@ public class BluetoothHub implements BaseParam, Comparable<BluetoothHub>{
                         boolean stateConnection) {
         BluetoothDevice device = result.getDevice();
         address = device.getAddress();
-        serviceUuid = getServiceUuid(result, context);
-        hubType = getHubType(context);
+        protocol = getProtocol(result);
+        hubType = protocol == null? HubTypes.Unknown : IntToHubTypes(protocol.getHubTypeId());
         name = loadName(device, context);
-        characteristicUuid = Container.getCharacteristicUUIDs(context).get(hubType);
         this.stateConnection = stateConnection;
     }
 
@@ -55,29 +50,18 @@ public class BluetoothHub implements BaseParam, Comparable<BluetoothHub>{
         this.name = name;
         this.address = address;
         this.hubType = IntToHubTypes(type);
-        serviceUuid = Container.getServiceUUIDs(context).get(hubType);
-        characteristicUuid = Container.getCharacteristicUUIDs(context).get(hubType);
+        protocol = HubProtocols.forHubTypeId(type);
         this.stateConnection = stateConnection;
     }
 
-    @SuppressLint("MissingPermission")
-    private UUID getServiceUuid(ScanResult scanResult, Context context){
-        UUID uuid = null;
+    private HubProtocol getProtocol(ScanResult scanResult){
+        if (scanResult.getScanRecord() == null
+                || scanResult.getScanRecord().getServiceUuids() == null) return null;
         for (ParcelUuid parcelUuid : scanResult.getScanRecord().getServiceUuids()){
-            if (Container.getServiceUUIDs(context).containsValue(parcelUuid.getUuid()))
-                uuid = parcelUuid.getUuid();
-        }
-        return uuid;
-    }
-
-    private HubTypes getHubType(Context context){
-        if (serviceUuid == null) return HubTypes.Unknown;
-        HubTypes type = HubTypes.Unknown;
-        Set<Map.Entry<HubTypes, UUID>> uuidsSet = Container.getServiceUUIDs(context).entrySet();
-        for (Map.Entry<HubTypes, UUID> pair : uuidsSet){
-            if (serviceUuid.equals(pair.getValue())) type = pair.getKey();
+            HubProtocol protocol = HubProtocols.forServiceUuid(parcelUuid.getUuid());
+            if (protocol != null) return protocol;
         }
-        return type;
+        return null;
     }
 
     @SuppressLint("MissingPermission")
@@ -120,20 +104,17 @@ public class BluetoothHub implements BaseParam, Comparable<BluetoothHub>{
     }
     
     public void alarm(BluetoothLeService activity){
-        switch (hubType){
-            case PowerFunctionsHub:
-                activity.writeCharacteristic(this, ("1").getBytes());
-            case PoweredUpHub:
-                new Thread(() -> {
-                    byte[] message = {0x01, 0x00, 0x02, 0x05};
-                    activity.writeCharacteristic(this, message);
-                    try {
-                        Thread.sleep(300);
-                    } catch (InterruptedException e) { e.printStackTrace(); }
-                    message[3] = 0x06;
-                    activity.writeCharacteristic(this, message);
-                }).start();
-        }
+        if (protocol == null) return;
+        byte[] alarmOn = protocol.encodeAlarmOn();
+        byte[] alarmOff = protocol.encodeAlarmOff();
+        if (alarmOn != null) activity.writeCharacteristic(this, alarmOn);
+        if (alarmOff == null) return;
+        new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) { e.printStackTrace(); }
+            activity.writeCharacteristic(this, alarmOff);
+        }).start();
     }
 
     public void setOutputPortTestCommand(BluetoothLeService leService, Port port){
@@ -150,26 +131,19 @@ public class BluetoothHub implements BaseParam, Comparable<BluetoothHub>{
     }
 
     public void setOutputPortCommand(BluetoothLeService leService, Port port){
+        setOutputPortCommand(leService, port, 0, 0);
+    }
+
+    /**
+     * Отправляет значение порта с отметками времени для измерения задержек.
+     * @param inputTime - время касания, вызвавшего команду, нс; 0 - неизвестно.
+     * @param axisTime - время изменения значения оси, нс.
+     */
+    public void setOutputPortCommand(BluetoothLeService leService, Port port, long inputTime,
+                                     long axisTime){
         if (port == null) return;
-        int portNum = port.portNum,
-            speed = port.portValue,
-            direction = port.getDirection();
-        switch (hubType){
-            case PowerFunctionsHub:
-                byte[] gecko_message = {'0', (byte) portNum, 0};
-                speed = (int)(speed * 0.07f + (speed < 0? -0.5 : 0.5));
-                gecko_message[2] = (byte) (Math.min(7, speed*direction));
-                if (BuildConfig.DEBUG)
-                    Log.v("APP_TAG777", "hub: " + address+" " + portNum+" "+speed*direction);
-                leService.writeCharacteristic(this, gecko_message);
-                break;
-            case PoweredUpHub:
-                byte[] pu_message = {0x05, 0x00, (byte) 0x81, (byte) portNum, 0x10, 0x01,
-                        (byte) (speed*direction)};
-                if (BuildConfig.DEBUG)
-                    Log.v("APP_TAG778", "hub: " + address+" " + portNum+" "+speed);
-                leService.writeCharacteristic(this, pu_message);
-        }
+        leService.writePortValue(this, port.portNum, port.portValue * port.getDirection(),
+                inputTime, axisTime);
     }
 
     public void updateHubNameInDB(String newHubName) {
@@ -181,19 +155,14 @@ public class BluetoothHub implements BaseParam, Comparable<BluetoothHub>{
     @SuppressLint("UseCompatLoadingForDrawables")
     public boolean rename(String newName, BluetoothLeService activity){
         name = newName;
-        if (hubType == HubTypes.PoweredUpHub) {
+        if (protocol != null && protocol.getMaxNameLength() > 0) {
             byte[] name = newName.getBytes(StandardCharsets.UTF_8);
-            if (name.length > 14) {
+            if (name.length > protocol.getMaxNameLength()) {
                 String toastText = activity.getResources().getString(R.string.too_long_name);
                 Toast.makeText(activity, toastText, Toast.LENGTH_SHORT).show();
                 return false;
             }
-            new Thread(() -> {
-                byte[] header = {0x02, 0x00, 0x01, 0x01, 0x01};
-                header[0] += name.length;
-                byte[] message = ArrayUtils.concatByteArrays(header, name);
-                activity.writeCharacteristic(this, message);
-            }).start();
+            activity.writeCharacteristic(this, protocol.encodeRename(name));
         }
         return true;
     }
@@ -227,18 +196,12 @@ public class BluetoothHub implements BaseParam, Comparable<BluetoothHub>{
     }
 
     public ArrayList<Port> getPorts(Context context) {
-        ArrayList<Port> ports = new ArrayList<>();
-        ports.add(new Port(context, this, 0, 1));
-        ports.add(new Port(context, this, 0, -1));
-
-        ports.add(new Port(context, this, 1, 1));
-        ports.add(new Port(context, this, 1, -1));
-
-        ports.add(new Port(context, this, 2, 1));
-        ports.add(new Port(context, this, 2, -1));
-
-        ports.add(new Port(context, this, 3, 1));
-        ports.add(new Port(context, this, 3, -1));
+        int numOfPorts = protocol == null? DEFAULT_NUM_OF_PORTS : protocol.getNumOfPorts();
+        ArrayList<Port> ports = new ArrayList<>(numOfPorts * 2);
+        for (int portNum = 0; portNum < numOfPorts; ++portNum){
+            ports.add(new Port(context, this, portNum, 1));
+            ports.add(new Port(context, this, portNum, -1));
+        }
         return ports;
     }
 
@@ -0,0 +1,13 @@
+package com.example.rcbleproject.Model;
+
+/**
+ * Интерфейс IAxisValueListener используется для получения уведомлений об изменении значения
+ * оси элемента управления.
+ */
+public interface IAxisValueListener {
+    /**
+     * Вызывается в потоке, изменившем значение оси.
+     * @param axis - ось, значение которой изменилось.
+     */
+    void onAxisValueChanged(BaseControlElement.ControllerAxis axis);
+}
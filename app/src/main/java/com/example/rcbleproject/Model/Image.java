@@ -13,6 +13,7 @@ import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
@@ -35,7 +36,8 @@ public class Image extends BaseControlElement{
 
     private static class ImageConfig{
         private volatile Bitmap bitmapImage,        // изображение
-                scaledBitmapImage;  // изображение, масштабированное под размеры рамки
+                scaledBitmapImage,  // изображение, масштабированное под размеры рамки
+                scaledSource;       // изображение, из которого получено scaledBitmapImage
         private volatile float hwcoef,       // отношение высоты к ширине изображения
                                left, top;    // параметры для отрисовки
     }
@@ -128,17 +130,28 @@ public class Image extends BaseControlElement{
     }
 
     /**
-     * Отрисовывает элемент управления.
+     * Отрисовывает элемент управления из кэша статичного слоя.
      * @param canvas - холст для отрисовки элемента.
      * @param mode - режим работы с профилем управления:
      *             GAME_MODE - игровой режим;
      *             EDIT_MODE - режим редактирования профиля;
      */
-    @SuppressLint("DrawAllocation")
     @Override
     public void onDraw(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         if (canvas == null ||  paintBackground == null) return;
         if (paintBorder == null) return;
+        drawStaticLayer(canvas, mode);
+    }
+
+    /**
+     * Отрисовывает статичный слой элемента управления: рамку, изображение и таблички.
+     * @param canvas - холст для отрисовки статичного слоя.
+     * @param mode - режим работы с профилем управления:
+     *             GAME_MODE - игровой режим;
+     *             EDIT_MODE - режим редактирования профиля;
+     */
+    @Override
+    protected void onDrawStaticLayer(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         canvas.drawRoundRect(border.left, border.top,
                 border.right, border.bottom,
                 border.cornerRadius, border.cornerRadius, paintBorder);
@@ -151,10 +164,7 @@ public class Image extends BaseControlElement{
 
         if (mode == ProfileControlActivity.MODE_TYPE.EDIT_MODE){
             if (paintTabletBoard == null) return;
-            String num = "#" + (elementIndex+1);
-
-            if (focus) paintTabletBoard.setColor(context.getColor(R.color.yellow));
-            else paintTabletBoard.setColor(context.getColor(R.color.white));
+            paintTabletBoard.setColor(focus? colorFocusedBoard : colorBoard);
             paintBackground.setTextSize(gridParams.step);
 
             if (isElementLocked) {
@@ -170,7 +180,7 @@ public class Image extends BaseControlElement{
                     numBoard.right, numBoard.bottom,
                     numBoard.cornerRadius, numBoard.cornerRadius,
                     paintTabletBoard);
-            canvas.drawText(num, numBoard.x, numBoard.y, paintBackground);
+            canvas.drawText(getNumLabel(), numBoard.x, numBoard.y, paintBackground);
 
             canvas.drawRoundRect(settingsBoard.left, settingsBoard.top,
                     settingsBoard.right, settingsBoard.bottom,
@@ -180,6 +190,18 @@ public class Image extends BaseControlElement{
         }
     }
 
+    /**
+     * Возвращает границы статичного слоя: контур элемента и таблички.
+     * @param bounds - прямоугольник, в который записываются границы.
+     */
+    @Override
+    protected void getStaticLayerBounds(RectF bounds){
+        bounds.set(border.left, border.top, border.right, border.bottom);
+        bounds.union(numBoard.left, numBoard.top, numBoard.right, numBoard.bottom);
+        bounds.union(settingsBoard.left, settingsBoard.top, settingsBoard.right, settingsBoard.bottom);
+        bounds.union(lockBoard.left, lockBoard.top, lockBoard.right, lockBoard.bottom);
+    }
+
     /**
      * Определяет находится ли указатель на элементе управления по координатам указателя.
      * @param pointerX - координата X указателя.
@@ -255,8 +277,8 @@ public class Image extends BaseControlElement{
         border.top = posY - height / 2;
         border.bottom = posY + height / 2;
 
-        String num = "#" + (elementIndex+1);
-        Rect boundsNum = new Rect();
+        String num = getNumLabel();
+        Rect boundsNum = textBounds;
         paintBackground.getTextBounds(num, 0, num.length(), boundsNum);
         numBoard.right = posX - gridParams.step*0.5f;
         numBoard.left = numBoard.right - boundsNum.width() - gridParams.step;
@@ -288,8 +310,16 @@ public class Image extends BaseControlElement{
     private void recalculateImageConfigParams(){
         int newWidthImg = (int)(width - 4),
                 newHeightImg = (int)(height - 4);
-        imageConfig.scaledBitmapImage = Bitmap.createScaledBitmap(imageConfig.bitmapImage,
-                newWidthImg, newHeightImg, false);
+        Bitmap scaledBitmapImage = imageConfig.scaledBitmapImage;
+        // при перемещении элемента размеры не меняются - изображение не масштабируется заново
+        if (scaledBitmapImage == null || imageConfig.scaledSource != imageConfig.bitmapImage
+                || scaledBitmapImage.getWidth() != newWidthImg
+                || scaledBitmapImage.getHeight() != newHeightImg){
+            imageConfig.scaledBitmapImage = Bitmap.createScaledBitmap(imageConfig.bitmapImage,
+                    newWidthImg, newHeightImg, false);
+            imageConfig.scaledSource = imageConfig.bitmapImage;
+            invalidateStaticLayer();
+        }
         imageConfig.left = posX - (float) imageConfig.scaledBitmapImage.getWidth()/2;
         imageConfig.top = posY - (float) imageConfig.scaledBitmapImage.getHeight()/2;
     }
@@ -2,12 +2,12 @@ package com.example.rcbleproject.Model;
 
 import static java.lang.Math.abs;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.PointF;
+import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.view.MotionEvent;
 
 import com.example.rcbleproject.GridParams;
@@ -39,11 +39,7 @@ public class JoystickX extends BaseControlElement{
     private Board numBoard, lockBoard, // Параметры табличек для номера и с "замком"
             border, settingsBoard;     // Параметры границы элемента и таблички настроек
 
-    private class Triangle {
-        public PointF p1, p2, p3;
-    }
-
-    private Triangle leftArrow, rightArrow;      // Координаты точек треугольных указателей
+    private final Path leftArrow = new Path(), rightArrow = new Path();  // контуры треугольных указателей
 
     public volatile float deltaX, deltaY;
 
@@ -87,9 +83,6 @@ public class JoystickX extends BaseControlElement{
         border = new Board();
         settingsBoard = new Board();
 
-        leftArrow = new Triangle();
-        rightArrow = new Triangle();
-
         setElementSize(elementSize);
         if (isGridVisible) alignToTheGrid();
     }
@@ -131,17 +124,30 @@ public class JoystickX extends BaseControlElement{
     }
 
     /**
-     * Отрисовывает элемент управления.
+     * Отрисовывает элемент управления: статичный слой - из кэша, стик - на каждом кадре.
      * @param canvas - холст для отрисовки элемента.
      * @param mode - режим работы с профилем управления:
      *             GAME_MODE - игровой режим;
      *             EDIT_MODE - режим редактирования профиля;
      */
-    @SuppressLint("DrawAllocation")
     @Override
     public void onDraw(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         if (canvas == null || paintArrowAndStick == null || paintBackground == null) return;
         if (paintBorder == null) return;
+        drawStaticLayer(canvas, mode);
+        if (mode != ProfileControlActivity.MODE_TYPE.EDIT_MODE)
+            canvas.drawCircle(stickPosX, stickPosY, stickRadius, paintArrowAndStick);
+    }
+
+    /**
+     * Отрисовывает статичный слой элемента управления (все, кроме стика).
+     * @param canvas - холст для отрисовки статичного слоя.
+     * @param mode - режим работы с профилем управления:
+     *             GAME_MODE - игровой режим;
+     *             EDIT_MODE - режим редактирования профиля;
+     */
+    @Override
+    protected void onDrawStaticLayer(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         canvas.drawRoundRect(border.left, border.top,
                              border.right, border.bottom,
                              border.cornerRadius, border.cornerRadius, paintBorder);
@@ -149,15 +155,12 @@ public class JoystickX extends BaseControlElement{
                             border.right - 1, border.bottom - 1,
                               border.cornerRadius - 1, border.cornerRadius - 1,
                                  paintBackground);
-        drawTriangle(canvas, paintArrowAndStick, leftArrow.p1, leftArrow.p2, leftArrow.p3);
-        drawTriangle(canvas, paintArrowAndStick, rightArrow.p1, rightArrow.p2, rightArrow.p3);
+        canvas.drawPath(leftArrow, paintArrowAndStick);
+        canvas.drawPath(rightArrow, paintArrowAndStick);
 
         if (mode == ProfileControlActivity.MODE_TYPE.EDIT_MODE){
             if (paintTabletBoard == null) return;
-            String num = "#" + (elementIndex+1);
-
-            if (focus) paintTabletBoard.setColor(context.getColor(R.color.yellow));
-            else paintTabletBoard.setColor(context.getColor(R.color.white));
+            paintTabletBoard.setColor(focus? colorFocusedBoard : colorBoard);
             paintBackground.setTextSize(gridParams.step);
 
             if (isElementLocked) {
@@ -173,7 +176,7 @@ public class JoystickX extends BaseControlElement{
                     numBoard.right, numBoard.bottom,
                     numBoard.cornerRadius, numBoard.cornerRadius,
                     paintTabletBoard);
-            canvas.drawText(num, numBoard.x, numBoard.y, paintBackground);
+            canvas.drawText(getNumLabel(), numBoard.x, numBoard.y, paintBackground);
 
             canvas.drawRoundRect(settingsBoard.left, settingsBoard.top,
                     settingsBoard.right, settingsBoard.bottom,
@@ -181,9 +184,18 @@ public class JoystickX extends BaseControlElement{
                     paintTabletBoard);
             canvas.drawBitmap(bitmapSettings, settingsBoard.x, settingsBoard.y, paintBackground);
         }
-        else {
-            canvas.drawCircle(stickPosX, stickPosY, stickRadius, paintArrowAndStick);
-        }
+    }
+
+    /**
+     * Возвращает границы статичного слоя: контур элемента и таблички.
+     * @param bounds - прямоугольник, в который записываются границы.
+     */
+    @Override
+    protected void getStaticLayerBounds(RectF bounds){
+        bounds.set(border.left, border.top, border.right, border.bottom);
+        bounds.union(numBoard.left, numBoard.top, numBoard.right, numBoard.bottom);
+        bounds.union(settingsBoard.left, settingsBoard.top, settingsBoard.right, settingsBoard.bottom);
+        bounds.union(lockBoard.left, lockBoard.top, lockBoard.right, lockBoard.bottom);
     }
 
     /**
@@ -263,8 +275,8 @@ public class JoystickX extends BaseControlElement{
         border.bottom = posY + stickRadius;
         border.cornerRadius = stickRadius;
 
-        String num = "#" + (elementIndex+1);
-        Rect boundsNum = new Rect();
+        String num = getNumLabel();
+        Rect boundsNum = textBounds;
         paintBackground.getTextBounds(num, 0, num.length(), boundsNum);
         numBoard.right = posX - gridParams.step*1.75f;
         numBoard.left = numBoard.right - boundsNum.width() - gridParams.step;
@@ -290,13 +302,13 @@ public class JoystickX extends BaseControlElement{
         settingsBoard.x = settingsBoard.left + gridParams.step*0.5f;
         settingsBoard.y = posY - bitmapSettings.getHeight() / 2.f;
 
-        leftArrow.p1 = new PointF(posX-width/2+3*stickRadius*0.1f, posY);
-        leftArrow.p2 = new PointF(posX-width/2+3*stickRadius*0.2f, posY+3*stickRadius*0.1f);
-        leftArrow.p3 = new PointF(posX-width/2+3*stickRadius*0.2f, posY-3*stickRadius*0.1f);
+        setTriangle(leftArrow, posX-width/2+3*stickRadius*0.1f, posY,
+                    posX-width/2+3*stickRadius*0.2f, posY+3*stickRadius*0.1f,
+                    posX-width/2+3*stickRadius*0.2f, posY-3*stickRadius*0.1f);
 
-        rightArrow.p1 = new PointF(posX+width/2-3*stickRadius*0.1f, posY);
-        rightArrow.p2 = new PointF(posX+width/2-3*stickRadius*0.2f, posY+3*stickRadius*0.1f);
-        rightArrow.p3 = new PointF(posX+width/2-3*stickRadius*0.2f, posY-3*stickRadius*0.1f);
+        setTriangle(rightArrow, posX+width/2-3*stickRadius*0.1f, posY,
+                    posX+width/2-3*stickRadius*0.2f, posY+3*stickRadius*0.1f,
+                    posX+width/2-3*stickRadius*0.2f, posY-3*stickRadius*0.1f);
     }
 
     /**
@@ -317,7 +329,7 @@ public class JoystickX extends BaseControlElement{
                 pointerID = -1;
                 stickPosX = posX;
                 stickPosY = posY;
-                controllerAxes.get(0).axisValue = 0;
+                controllerAxes.get(0).setAxisValue(0);
             }
             return;
         }
@@ -338,7 +350,7 @@ public class JoystickX extends BaseControlElement{
                 stickPosX = posX + (halfWidth - stickRadius);
         }
 
-        controllerAxes.get(0).axisValue = (int)((posX - stickPosX)/(halfWidth - stickRadius)*100);
+        controllerAxes.get(0).setAxisValue((int)((posX - stickPosX)/(halfWidth - stickRadius)*100));
     }
 
     /**
@@ -2,12 +2,12 @@ package com.example.rcbleproject.Model;
 
 import static java.lang.Math.abs;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.PointF;
+import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.util.Log;
 import android.view.MotionEvent;
 
@@ -38,12 +38,10 @@ public class JoystickXY extends BaseControlElement{
 
     private Board numBoard, settingsBoard, lockBoard ;  // Параметры табличек для номера, настроек и с "замком"
 
-    private class Triangle {
-        public PointF p1, p2, p3;
-    }
-
-    private Triangle upArrow, downArrow,         // Координаты точек треугольных указателей
-                     leftArrow, rightArrow;
+    private final Path upArrow = new Path(),
+                       downArrow = new Path(),
+                       leftArrow = new Path(),
+                       rightArrow = new Path();  // контуры треугольных указателей
 
     public volatile float deltaX, deltaY;
 
@@ -96,11 +94,6 @@ public class JoystickXY extends BaseControlElement{
         lockBoard = new Board();
         settingsBoard = new Board();
 
-        upArrow = new Triangle();
-        downArrow = new Triangle();
-        leftArrow = new Triangle();
-        rightArrow = new Triangle();
-
         setElementSize(elementSize);
         if (isGridVisible) alignToTheGrid();
     }
@@ -142,30 +135,40 @@ public class JoystickXY extends BaseControlElement{
     }
 
     /**
-     * Отрисовывает элемент управления.
+     * Отрисовывает элемент управления: статичный слой - из кэша, стик - на каждом кадре.
      * @param canvas - холст для отрисовки элемента.
      * @param mode - режим работы с профилем управления:
      *             GAME_MODE - игровой режим;
      *             EDIT_MODE - режим редактирования профиля;
      */
-    @SuppressLint("DrawAllocation")
     @Override
     public void onDraw(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         if (canvas == null || paintArrowAndStick == null || paintBackground == null) return;
         if (paintBorder == null) return;
+        drawStaticLayer(canvas, mode);
+        if (mode != ProfileControlActivity.MODE_TYPE.EDIT_MODE)
+            canvas.drawCircle(stickPosX, stickPosY, stickRadius, paintArrowAndStick);
+    }
+
+    /**
+     * Отрисовывает статичный слой элемента управления (все, кроме стика).
+     * @param canvas - холст для отрисовки статичного слоя.
+     * @param mode - режим работы с профилем управления:
+     *             GAME_MODE - игровой режим;
+     *             EDIT_MODE - режим редактирования профиля;
+     */
+    @Override
+    protected void onDrawStaticLayer(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         canvas.drawCircle(posX, posY, radius, paintBorder);
         canvas.drawCircle(posX, posY, radius - 1, paintBackground);
-        drawTriangle(canvas, paintArrowAndStick, upArrow.p1, upArrow.p2, upArrow.p3);
-        drawTriangle(canvas, paintArrowAndStick, downArrow.p1, downArrow.p2, downArrow.p3);
-        drawTriangle(canvas, paintArrowAndStick, leftArrow.p1, leftArrow.p2, leftArrow.p3);
-        drawTriangle(canvas, paintArrowAndStick, rightArrow.p1, rightArrow.p2, rightArrow.p3);
+        canvas.drawPath(upArrow, paintArrowAndStick);
+        canvas.drawPath(downArrow, paintArrowAndStick);
+        canvas.drawPath(leftArrow, paintArrowAndStick);
+        canvas.drawPath(rightArrow, paintArrowAndStick);
 
         if (mode == ProfileControlActivity.MODE_TYPE.EDIT_MODE){
             if (paintTabletBoard == null) return;
-            String num = "#" + (elementIndex+1);
-
-            if (focus) paintTabletBoard.setColor(context.getColor(R.color.yellow));
-            else paintTabletBoard.setColor(context.getColor(R.color.white));
+            paintTabletBoard.setColor(focus? colorFocusedBoard : colorBoard);
 
             if (isElementLocked) {
                 canvas.drawRoundRect(lockBoard.left, lockBoard.top,
@@ -180,7 +183,7 @@ public class JoystickXY extends BaseControlElement{
                                  numBoard.right, numBoard.bottom,
                                  numBoard.cornerRadius, numBoard.cornerRadius,
                                  paintTabletBoard);
-            canvas.drawText(num, numBoard.x, numBoard.y, paintBackground);
+            canvas.drawText(getNumLabel(), numBoard.x, numBoard.y, paintBackground);
 
             canvas.drawRoundRect(settingsBoard.left, settingsBoard.top,
                                  settingsBoard.right, settingsBoard.bottom,
@@ -188,9 +191,18 @@ public class JoystickXY extends BaseControlElement{
                                  paintTabletBoard);
             canvas.drawBitmap(bitmapSettings, settingsBoard.x, settingsBoard.y, paintBackground);
         }
-        else {
-            canvas.drawCircle(stickPosX, stickPosY, stickRadius, paintArrowAndStick);
-        }
+    }
+
+    /**
+     * Возвращает границы статичного слоя: контур элемента и таблички.
+     * @param bounds - прямоугольник, в который записываются границы.
+     */
+    @Override
+    protected void getStaticLayerBounds(RectF bounds){
+        bounds.set(posX - radius, posY - radius, posX + radius, posY + radius);
+        bounds.union(numBoard.left, numBoard.top, numBoard.right, numBoard.bottom);
+        bounds.union(settingsBoard.left, settingsBoard.top, settingsBoard.right, settingsBoard.bottom);
+        bounds.union(lockBoard.left, lockBoard.top, lockBoard.right, lockBoard.bottom);
     }
 
     /**
@@ -263,8 +275,8 @@ public class JoystickXY extends BaseControlElement{
     private void recalculateJoystickParams(){
         if (paintBackground == null) return;
 
-        String num = "#" + (elementIndex+1);
-        Rect boundsNum = new Rect();
+        String num = getNumLabel();
+        Rect boundsNum = textBounds;
         paintBackground.getTextBounds(num, 0, num.length(), boundsNum);
         numBoard.right = posX - gridParams.step*0.5f;
         numBoard.left = numBoard.right - boundsNum.width() - gridParams.step;
@@ -290,21 +302,21 @@ public class JoystickXY extends BaseControlElement{
         lockBoard.x = lockBoard.left + gridParams.step*0.5f;
         lockBoard.y = lockBoard.top + gridParams.step*0.75f - bitmapLock.getHeight() / 2.f;
 
-        upArrow.p1 = new PointF(posX, posY-radius*0.95f);
-        upArrow.p2 = new PointF(posX-radius*0.1f, posY-radius*0.85f);
-        upArrow.p3 = new PointF(posX+radius*0.1f, posY-radius*0.85f);
+        setTriangle(upArrow, posX, posY-radius*0.95f,
+                    posX-radius*0.1f, posY-radius*0.85f,
+                    posX+radius*0.1f, posY-radius*0.85f);
 
-        downArrow.p1 = new PointF(posX, posY+radius*0.95f);
-        downArrow.p2 = new PointF(posX-radius*0.1f, posY+radius*0.85f);
-        downArrow.p3 = new PointF(posX+radius*0.1f, posY+radius*0.85f);
+        setTriangle(downArrow, posX, posY+radius*0.95f,
+                    posX-radius*0.1f, posY+radius*0.85f,
+                    posX+radius*0.1f, posY+radius*0.85f);
 
-        leftArrow.p1 = new PointF(posX-radius*0.95f, posY);
-        leftArrow.p2 = new PointF(posX-radius*0.85f, posY+radius*0.1f);
-        leftArrow.p3 = new PointF(posX-radius*0.85f, posY-radius*0.1f);
+        setTriangle(leftArrow, posX-radius*0.95f, posY,
+                    posX-radius*0.85f, posY+radius*0.1f,
+                    posX-radius*0.85f, posY-radius*0.1f);
 
-        rightArrow.p1 = new PointF(posX+radius*0.95f, posY);
-        rightArrow.p2 = new PointF(posX+radius*0.85f, posY+radius*0.1f);
-        rightArrow.p3 = new PointF(posX+radius*0.85f, posY-radius*0.1f);
+        setTriangle(rightArrow, posX+radius*0.95f, posY,
+                    posX+radius*0.85f, posY+radius*0.1f,
+                    posX+radius*0.85f, posY-radius*0.1f);
     }
 
     /**
@@ -325,7 +337,7 @@ public class JoystickXY extends BaseControlElement{
                 pointerID = -1;
                 stickPosX = posX;
                 stickPosY = posY;
-                for (ControllerAxis axis : controllerAxes) axis.axisValue = 0;
+                for (ControllerAxis axis : controllerAxes) axis.setAxisValue(0);
             }
             return;
         }
@@ -355,8 +367,8 @@ public class JoystickXY extends BaseControlElement{
                 stickPosY = posY + (radius - stickRadius);
         }
 
-        controllerAxes.get(0).axisValue = (int)((posX - stickPosX)/(radius - stickRadius)*100);
-        controllerAxes.get(1).axisValue = (int)((posY - stickPosY)/(radius - stickRadius)*100);
+        controllerAxes.get(0).setAxisValue((int)((posX - stickPosX)/(radius - stickRadius)*100));
+        controllerAxes.get(1).setAxisValue((int)((posY - stickPosY)/(radius - stickRadius)*100));
     }
 
     /**
@@ -2,12 +2,12 @@ package com.example.rcbleproject.Model;
 
 import static java.lang.Math.abs;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.PointF;
+import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.util.Log;
 import android.view.MotionEvent;
 
@@ -40,11 +40,7 @@ public class JoystickY extends BaseControlElement{
     private Board numBoard, lockBoard, // Параметры табличек для номера и с "замком"
             border, settingsBoard;     // Параметры границы элемента и таблички настроек
 
-    private class Triangle {
-        public PointF p1, p2, p3;
-    }
-
-    private Triangle upArrow, downArrow;      // Координаты точек треугольных указателей
+    private final Path upArrow = new Path(), downArrow = new Path();  // контуры треугольных указателей
 
     public volatile float deltaX, deltaY;
 
@@ -88,9 +84,6 @@ public class JoystickY extends BaseControlElement{
         border = new Board();
         settingsBoard = new Board();
 
-        upArrow = new Triangle();
-        downArrow = new Triangle();
-
         setElementSize(elementSize);
         if (isGridVisible) alignToTheGrid();
     }
@@ -132,17 +125,30 @@ public class JoystickY extends BaseControlElement{
     }
 
     /**
-     * Отрисовывает элемент управления.
+     * Отрисовывает элемент управления: статичный слой - из кэша, стик - на каждом кадре.
      * @param canvas - холст для отрисовки элемента.
      * @param mode - режим работы с профилем управления:
      *             GAME_MODE - игровой режим;
      *             EDIT_MODE - режим редактирования профиля;
      */
-    @SuppressLint("DrawAllocation")
     @Override
     public void onDraw(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         if (canvas == null || paintArrowAndStick == null || paintBackground == null) return;
         if (paintBorder == null) return;
+        drawStaticLayer(canvas, mode);
+        if (mode != ProfileControlActivity.MODE_TYPE.EDIT_MODE)
+            canvas.drawCircle(stickPosX, stickPosY, stickRadius, paintArrowAndStick);
+    }
+
+    /**
+     * Отрисовывает статичный слой элемента управления (все, кроме стика).
+     * @param canvas - холст для отрисовки статичного слоя.
+     * @param mode - режим работы с профилем управления:
+     *             GAME_MODE - игровой режим;
+     *             EDIT_MODE - режим редактирования профиля;
+     */
+    @Override
+    protected void onDrawStaticLayer(Canvas canvas, ProfileControlActivity.MODE_TYPE mode){
         canvas.drawRoundRect(border.left, border.top,
                              border.right, border.bottom,
                              border.cornerRadius, border.cornerRadius, paintBorder);
@@ -150,15 +156,12 @@ public class JoystickY extends BaseControlElement{
                             border.right - 1, border.bottom - 1,
                               border.cornerRadius - 1, border.cornerRadius - 1,
                                  paintBackground);
-        drawTriangle(canvas, paintArrowAndStick, upArrow.p1, upArrow.p2, upArrow.p3);
-        drawTriangle(canvas, paintArrowAndStick, downArrow.p1, downArrow.p2, downArrow.p3);
+        canvas.drawPath(upArrow, paintArrowAndStick);
+        canvas.drawPath(downArrow, paintArrowAndStick);
 
         if (mode == ProfileControlActivity.MODE_TYPE.EDIT_MODE){
             if (paintTabletBoard == null) return;
-            String num = "#" + (elementIndex+1);
-
-            if (focus) paintTabletBoard.setColor(context.getColor(R.color.yellow));
-            else paintTabletBoard.setColor(context.getColor(R.color.white));
+            paintTabletBoard.setColor(focus? colorFocusedBoard : colorBoard);
             paintBackground.setTextSize(gridParams.step);
 
             if (isElementLocked) {
@@ -174,7 +177,7 @@ public class JoystickY extends BaseControlElement{
                     numBoard.right, numBoard.bottom,
                     numBoard.cornerRadius, numBoard.cornerRadius,
                     paintTabletBoard);
-            canvas.drawText(num, numBoard.x, numBoard.y, paintBackground);
+            canvas.drawText(getNumLabel(), numBoard.x, numBoard.y, paintBackground);
 
             canvas.drawRoundRect(settingsBoard.left, settingsBoard.top,
                     settingsBoard.right, settingsBoard.bottom,
@@ -182,9 +185,18 @@ public class JoystickY extends BaseControlElement{
                     paintTabletBoard);
             canvas.drawBitmap(bitmapSettings, settingsBoard.x, settingsBoard.y, paintBackground);
         }
-        else {
-            canvas.drawCircle(stickPosX, stickPosY, stickRadius, paintArrowAndStick);
-        }
+    }
+
+    /**
+     * Возвращает границы статичного слоя: контур элемента и таблички.
+     * @param bounds - прямоугольник, в который записываются границы.
+     */
+    @Override
+    protected void getStaticLayerBounds(RectF bounds){
+        bounds.set(border.left, border.top, border.right, border.bottom);
+        bounds.union(numBoard.left, numBoard.top, numBoard.right, numBoard.bottom);
+        bounds.union(settingsBoard.left, settingsBoard.top, settingsBoard.right, settingsBoard.bottom);
+        bounds.union(lockBoard.left, lockBoard.top, lockBoard.right, lockBoard.bottom);
     }
 
     /**
@@ -264,8 +276,8 @@ public class JoystickY extends BaseControlElement{
         border.bottom = posY + height/2;
         border.cornerRadius = stickRadius;
 
-        String num = "#" + (elementIndex+1);
-        Rect boundsNum = new Rect();
+        String num = getNumLabel();
+        Rect boundsNum = textBounds;
         paintBackground.getTextBounds(num, 0, num.length(), boundsNum);
         numBoard.right = posX + (boundsNum.width() + gridParams.step)/2.f;
         numBoard.left = numBoard.right - boundsNum.width() - gridParams.step;
@@ -291,13 +303,13 @@ public class JoystickY extends BaseControlElement{
         settingsBoard.x = settingsBoard.left + gridParams.step*0.5f;
         settingsBoard.y = (settingsBoard.top + settingsBoard.bottom)/2 - bitmapSettings.getHeight()/2f;
 
-        upArrow.p1 = new PointF(posX, posY-height/2+3*stickRadius*0.1f);
-        upArrow.p2 = new PointF(posX+3*stickRadius*0.1f, posY-height/2+3*stickRadius*0.2f);
-        upArrow.p3 = new PointF(posX-3*stickRadius*0.1f, posY-height/2+3*stickRadius*0.2f);
+        setTriangle(upArrow, posX, posY-height/2+3*stickRadius*0.1f,
+                    posX+3*stickRadius*0.1f, posY-height/2+3*stickRadius*0.2f,
+                    posX-3*stickRadius*0.1f, posY-height/2+3*stickRadius*0.2f);
 
-        downArrow.p1 = new PointF(posX, posY+height/2-3*stickRadius*0.1f);
-        downArrow.p2 = new PointF(posX+3*stickRadius*0.1f, posY+height/2-3*stickRadius*0.2f);
-        downArrow.p3 = new PointF(posX-3*stickRadius*0.1f, posY+height/2-3*stickRadius*0.2f);
+        setTriangle(downArrow, posX, posY+height/2-3*stickRadius*0.1f,
+                    posX+3*stickRadius*0.1f, posY+height/2-3*stickRadius*0.2f,
+                    posX-3*stickRadius*0.1f, posY+height/2-3*stickRadius*0.2f);
     }
 
     /**
@@ -318,7 +330,7 @@ public class JoystickY extends BaseControlElement{
                 pointerID = -1;
                 stickPosX = posX;
                 stickPosY = posY;
-                controllerAxes.get(0).axisValue = 0;
+                controllerAxes.get(0).setAxisValue(0);
                 Log.v("APP_TAG777", controllerAxes.get(0).axisValue+"");
             }
             return;
@@ -341,7 +353,7 @@ public class JoystickY extends BaseControlElement{
                 stickPosY = posY + (halfHeight - stickRadius);
         }
 
-        controllerAxes.get(0).axisValue = (int)((posY - stickPosY)/(halfHeight - stickRadius)*100);
+        controllerAxes.get(0).setAxisValue((int)((posY - stickPosY)/(halfHeight - stickRadius)*100));
     }
 
     /**
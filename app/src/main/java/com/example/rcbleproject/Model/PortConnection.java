@@ -1,5 +1,9 @@
 package com.example.rcbleproject.Model;
 
+import com.example.rcbleproject.Control.ChangeThresholdFilter;
+import com.example.rcbleproject.Control.ResponseCurve;
+import com.example.rcbleproject.Control.SlewRateLimiter;
+
 /**
  * Класс PortConnection содержит поля и методы для управления подключением к порту хаба.
  */
@@ -7,6 +11,13 @@ public class PortConnection{
     public BluetoothHub hub = null;
     public Port port = null;
     public BaseControlElement.ControllerAxis controllerAxis = null;
+    // ограничитель скорости роста мощности; используется только потоком отправки команд
+    public final SlewRateLimiter slewLimiter = new SlewRateLimiter();
+    // фильтр мелких изменений значения оси; используется только потоком отправки команд
+    public final ChangeThresholdFilter valueFilter = new ChangeThresholdFilter();
+
+    // заменяется целиком из UI-потока, читается потоком отправки команд
+    private volatile ResponseCurve responseCurve = ResponseCurve.LINEAR;
 
     private final long id, displayID;
 
@@ -27,4 +38,10 @@ public class PortConnection{
     public long getId() { return id; }
 
     public long getDisplayID() { return displayID; }
+
+    public ResponseCurve getResponseCurve() { return responseCurve; }
+
+    public void setResponseCurve(ResponseCurve responseCurve) {
+        this.responseCurve = responseCurve == null? ResponseCurve.LINEAR : responseCurve;
+    }
 }
@@ -6,11 +6,9 @@ import android.util.Log;
 import android.view.View;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
-import android.widget.AdapterView;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.ImageView;
-import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -47,22 +45,10 @@ public class AddingHubsActivity extends BluetoothLeService implements IRemovable
 
         @SuppressLint("ResourceType") int maxNumOfHubs = getResources().getInteger(R.integer.maxNumOfHubs);
         devicesAdapter = new FoundDevicesAdapter(this, new ArrayList<>(maxNumOfHubs));
-        ListView lv_found_devices = binding.lvFoundDevices;
-        lv_found_devices.setAdapter(devicesAdapter);
+        binding.rvFoundDevices.setAdapter(devicesAdapter);
 
-        ListView lv_connected_devices = binding.lvConnectedDevices;
         lv_connected_devices_adapter = new ConnectedDevicesAdapter(this, dbHubsAdapter);
-        lv_connected_devices.setAdapter(lv_connected_devices_adapter);
-        lv_connected_devices.setOnItemLongClickListener(
-                (AdapterView<?> parent, View view, int position, long id) -> {
-                    if (lv_connected_devices_adapter.getAvailability(view))
-                        lv_connected_devices_adapter.setFocusOnEditText(view);
-                    return false;
-        });
-        lv_connected_devices.setOnItemClickListener(
-                (AdapterView<?> parent, View view, int position, long id) -> {
-                    lv_connected_devices_adapter.cancelEdit();
-        });
+        binding.rvConnectedDevices.setAdapter(lv_connected_devices_adapter);
         setLvAdapterConnectedDevices(lv_connected_devices_adapter);
         setLvAdapterFoundHubs(devicesAdapter);
     }
@@ -94,6 +80,16 @@ public class AddingHubsActivity extends BluetoothLeService implements IRemovable
         incEmptyListCnnctdHubsLbl.setVisibility(View.GONE);
     }
 
+    /**
+     * Вызывается по завершении фоновых операций с БД хабов (загрузка списка, имен хабов).
+     */
+    @Override
+    public void notifyDataSetChanged(){
+        lv_connected_devices_adapter.submitHubs();
+        lv_connected_devices_adapter.refresh();
+        devicesAdapter.refresh();
+    }
+
     public void notifyNoHubConnection(){
         Toast.makeText(this, getString(R.string.no_hub_connection), Toast.LENGTH_SHORT).show();
     }
@@ -102,6 +98,13 @@ public class AddingHubsActivity extends BluetoothLeService implements IRemovable
     protected void onResume() {
         super.onResume();
         setFullscreenMode(binding.layoutContent);
+        devicesAdapter.startExpiryTracking();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        devicesAdapter.stopExpiryTracking();
     }
 
     private void initBtForSearchingHubs(){
@@ -119,8 +122,9 @@ public class AddingHubsActivity extends BluetoothLeService implements IRemovable
     @SuppressLint("UseCompatLoadingForDrawables")
     @Override
     public void startLEScan(){
-        super.startLEScan();
+        startPairingScan();
         if (!isLeScanStarted) return;
+        super.startLEScan();
         incEmptyListFndHubsLbl.findViewById(R.id.bt_empty_list).setVisibility(View.INVISIBLE);
         TextView tvEmptyListHubs = incEmptyListFndHubsLbl.findViewById(R.id.tv_msg_empty_list);
         tvEmptyListHubs.setText(R.string.searching_for_hubs);
@@ -152,7 +156,7 @@ public class AddingHubsActivity extends BluetoothLeService implements IRemovable
     public void remove(String address) {
         setFullscreenMode(binding.layoutContent);
         if (BuildConfig.DEBUG) Log.v("APP_TAG22", "try to disconn device. addr = " + address);
-        disconnectDevice(gatts.get(address));
+        disconnectDevice(address);
     }
 
     @Override
@@ -11,110 +11,143 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
-import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.rcbleproject.Database.DatabaseAdapterForHubs;
+import com.example.rcbleproject.ViewAndPresenter.HubDiffCallback;
 import com.example.rcbleproject.ViewAndPresenter.IListViewAdapterForHubs;
 import com.example.rcbleproject.Model.BluetoothHub;
 import com.example.rcbleproject.R;
 import com.example.rcbleproject.ViewAndPresenter.ConfirmRemoveDialogFragment;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implements IListViewAdapterForHubs {
-    private static final int resource = R.layout.app_list_item;
+public class ConnectedDevicesAdapter extends RecyclerView.Adapter<ConnectedDevicesAdapter.ViewHolder>
+                                     implements IListViewAdapterForHubs {
+    private static final int layout = R.layout.app_list_item;
 
     private View editingView = null;
     private View viewInConMenu = null;
     private enum Mode{ view_mode, context_menu_mode, edit_mode }
     private final DatabaseAdapterForHubs dbAdapter;
     private final List<BluetoothHub> hubs;
+    private final AsyncListDiffer<BluetoothHub> differ =
+            new AsyncListDiffer<>(this, new HubDiffCallback());
     private final LayoutInflater inflater;
-    private final int layout;
     AddingHubsActivity activity;
 
     public ConnectedDevicesAdapter(AddingHubsActivity context, DatabaseAdapterForHubs dbHubs){
-        super(context, resource, dbHubs.getConnectedHubs(context));
         inflater = LayoutInflater.from(context);
-        layout = resource;
         dbAdapter = dbHubs;
         activity = context;
         hubs = dbAdapter.getConnectedHubs(context);
+        setHasStableIds(true);
+        submitHubs();
 
         if (hubs.size() <= 0) activity.initIncEmptyListCnnctdHubsLblVisibility();
     }
 
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent){
-        final ViewHolder holder;
-        BluetoothHub hub = dbAdapter.getConnectedHubs(activity).get(position);
+    /**
+     * Передает снимок списка подключенных хабов на сравнение в фоновом потоке;
+     * вызывается после вставки или удаления хабов.
+     */
+    public void submitHubs(){
+        ArrayList<BluetoothHub> snapshot;
+        synchronized (hubs){
+            snapshot = new ArrayList<>(hubs);
+        }
+        differ.submitList(snapshot);
+    }
 
-        if (convertView == null){
-            convertView = inflater.inflate(this.layout, parent, false);
-            holder = new ViewHolder(convertView);
-            convertView.setTag(holder);
+    /**
+     * Перепривязывает все строки (например, после загрузки имен хабов из БД).
+     */
+    public void refresh(){
+        notifyItemRangeChanged(0, getItemCount());
+    }
 
-            holder.iv_hub_icon.setVisibility(View.VISIBLE);
+    private BluetoothHub getHub(ViewHolder holder){
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) return null;
+        return differ.getCurrentList().get(position);
+    }
 
-            holder.et_hub_name.setOnEditorActionListener((v, actionId, event) -> {
-                if (actionId == EditorInfo.IME_ACTION_DONE) resetEditingView();
-                return false;
-            });
-        }
-        else holder = (ViewHolder) convertView.getTag();
-        holder.position = position;
-        holder.availability = hub.availability;
+    private void notifyHubChanged(BluetoothHub hub){
+        int position = differ.getCurrentList().indexOf(hub);
+        if (position >= 0) notifyItemChanged(position);
+    }
 
-        if (hub.availability){
-            holder.tv_hub_name.setTextColor(Color.WHITE);
-            holder.bt_light_alarm.setVisibility(View.VISIBLE);
-            holder.bt_context_menu.setVisibility(View.VISIBLE);
-            //holder.bt_delete_hub.setVisibility(View.VISIBLE);
+    @Override
+    public int getItemCount(){ return differ.getCurrentList().size(); }
 
-            holder.bt_delete_hub.setOnClickListener((View v) -> {
-                //ViewHolder vh = (ViewHolder) ((View)v.getParent()).getTag();
-                BluetoothHub bluetoothHub = hubs.get(holder.position);
-                ConfirmRemoveDialogFragment dialog = new ConfirmRemoveDialogFragment();
-                Bundle args = new Bundle();
-                args.putInt("type", ConfirmRemoveDialogFragment.FragmentType.Hub.ordinal());
-                args.putString("object_id", bluetoothHub.address);
-                args.putString("message", activity.getResources().getString(R.string.confirm_msg_hub) + " \"" + bluetoothHub.getName() + "\" ?");
-                dialog.setArguments(args);
-                dialog.setCancelable(false);
-                dialog.show(activity.getSupportFragmentManager(), activity.getResources().getString(R.string.app_name));
-            });
-        }
-        else {
-            holder.tv_hub_name.setTextColor(activity.getColor(R.color.blue_ncs));
-            holder.bt_light_alarm.setVisibility(View.GONE);
-            holder.bt_context_menu.setVisibility(View.GONE);
-            holder.bt_delete_hub.setVisibility(View.GONE);
-            holder.bt_edit_name.setVisibility(View.GONE);
-        }
+    @Override
+    public long getItemId(int position){
+        return HubDiffCallback.getStableId(differ.getCurrentList().get(position).address);
+    }
 
-        if (hub.hubType != BluetoothHub.HubTypes.Unknown)
-            holder.iv_hub_icon.setImageResource(hub.getIconId());
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType){
+        View convertView = inflater.inflate(layout, parent, false);
+        final ViewHolder holder = new ViewHolder(convertView);
+        convertView.setTag(holder);
+
+        holder.iv_hub_icon.setVisibility(View.VISIBLE);
+
+        holder.et_hub_name.setOnEditorActionListener((v, actionId, event) -> {
+            if (actionId == EditorInfo.IME_ACTION_DONE) resetEditingView();
+            return false;
+        });
+
+        convertView.setOnLongClickListener((View v) -> {
+            if (getAvailability(v)) setFocusOnEditText(v);
+            return false;
+        });
+        convertView.setOnClickListener((View v) -> cancelEdit());
+
+        holder.bt_delete_hub.setOnClickListener((View v) -> {
+            BluetoothHub bluetoothHub = getHub(holder);
+            if (bluetoothHub == null) return;
+            ConfirmRemoveDialogFragment dialog = new ConfirmRemoveDialogFragment();
+            Bundle args = new Bundle();
+            args.putInt("type", ConfirmRemoveDialogFragment.FragmentType.Hub.ordinal());
+            args.putString("object_id", bluetoothHub.address);
+            args.putString("message", activity.getResources().getString(R.string.confirm_msg_hub) + " \"" + bluetoothHub.getName() + "\" ?");
+            dialog.setArguments(args);
+            dialog.setCancelable(false);
+            dialog.show(activity.getSupportFragmentManager(), activity.getResources().getString(R.string.app_name));
+        });
 
         holder.tv_hub_name.setOnClickListener((View v) -> {
             if (getAvailability((View)(v.getParent())))
                 setFocusOnEditText((View)(v.getParent()));
         });
 
-        holder.bt_light_alarm.setOnClickListener(v -> hubs.get(holder.position).alarm(activity));
+        holder.bt_light_alarm.setOnClickListener(v -> {
+            BluetoothHub hub = getHub(holder);
+            if (hub != null) hub.alarm(activity);
+        });
         holder.bt_cancel.setOnClickListener(v -> cancelEdit());
 
         holder.bt_ok.setOnClickListener(v -> {
-            if (!hub.availability) cancelEdit();
+            BluetoothHub hub = getHub(holder);
+            if (hub == null || !hub.availability) cancelEdit();
+            if (editingView == null) return;
             ViewHolder vh = ((ViewHolder)editingView.getTag());
             activity.hideKeyboard(vh.et_hub_name);
             resetEditingView();
         });
 
         holder.bt_edit_name.setOnClickListener(v -> {
-            if (!hub.availability) {
+            BluetoothHub hub = getHub(holder);
+            if (hub == null || !hub.availability) {
                 activity.notifyNoHubConnection();
                 return;
             }
@@ -122,7 +155,8 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
         });
 
         holder.bt_context_menu.setOnClickListener(v -> {
-            if (!hub.availability) {
+            BluetoothHub hub = getHub(holder);
+            if (hub == null || !hub.availability) {
                 activity.notifyNoHubConnection();
                 return;
             }
@@ -130,10 +164,32 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
             viewInConMenu = (View)v.getParent();
             setMode(Mode.context_menu_mode, (ViewHolder)(viewInConMenu.getTag()));
         });
+        return holder;
+    }
 
-        holder.tv_hub_name.setText(hub.getName());
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position){
+        BluetoothHub hub = differ.getCurrentList().get(position);
+        holder.availability = hub.availability;
 
-        return convertView;
+        if (hub.availability){
+            holder.tv_hub_name.setTextColor(Color.WHITE);
+            holder.bt_light_alarm.setVisibility(View.VISIBLE);
+            holder.bt_context_menu.setVisibility(View.VISIBLE);
+            //holder.bt_delete_hub.setVisibility(View.VISIBLE);
+        }
+        else {
+            holder.tv_hub_name.setTextColor(activity.getColor(R.color.blue_ncs));
+            holder.bt_light_alarm.setVisibility(View.GONE);
+            holder.bt_context_menu.setVisibility(View.GONE);
+            holder.bt_delete_hub.setVisibility(View.GONE);
+            holder.bt_edit_name.setVisibility(View.GONE);
+        }
+
+        if (hub.hubType != BluetoothHub.HubTypes.Unknown)
+            holder.iv_hub_icon.setImageResource(hub.getIconId());
+
+        holder.tv_hub_name.setText(hub.getName());
     }
 
     @SuppressLint("MissingPermission")
@@ -142,7 +198,8 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
         hub.stateConnection = true;
         dbAdapter.updateHub(hub, activity);
         activity.hideIncEmptyListCnnctdHubsLblVisibility();
-        notifyDataSetChanged();
+        submitHubs();
+        notifyHubChanged(hub);
         return true;
     }
 
@@ -151,7 +208,7 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
         if (bluetoothHub != null){
             bluetoothHub.stateConnection = false;
             dbAdapter.updateHub(bluetoothHub, activity);
-            notifyDataSetChanged();
+            submitHubs();
 
             if (hubs.size() <= 0) activity.initIncEmptyListCnnctdHubsLblVisibility();
         }
@@ -166,15 +223,16 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
             Log.v("APP_TAG33333333333333", device.getName() + " " + hub.getName());
             hub.updateHubNameInDB(device.getName());
         }
+        if (hub.availability == flag) return;
         hub.availability = flag;
-        notifyDataSetChanged();
+        notifyHubChanged(hub);
     }
 
     public boolean getAvailability(View v){
         try {
             ViewHolder holder = (ViewHolder) v.getTag();
-            BluetoothHub hub = hubs.get(holder.position);
-            return hub.availability;
+            BluetoothHub hub = getHub(holder);
+            return hub != null && hub.availability;
         }
         catch (Exception e) { return false; }
     }
@@ -211,14 +269,15 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
             setMode(Mode.view_mode, vh);
             return;
         }
-        if (!(hubs.get(vh.position).rename(newName, activity))){
+        BluetoothHub hub = getHub(vh);
+        if (hub == null || !hub.rename(newName, activity)){
             setMode(Mode.view_mode, vh);
             return;
         }
         vh.tv_hub_name.setText(newName);
-        dbAdapter.updateHub(hubs.get(vh.position), activity);
+        dbAdapter.updateHub(hub, activity);
         setMode(Mode.view_mode, vh);
-        notifyDataSetChanged();
+        notifyHubChanged(hub);
     }
 
     public void setMode(Mode mode, ViewHolder vh){
@@ -280,7 +339,7 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
         holder.iv_hub_icon.setVisibility(View.GONE);
     }
 
-    private class ViewHolder{
+    class ViewHolder extends RecyclerView.ViewHolder{
         final TextView tv_hub_name;
         final EditText et_hub_name;
         final ImageView bt_delete_hub;
@@ -290,10 +349,10 @@ public class ConnectedDevicesAdapter extends ArrayAdapter<BluetoothHub> implemen
         final ImageView iv_hub_icon;
         final ImageView bt_edit_name;
         final ImageView bt_context_menu;
-        int position = -1;
         boolean availability = false;
 
         ViewHolder(View view){
+            super(view);
             tv_hub_name = view.findViewById(R.id.tv_name);
             et_hub_name = view.findViewById(R.id.et_name);
             bt_delete_hub = view.findViewById(R.id.bt_delete);
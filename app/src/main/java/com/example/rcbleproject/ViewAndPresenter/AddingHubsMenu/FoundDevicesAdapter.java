@@ -7,98 +7,116 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.rcbleproject.BuildConfig;
+import com.example.rcbleproject.ViewAndPresenter.HubDiffCallback;
+import com.example.rcbleproject.ViewAndPresenter.HubExpiryTracker;
 import com.example.rcbleproject.ViewAndPresenter.IListViewAdapterForHubs;
 import com.example.rcbleproject.Model.BluetoothHub;
 import com.example.rcbleproject.R;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
-public class FoundDevicesAdapter extends ArrayAdapter<BluetoothHub> implements IListViewAdapterForHubs {
+public class FoundDevicesAdapter extends RecyclerView.Adapter<FoundDevicesAdapter.ViewHolder>
+        implements IListViewAdapterForHubs, HubExpiryTracker.IExpiryListener {
     public enum Activeness {active, inactive}
-    private static final int resource = R.layout.item_found_device;
+    private static final int layout = R.layout.item_found_device;
+    private static final long ADV_TIMEOUT_MS = 2000;    // хаб без объявлений дольше - неактивен
+    private static final long EXPIRY_TICK_MS = 1000;
 
     private final LayoutInflater inflater;
-    private final int layout;
     private final List<BluetoothHub> hubs;
+    private final HashMap<String, BluetoothHub> hubsByAddress = new HashMap<>();
+    private final AsyncListDiffer<BluetoothHub> differ =
+            new AsyncListDiffer<>(this, new HubDiffCallback());
     private final AddingHubsActivity activity;
+    private final HubExpiryTracker expiryTracker;
 
     public FoundDevicesAdapter(AddingHubsActivity context, List<BluetoothHub> hubs) {
-        super(context, resource, hubs);
         this.hubs = hubs;
-        layout = resource;
         inflater = LayoutInflater.from(context);
         activity = context;
-
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                long time = System.currentTimeMillis();
-                for (BluetoothHub hub : hubs){
-                    if (time - hub.lastTimeAdv > 2000)
-                        activity.runOnUiThread(() -> {
-                            hub.isActive = false;
-                            notifyDataSetChanged();
-                        });
-                }
-            }
-        }, 0, 1000);
+        setHasStableIds(true);
+        expiryTracker = new HubExpiryTracker(this, ADV_TIMEOUT_MS, EXPIRY_TICK_MS);
+        for (BluetoothHub hub : hubs){
+            hubsByAddress.put(hub.address, hub);
+            expiryTracker.track(hub);
+        }
+        differ.submitList(new ArrayList<>(hubs));
 
         if (hubs.size() <= 0) activity.initIncEmptyListFndHubsLbl();
     }
 
-    @SuppressLint("MissingPermission")
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        final ViewHolder holder;
-        BluetoothHub hub = hubs.get(position);
-        if (convertView == null) {
-            convertView = inflater.inflate(this.layout, parent, false);
-            holder = new ViewHolder(convertView);
-            convertView.setTag(holder);
-        } else holder = (ViewHolder) convertView.getTag();
-        holder.position = position;
+    public int getItemCount(){ return differ.getCurrentList().size(); }
 
-        holder.tv_device_name.setText(hub.getName()/* + " (" + hub.address + ")"*/);
-        if (hub.isActive) {
-            setActiveness(Activeness.active,holder);
-            convertView.setOnClickListener((View v) -> {
-                ViewHolder vh = (ViewHolder) v.getTag();
-                if(BuildConfig.DEBUG)
-                    Log.v("APP_TAG6666", "connecting to " + hubs.get(vh.position).address);
-                vh.iv_add_device.setVisibility(View.GONE);
-                activity.connectDevice(hubs.get(vh.position).address);
-            });
-        }
-        else {
-            setActiveness(Activeness.inactive, holder);
-            convertView.setOnClickListener(null);
+    @Override
+    public long getItemId(int position){
+        return HubDiffCallback.getStableId(differ.getCurrentList().get(position).address);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType){
+        ViewHolder holder = new ViewHolder(inflater.inflate(layout, parent, false));
+        holder.itemView.setOnClickListener((View v) -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            BluetoothHub hub = differ.getCurrentList().get(position);
+            if (!hub.isActive) return;
+            if(BuildConfig.DEBUG)
+                Log.v("APP_TAG6666", "connecting to " + hub.address);
+            holder.iv_add_device.setVisibility(View.GONE);
+            activity.connectDevice(hub.address);
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads){
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
         }
+        // изменилась только активность хаба
+        BluetoothHub hub = differ.getCurrentList().get(position);
+        setActiveness(hub.isActive? Activeness.active : Activeness.inactive, holder);
+    }
 
+    @SuppressLint("MissingPermission")
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position){
+        BluetoothHub hub = differ.getCurrentList().get(position);
+        holder.tv_device_name.setText(hub.getName()/* + " (" + hub.address + ")"*/);
+        setActiveness(hub.isActive? Activeness.active : Activeness.inactive, holder);
         if (hub.hubType != BluetoothHub.HubTypes.Unknown)
             holder.iv_hub_icon.setImageResource(hub.getIconId());
-        return convertView;
     }
 
     public boolean addHub(BluetoothHub hub){
         if (hub == null) return false;
-        int pos = containsDevice(hub.address);
-        if (pos >= 0){
-            hubs.get(pos).lastTimeAdv = System.currentTimeMillis();
-            hubs.get(pos).isActive = true;
-            notifyDataSetChanged();
+        BluetoothHub knownHub = hubsByAddress.get(hub.address);
+        if (knownHub != null){
+            knownHub.lastTimeAdv = System.currentTimeMillis();
+            if (!knownHub.isActive){
+                knownHub.isActive = true;
+                notifyHubChanged(knownHub);
+            }
             return false;
         }
         hub.lastTimeAdv = System.currentTimeMillis();
-        add(hub);
-        notifyDataSetChanged();
+        hubsByAddress.put(hub.address, hub);
+        expiryTracker.track(hub);
+        hubs.add(hub);
+        differ.submitList(new ArrayList<>(hubs));
         activity.hideIncEmptyListFndHubsLblVisibility();
         return true;
     }
@@ -107,11 +125,11 @@ public class FoundDevicesAdapter extends ArrayAdapter<BluetoothHub> implements I
      * Возврщает true, если device находился в списке найденных устройств
      **/
     public BluetoothHub removeHub(String hubAddress){
-        int pos = containsDevice(hubAddress);
-        if (pos >= 0){
-            BluetoothHub removableHub = getItem(pos);
-            remove(removableHub);
-            notifyDataSetChanged();
+        BluetoothHub removableHub = hubsByAddress.remove(hubAddress);
+        if (removableHub != null){
+            expiryTracker.untrack(hubAddress);
+            hubs.remove(removableHub);
+            differ.submitList(new ArrayList<>(hubs));
             if (hubs.size() <= 0) activity.initIncEmptyListFndHubsLbl();
             return  removableHub;
         }
@@ -120,14 +138,36 @@ public class FoundDevicesAdapter extends ArrayAdapter<BluetoothHub> implements I
 
     public void setAvailability(boolean flag, BluetoothDevice device){}
 
-    private int containsDevice(String address){
-        for (int i = 0; i < hubs.size(); i++){
-            if (hubs.get(i).address.equals(address))
-                return i;
-        }
-        return -1;
+    @Override
+    public void onHubsExpired(List<BluetoothHub> hubs){
+        for (BluetoothHub hub : hubs) notifyHubChanged(hub);
+    }
+
+    /**
+     * Перепривязывает строку хаба после изменения его активности.
+     */
+    private void notifyHubChanged(BluetoothHub hub){
+        int position = differ.getCurrentList().indexOf(hub);
+        if (position >= 0) notifyItemChanged(position, HubDiffCallback.PAYLOAD_STATE);
+    }
+
+    /**
+     * Перепривязывает все строки (например, после загрузки имен хабов из БД).
+     */
+    public void refresh(){
+        notifyItemRangeChanged(0, getItemCount());
     }
 
+    /**
+     * Запускает отслеживание устаревших хабов; вызывается в onResume активности.
+     */
+    public void startExpiryTracking(){ expiryTracker.start(); }
+
+    /**
+     * Останавливает отслеживание устаревших хабов; вызывается в onPause активности.
+     */
+    public void stopExpiryTracking(){ expiryTracker.stop(); }
+
     private void setActiveness(Activeness activeness, ViewHolder vh){
         switch (activeness){
             case active:
@@ -140,12 +180,12 @@ public class FoundDevicesAdapter extends ArrayAdapter<BluetoothHub> implements I
         }
     }
 
-    private class ViewHolder{
+    static class ViewHolder extends RecyclerView.ViewHolder{
         final TextView tv_device_name;
         final ImageView iv_add_device;
         final ImageView iv_hub_icon;
-        volatile int position;
         ViewHolder(View view){
+            super(view);
             tv_device_name = view.findViewById(R.id.tv_device_name);
             iv_add_device = view.findViewById(R.id.iv_add_device);
             iv_hub_icon = view.findViewById(R.id.iv_hub_icon);
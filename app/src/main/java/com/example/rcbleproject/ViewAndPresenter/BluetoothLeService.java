@@ -1,34 +1,19 @@
 package com.example.rcbleproject.ViewAndPresenter;
 
-import static android.bluetooth.BluetoothDevice.BOND_BONDED;
-import static android.bluetooth.BluetoothDevice.BOND_BONDING;
-import static android.bluetooth.BluetoothDevice.TRANSPORT_LE;
-import static android.bluetooth.BluetoothGatt.GATT_SUCCESS;
-import static android.bluetooth.BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
-
 import android.Manifest;
 import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
-import android.bluetooth.BluetoothProfile;
-import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
 import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
-import android.bluetooth.le.ScanSettings;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.location.LocationManager;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.os.ParcelUuid;
 import android.provider.Settings;
 import android.util.Log;
@@ -38,18 +23,29 @@ import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.RequiresApi;
 
+import com.example.rcbleproject.Bluetooth.HubConnection;
+import com.example.rcbleproject.Bluetooth.HubConnectionManager;
+import com.example.rcbleproject.Bluetooth.HubTelemetry;
+import com.example.rcbleproject.Bluetooth.LinkParams;
+import com.example.rcbleproject.Bluetooth.ScanScheduler;
 import com.example.rcbleproject.BuildConfig;
 import com.example.rcbleproject.Container;
 import com.example.rcbleproject.Database.DatabaseAdapterForHubs;
 import com.example.rcbleproject.Model.BluetoothHub;
+import com.example.rcbleproject.Protocol.HubProtocols;
 import com.example.rcbleproject.R;
 import com.example.rcbleproject.databinding.ActivityAddingHubsBinding;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class BluetoothLeService extends BaseAppActivity {
+public class BluetoothLeService extends BaseAppActivity
+                                implements HubConnectionManager.IHubConnectionListener {
     private IListViewAdapterForHubs lvAdapterConnectedDevices = Container.getDbForHubs(this);
     private IListViewAdapterForHubs lvAdapterFoundHubs;
 
@@ -62,12 +58,15 @@ public class BluetoothLeService extends BaseAppActivity {
     protected ActivityResultLauncher launcher;
 
     protected BluetoothAdapter bluetoothAdapter;
-    protected BluetoothLeScanner BLEScanner;
+    protected ScanScheduler scanScheduler;
     protected ActivityAddingHubsBinding binding;
 
     protected DatabaseAdapterForHubs dbHubsAdapter;
 
-    protected static final HashMap<String, BluetoothGatt> gatts = Container.getGatts();
+    protected HubConnectionManager connectionManager;
+    protected ScanResultIngestor scanResultIngestor;
+    // сохраненные хабы, подключение к которым передано в главный поток
+    private final Set<String> pendingConnects = ConcurrentHashMap.newKeySet();
     protected final BluetoothLeService activity = this;
 
     public void setLvAdapterConnectedDevices(IListViewAdapterForHubs adapter){
@@ -88,6 +87,10 @@ public class BluetoothLeService extends BaseAppActivity {
         permissionConnectRequested = false;
 
         bluetoothAdapter = ((BluetoothManager) getSystemService(BLUETOOTH_SERVICE)).getAdapter();
+        connectionManager = Container.getConnectionManager(this);
+        scanScheduler = Container.getScanScheduler(this);
+        scanResultIngestor = new ScanResultIngestor(this,
+                getResources().getInteger(R.integer.scanUiUpdatePeriod));
         launcher = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
                 result -> checkBluetoothPeripherals());
@@ -96,11 +99,11 @@ public class BluetoothLeService extends BaseAppActivity {
     @Override
     protected void onResume(){
         super.onResume();
-        startLEScan();
-        BluetoothDevice device;
-        for (HashMap.Entry<String, BluetoothGatt> gatt : gatts.entrySet()){
-            device = gatt.getValue().getDevice();
-            lvAdapterConnectedDevices.setAvailability(true, device);
+        connectionManager.addListener(this);
+        if (isScanStartedOnResume()) startLEScan();
+        for (HubConnection connection : connectionManager.getConnections()){
+            if (connection.isReady())
+                lvAdapterConnectedDevices.setAvailability(true, connection.device);
         }
     }
 
@@ -108,7 +111,15 @@ public class BluetoothLeService extends BaseAppActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        connectionManager.removeListener(this);
         stopLEScan();
+        scanScheduler.stop(scanCallback);
+    }
+
+    @Override
+    protected void onDestroy(){
+        super.onDestroy();
+        scanResultIngestor.quit();
     }
 
     public boolean checkBluetoothPeripherals(){
@@ -186,86 +197,91 @@ public class BluetoothLeService extends BaseAppActivity {
         return false;
     }
 
-    @SuppressLint("MissingPermission")
+    /**
+     * Запускает окна сканирования для переподключения еще не подключенных хабов
+     * (см. getHubsToReconnect). Сканирование прекращается, когда все они подключены.
+     */
     protected void startLEScan(){
-        if (!checkBluetoothPeripherals()) return;
-        if (bluetoothAdapter.isEnabled() && !isLeScanStarted) {
-            BLEScanner = bluetoothAdapter.getBluetoothLeScanner();
-            ScanSettings settings = new ScanSettings.Builder()
-                    .setScanMode(ScanSettings.SCAN_MODE_LOW_POWER)
-                    .setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES)
-                    .setMatchMode(ScanSettings.MATCH_MODE_AGGRESSIVE)
-                    .setNumOfMatches(ScanSettings.MATCH_NUM_ONE_ADVERTISEMENT).build();
-            ArrayList<ScanFilter> filters = getScanFilters();
-            BLEScanner.startScan(filters, settings, scanCallback);
-            isLeScanStarted = true;
-            if (BuildConfig.DEBUG) Log.v("APP_TAG", "Start scan!");
+        if (!checkBluetoothPeripherals() || !bluetoothAdapter.isEnabled()) return;
+        ArrayList<String> addresses = new ArrayList<>();
+        for (String address : getHubsToReconnect()){
+            HubConnection connection = connectionManager.getConnection(address);
+            if (connection == null || !connection.isReady()) addresses.add(address);
+        }
+        scanScheduler.startReconnect(scanCallback, addresses);
+    }
+
+    /**
+     * @return true - если сканирование запускается в onResume(); false - если наследник
+     *         запускает его сам, когда станет известен список хабов для переподключения.
+     */
+    protected boolean isScanStartedOnResume(){ return true; }
+
+    /**
+     * Запускает непрерывный поиск новых хабов с минимальной задержкой.
+     */
+    protected void startPairingScan(){
+        if (!checkBluetoothPeripherals() || !bluetoothAdapter.isEnabled() || isLeScanStarted) return;
+        scanScheduler.startPairing(scanCallback, getScanFilters());
+        isLeScanStarted = true;
+        if (BuildConfig.DEBUG) Log.v("APP_TAG", "Start scan!");
+    }
+
+    /**
+     * @return mac-адреса хабов, которые нужно переподключить: по умолчанию - все хабы,
+     *         сохраненные как подключенные.
+     */
+    protected Collection<String> getHubsToReconnect(){
+        ArrayList<String> addresses = new ArrayList<>();
+        if (dbHubsAdapter == null) return addresses;
+        List<BluetoothHub> hubs = dbHubsAdapter.getConnectedHubs(null);
+        synchronized (hubs){
+            for (BluetoothHub hub : hubs)
+                if (hub.stateConnection) addresses.add(hub.address);
         }
-        Log.v("APP_TAG22", "gatts size: " + gatts.size());
+        return addresses;
     }
 
     protected ArrayList<ScanFilter> getScanFilters(){
         ArrayList<ScanFilter> filters = new ArrayList<>();
-        for (UUID uuid : Container.getServiceUUIDs(getApplicationContext()).values()){
+        for (UUID uuid : HubProtocols.getServiceUuids()){
             filters.add(new ScanFilter.Builder().setServiceUuid(new ParcelUuid(uuid)).build());
         }
         return filters;
     }
 
-    @SuppressLint("MissingPermission")
+    /**
+     * Завершает поиск новых хабов; переподключение хабов продолжается в режиме
+     * энергосбережения.
+     */
     protected void stopLEScan(){
-        if (BLEScanner == null || !checkBluetoothPeripherals() || !isLeScanStarted) return;
-        BLEScanner.stopScan(scanCallback);
+        if (!isLeScanStarted) return;
+        scanScheduler.stopPairing();
         isLeScanStarted = false;
     }
 
-    @SuppressLint("MissingPermission")
-    protected void startLEScan(String deviceAddress){
-        if (!checkBluetoothPeripherals()) return;
-        if (bluetoothAdapter.isEnabled()) {
-            BLEScanner = bluetoothAdapter.getBluetoothLeScanner();
-            ScanFilter filter = new ScanFilter.Builder().setDeviceAddress(deviceAddress).build();
-            ScanSettings settings = new ScanSettings.Builder()
-                    .setScanMode(ScanSettings.SCAN_MODE_LOW_POWER).build();
-            ArrayList<ScanFilter> filters = new ArrayList<>();
-            filters.add(filter);
-            BLEScanner.startScan(filters, settings, scanCallback);
-            if (BuildConfig.DEBUG) Log.v("APP_TAG", "Start scan!");
-        }
-        Log.v("APP_TAG22", "gatts size: " + gatts.size());
-    }
-
-    @SuppressLint("MissingPermission")
-    public void connectDevice(BluetoothDevice device){
+    /**
+     * Подключается к хабу.
+     * @param device - хаб.
+     * @return результат, завершающийся при готовности хаба; null - если нет доступа к Bluetooth.
+     */
+    public CompletableFuture<HubConnection> connectDevice(BluetoothDevice device){
         if (BuildConfig.DEBUG) Log.v("APP_TAG22", "try to connect");
-        if (!checkBluetoothPeripherals()) return;
-        new Thread(() -> {
-            device.connectGatt(this, true, gattCallback, TRANSPORT_LE);
-        }).start();
+        if (!checkBluetoothPeripherals()) return null;
+        return connectionManager.connect(device);
     }
 
-    @SuppressLint("MissingPermission")
-    public void connectDevice(String deviceAddress){
-        connectDevice(bluetoothAdapter.getRemoteDevice(deviceAddress));
+    public CompletableFuture<HubConnection> connectDevice(String deviceAddress){
+        if (!checkBluetoothPeripherals()) return null;
+        return connectDevice(bluetoothAdapter.getRemoteDevice(deviceAddress));
     }
 
-    @SuppressLint("MissingPermission")
-    public void disconnectDevice(BluetoothGatt gatt){
-        if (BuildConfig.DEBUG) Log.v("APP_TAG22", "try to disconnect");
-        if (!checkBluetoothPeripherals() || gatt == null) return;
-        if (BuildConfig.DEBUG){
-            Log.v("APP_TAG22", "start disconnecting, addr = " + gatt.getDevice().getAddress());
-            Log.v("APP_TAG22", "gatt = " + gatt);
-        }
-        new Thread(() -> {
-            runOnUiThread(() -> {
-                gatts.remove(gatt.getDevice().getAddress());
-                if (lvAdapterConnectedDevices != null)
-                    lvAdapterConnectedDevices.removeHub(gatt.getDevice().getAddress());
-                Log.v("APP_TAG22", "gatts size: " + gatts.size());
-            });
-            gatt.disconnect();
-        }).start();
+    public void disconnectDevice(String address){
+        if (BuildConfig.DEBUG) Log.v("APP_TAG22", "try to disconnect, addr = " + address);
+        if (!checkBluetoothPeripherals() || address == null) return;
+        if (lvAdapterConnectedDevices != null) lvAdapterConnectedDevices.removeHub(address);
+        connectionManager.disconnect(address);
+        scanResultIngestor.forget(address);
     }
 
     protected final ScanCallback scanCallback = new ScanCallback() {
@@ -274,127 +290,128 @@ public class BluetoothLeService extends BaseAppActivity {
         @Override
         public void onScanResult(int callbackType, ScanResult result) {
             super.onScanResult(callbackType, result);
-            new Thread(() -> {
-                BluetoothDevice device = result.getDevice();
-                if (device != null) {
-                    if (dbHubsAdapter != null && dbHubsAdapter.getHubStateConnection(device.getAddress())){
-                        if (!gatts.containsKey(device.getAddress())) {
-                            connectDevice(device);
-                        }
-                        return;
-                    }
-                    Log.v("APP_TAG6", device.getName());
-                    if (lvAdapterFoundHubs != null){
-                        runOnUiThread(() -> lvAdapterFoundHubs.addHub(
-                                new BluetoothHub(result, activity, false)));
-                    }
-                }
-            }).start();
+            scanResultIngestor.offer(result);
         }
     };
 
-    protected final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
-        @SuppressLint("MissingPermission")
-        @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            super.onConnectionStateChange(gatt, status, newState);
-            if (BuildConfig.DEBUG) {
-                Log.v("APP_TAG22", "state changed: " + gatt.getDevice().getAddress());
-                Log.v("APP_TAG22", "status: " + status + "; newState: " + newState);
-            }
-            if (status == GATT_SUCCESS){
-                Log.v("APP_TAG2", "GATT_SUCCESS");
-                if (newState == BluetoothProfile.STATE_CONNECTED){
-                    int bondState = gatt.getDevice().getBondState();
-                    Log.v("APP_TAG2", "STATE_CONNECTED. bondState: " + bondState);
-                    int delay = 0;
-                    switch (bondState){
-                        case BOND_BONDED:
-                            delay = Build.VERSION.SDK_INT <= Build.VERSION_CODES.N? 1000 : 0;
-                            break;
-                        case BOND_BONDING:
-                            return;
-                    }
-
-                    if (!gatts.containsKey(gatt.getDevice().getAddress()))
-                        runOnUiThread(() -> {
-                            if (lvAdapterConnectedDevices == null) return;
-                            if (lvAdapterFoundHubs == null) return;
-                            BluetoothHub hub = lvAdapterFoundHubs.removeHub(gatt.getDevice().getAddress());
-                            if (hub != null)
-                                lvAdapterConnectedDevices.addHub(hub);
-                        });
-                    runOnUiThread(() -> {
-                        gatts.put(gatt.getDevice().getAddress(), gatt);
-                        if (lvAdapterConnectedDevices != null)
-                            lvAdapterConnectedDevices.setAvailability(true, gatt.getDevice());
-                    });
-                    new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                        if (BuildConfig.DEBUG) Log.v("APP_TAG2", "Discover services");
-                        boolean res = gatt.discoverServices();
-                        if (!res && BuildConfig.DEBUG)
-                            Log.v("APP_TAG2", "Discovering services was failed");
-                            }, delay);
-                }
-                else if (newState == BluetoothProfile.STATE_DISCONNECTED){
-                    String addr = gatt.getDevice().getAddress();
-                    gatt.close();
-                    Log.v("APP_TAG22", "gatt is closed; addr = " + addr);
-                    Log.v("APP_TAG22", "gatt = " + gatt + "; Conn state: " + newState);
-                }
-            }
-            else if (status == 8){
-                if (BuildConfig.DEBUG) Log.e("APP_TAG", "Error. status = " + status);
-                runOnUiThread(() -> {
-                    gatts.remove(gatt.getDevice().getAddress());
-                    if (lvAdapterConnectedDevices != null){
-                        lvAdapterConnectedDevices.setAvailability(false, gatt.getDevice());
-                    }
-                });
-                gatt.close();
-            }
-            else {
-                if (BuildConfig.DEBUG) Log.e("APP_TAG", "Error. status = " + status);
-                runOnUiThread(() -> {
-                    gatts.remove(gatt.getDevice().getAddress());
-                    if (lvAdapterConnectedDevices != null){
-                        lvAdapterConnectedDevices.setAvailability(false, gatt.getDevice());
-                    }
-                });
-                gatt.close();
-            }
+    /**
+     * Вызывается потоком разбора результатов сканирования для нового устройства.
+     * Подключение запрашивает разрешения и показывает сообщения, поэтому запускается
+     * в главном потоке.
+     * @return true - если устройство является сохраненным хабом (к нему запускается
+     *         подключение) и не должно попадать в список найденных.
+     */
+    boolean onSavedHubAdvertised(BluetoothDevice device){
+        String address = device.getAddress();
+        if (dbHubsAdapter == null || !dbHubsAdapter.getHubStateConnection(address))
+            return false;
+        if (!connectionManager.isConnectedOrConnecting(address) && pendingConnects.add(address)){
+            runOnUiThread(() -> {
+                pendingConnects.remove(address);
+                if (isDestroyed() || connectionManager.isConnectedOrConnecting(address)) return;
+                // подключение не запущено: следующее объявление хаба повторит попытку
+                if (connectDevice(device) == null) scanResultIngestor.forget(address);
+            });
         }
-    };
+        return true;
+    }
 
-    @SuppressLint("MissingPermission")
-    public void writeCharacteristic(BluetoothHub hub, byte[] message){
-        Log.v("APP_TAG33", message.toString());
-        if (!checkBluetoothPeripherals()) return;
-        if (hub == null) return;
-        BluetoothGatt bluetoothGatt = gatts.get(hub.address);
-        if (bluetoothGatt == null) return;
-        BluetoothGattService service = bluetoothGatt.getService(hub.serviceUuid);
-        BluetoothGattCharacteristic characteristic = service.getCharacteristic(hub.characteristicUuid);
-
-        byte[] value = characteristic.getValue();
-        if (value != null && value.length == message.length){
-            boolean isEqual = true;
-            for (int i = value.length - 1; i >= 0; --i)
-                if (value[i] != message[i]){
-                    isEqual = false;
-                    break;
-                }
-            if (isEqual) return;
+    /**
+     * @return true - если активность отображает список найденных хабов.
+     */
+    boolean isCollectingFoundHubs(){ return lvAdapterFoundHubs != null; }
+
+    /**
+     * Вызывается в главном потоке не чаще одного раза за период обновления интерфейса.
+     * @param hubs - новые хабы и хабы, объявления которых возобновились.
+     */
+    void onHubsFound(List<BluetoothHub> hubs){
+        if (lvAdapterFoundHubs == null) return;
+        for (int idx = 0; idx < hubs.size(); ++idx)
+            lvAdapterFoundHubs.addHub(hubs.get(idx));
+    }
+
+    @Override
+    public void onHubStateChanged(BluetoothDevice device, HubConnection.State state){
+        switch (state){
+            case NEGOTIATING_MTU:
+                // соединение установлено: хаб переходит из списка найденных в подключенные
+                if (lvAdapterConnectedDevices == null || lvAdapterFoundHubs == null) break;
+                BluetoothHub hub = lvAdapterFoundHubs.removeHub(device.getAddress());
+                if (hub != null) lvAdapterConnectedDevices.addHub(hub);
+                scanResultIngestor.forget(device.getAddress());
+                break;
+            case READY:
+                scanScheduler.onHubReady(device.getAddress());
+                if (lvAdapterConnectedDevices != null)
+                    lvAdapterConnectedDevices.setAvailability(true, device);
+                break;
+            case DISCONNECTED:
+                // следующее объявление сохраненного хаба снова запустит подключение
+                scanResultIngestor.forget(device.getAddress());
+                if (getHubsToReconnect().contains(device.getAddress()))
+                    scanScheduler.onHubLost(device.getAddress());
+                if (lvAdapterConnectedDevices != null)
+                    lvAdapterConnectedDevices.setAvailability(false, device);
+                break;
         }
+    }
 
-        /*if((characteristic.getProperties() & PROPERTY_WRITE_NO_RESPONSE) == 0 ) {
-            Log.e("APP_TAG22", "proterties " + (characteristic.getProperties() & PROPERTY_WRITE_NO_RESPONSE));
-            Log.e("APP_TAG22", "ERROR: Characteristic does not support writeType '" + characteristic.getWriteType() + "'");
-            return false;
-        }*/
-        characteristic.setWriteType(WRITE_TYPE_NO_RESPONSE);
-        characteristic.setValue(message);
-        while (!bluetoothGatt.writeCharacteristic(characteristic));
+    /**
+     * Ставит служебное сообщение в очередь записи хаба.
+     * @param hub - хаб-получатель.
+     * @param message - сообщение.
+     * @return true - если сообщение принято в очередь.
+     */
+    public boolean writeCharacteristic(BluetoothHub hub, byte[] message){
+        return hub != null && connectionManager.writeFrame(hub.address, message);
+    }
+
+    /**
+     * Передает новое значение порта в очередь записи хаба. Неотправленное значение того же
+     * порта заменяется новым, кодирование в кадр выполняется непосредственно перед записью.
+     * @param hub - хаб-получатель.
+     * @param portNum - номер порта.
+     * @param value - значение порта с учетом направления вращения.
+     * @param inputTime - время касания, вызвавшего команду, нс; 0 - неизвестно.
+     * @param axisTime - время изменения значения оси, нс.
+     * @return true - если значение принято.
+     */
+    public boolean writePortValue(BluetoothHub hub, int portNum, int value, long inputTime,
+                                  long axisTime){
+        return hub != null && connectionManager.writePortValue(hub.address, portNum, value,
+                inputTime, axisTime);
+    }
+
+    /**
+     * Устанавливает приоритет всех текущих и будущих соединений с хабами.
+     * @param priority - BluetoothGatt.CONNECTION_PRIORITY_HIGH на время управления;
+     *                 BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER в режиме редактирования
+     *                 и в фоне.
+     */
+    public void setConnectionPriority(int priority){
+        if (!checkPermissionBLE_CONNECT()) return;
+        connectionManager.setConnectionPriority(priority);
+    }
+
+    /**
+     * Возвращает фактически согласованные параметры соединения с хабом.
+     * @param address - mac-адрес хаба.
+     * @return параметры соединения; null - если хаб не подключен.
+     */
+    public LinkParams getLinkParams(String address){
+        HubConnection connection = connectionManager.getConnection(address);
+        return connection == null? null : connection.linkParams;
+    }
+
+    /**
+     * Возвращает телеметрию хаба (заряд батареи, уровень сигнала, обратная связь моторов).
+     * @param address - mac-адрес хаба.
+     * @return телеметрия хаба; null - если хаб не подключен или не обнаружены его сервисы.
+     */
+    public HubTelemetry getHubTelemetry(String address){
+        HubConnection connection = connectionManager.getConnection(address);
+        return connection == null? null : connection.getTelemetry();
     }
 
     /*public void alarmNoPermissions(){
@@ -0,0 +1,46 @@
+package com.example.rcbleproject.ViewAndPresenter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.rcbleproject.Model.BluetoothHub;
+
+/**
+ * Класс HubDiffCallback сравнивает списки хабов для AsyncListDiffer.
+ * Хабы - изменяемые объекты, которые разделяют старый и новый снимки списка, поэтому
+ * DiffUtil определяет только вставки, удаления и перемещения. Изменения отдельного хаба
+ * (доступность, активность, имя) адаптеры сообщают сами через notifyItemChanged.
+ */
+public class HubDiffCallback extends DiffUtil.ItemCallback<BluetoothHub> {
+    /**
+     * Полезная нагрузка notifyItemChanged: изменилась только доступность или активность хаба.
+     */
+    public static final Object PAYLOAD_STATE = new Object();
+
+    @Override
+    public boolean areItemsTheSame(@NonNull BluetoothHub oldHub, @NonNull BluetoothHub newHub){
+        return oldHub.address.equals(newHub.address);
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull BluetoothHub oldHub, @NonNull BluetoothHub newHub){
+        return oldHub == newHub;
+    }
+
+    /**
+     * Возвращает стабильный идентификатор строки списка по mac-адресу хаба.
+     * @param address - mac-адрес вида XX:XX:XX:XX:XX:XX.
+     * @return 48-битное значение адреса; хэш строки - если адрес имеет другой формат.
+     */
+    public static long getStableId(String address){
+        long id = 0;
+        for (int idx = 0; idx < address.length(); ++idx){
+            char c = address.charAt(idx);
+            if (c == ':') continue;
+            int digit = Character.digit(c, 16);
+            if (digit < 0) return address.hashCode();
+            id = (id << 4) | digit;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.rcbleproject.ViewAndPresenter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.rcbleproject.Model.BluetoothHub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс HubExpiryTracker отслеживает время последнего объявления (lastTimeAdv) найденных хабов
+ * и помечает неактивными хабы, объявления которых прекратились. Все экземпляры используют
+ * один общий поток планировщика; проверка выполняется раз в тик, а устаревшие за тик хабы
+ * передаются слушателю одной пачкой в главном потоке.
+ */
+public class HubExpiryTracker {
+    public interface IExpiryListener {
+        /**
+         * Вызывается в главном потоке. Хабы уже помечены неактивными (isActive = false).
+         * @param hubs - хабы, устаревшие за последний тик.
+         */
+        void onHubsExpired(List<BluetoothHub> hubs);
+    }
+
+    private static ScheduledExecutorService executor = null;
+
+    private final IExpiryListener listener;
+    private final long timeout;
+    private final long tick;
+    private final ConcurrentHashMap<String, BluetoothHub> hubs = new ConcurrentHashMap<>();
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private ScheduledFuture<?> task = null;
+
+    /**
+     * @param listener - получатель пачек устаревших хабов.
+     * @param timeout - время без объявлений, после которого хаб считается неактивным, мс.
+     * @param tick - период проверки, мс.
+     */
+    public HubExpiryTracker(IExpiryListener listener, long timeout, long tick){
+        this.listener = listener;
+        this.timeout = timeout;
+        this.tick = tick;
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor(){
+        if (executor == null){
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "HubExpiryTracker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    public void track(BluetoothHub hub){ hubs.put(hub.address, hub); }
+
+    public void untrack(String address){ hubs.remove(address); }
+
+    /**
+     * Запускает периодическую проверку (например, в onResume).
+     */
+    public synchronized void start(){
+        if (task != null) return;
+        task = getExecutor().scheduleAtFixedRate(this::check, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает периодическую проверку (например, в onPause).
+     */
+    public synchronized void stop(){
+        if (task == null) return;
+        task.cancel(false);
+        task = null;
+    }
+
+    private void check(){
+        long time = System.currentTimeMillis();
+        ArrayList<BluetoothHub> expiredHubs = null;
+        for (BluetoothHub hub : hubs.values()){
+            if (!hub.isActive || time - hub.lastTimeAdv <= timeout) continue;
+            if (expiredHubs == null) expiredHubs = new ArrayList<>();
+            expiredHubs.add(hub);
+        }
+        if (expiredHubs == null) return;
+        List<BluetoothHub> batch = expiredHubs;
+        uiHandler.post(() -> {
+            // объявление могло прийти, пока пачка ждала главного потока
+            ArrayList<BluetoothHub> stillExpired = new ArrayList<>(batch.size());
+            long now = System.currentTimeMillis();
+            for (BluetoothHub hub : batch){
+                if (now - hub.lastTimeAdv <= timeout) continue;
+                hub.isActive = false;
+                stillExpired.add(hub);
+            }
+            if (!stillExpired.isEmpty()) listener.onHubsExpired(stillExpired);
+        });
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu;
+
+import com.example.rcbleproject.Control.ControlWatchdog;
+import com.example.rcbleproject.Control.ResponseCurve;
+import com.example.rcbleproject.Control.SlewRateLimiter;
+import com.example.rcbleproject.Model.BaseControlElement;
+import com.example.rcbleproject.Model.IAxisValueListener;
+import com.example.rcbleproject.Model.PortConnection;
+import com.example.rcbleproject.ViewAndPresenter.BluetoothLeService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Класс CommandSender отправляет команды управления портами хабов. Поток отправки пробуждается
+ * только при изменении значений осей элементов управления (или при явном запросе), а в остальное
+ * время припаркован. Частота отправки команд на каждый хаб ограничена сверху.
+ * Значение оси проходит через передаточную характеристику соединения (ResponseCurve),
+ * фильтр мелких изменений (ChangeThresholdFilter) и ограничитель скорости роста мощности
+ * (SlewRateLimiter).
+ * Если задан сторож (ControlWatchdog), поток отправки отмечается в нем не реже одного раза
+ * за период сторожа, а пока сторож находится в сработавшем состоянии, поток ожидает
+ * восстановления. Остановку портов гарантируют очереди записи хабов (HubWriteQueue.stopAllPorts
+ * отбрасывает команды до возобновления), поэтому проверка сторожа здесь лишь экономит работу.
+ * После остановки портов (onPortsStopped) значения портов считаются нулевыми, и команды
+ * осей отправляются заново.
+ */
+public class CommandSender implements IAxisValueListener {
+    /**
+     * Источник соединений портов, команды которых необходимо отправлять.
+     */
+    public interface IPortConnectionsSource {
+        List<PortConnection> getActivePortConnections();
+
+        /**
+         * @return соединения портов всех дисплеев профиля.
+         */
+        List<List<PortConnection>> getAllPortConnections();
+    }
+
+    private final BluetoothLeService leService;
+    private final IPortConnectionsSource source;
+    private final AtomicBoolean isDirty = new AtomicBoolean(true);  // флаг наличия изменений
+    // время последней отправки на хаб, нс (массив из одного элемента, чтобы не упаковывать long)
+    private final HashMap<String, long[]> lastSendTimes = new HashMap<>();
+    private volatile long minSendInterval;      // минимальный интервал между отправками на хаб, нс
+    private volatile int valueStep = 1;         // шаг фильтра мелких изменений, %
+    private volatile long valueMaxAge = 0;      // макс. задержка мелкого изменения, нс
+    private volatile boolean isSending = false;
+    private final AtomicBoolean isPortsStopped = new AtomicBoolean(false);  // порты остановлены извне
+    private volatile ControlWatchdog watchdog;
+    private volatile int watchdogSource;
+    private Thread thread;
+
+    /**
+     * @param leService - сервис для записи команд в хабы.
+     * @param source - источник соединений портов дисплеев профиля.
+     * @param maxSendRate - максимальная частота отправки команд на один хаб, Гц.
+     */
+    public CommandSender(BluetoothLeService leService, IPortConnectionsSource source, int maxSendRate){
+        this.leService = leService;
+        this.source = source;
+        setMaxSendRate(maxSendRate);
+    }
+
+    /**
+     * Устанавливает максимальную частоту отправки команд на один хаб.
+     * @param maxSendRate - частота, Гц. Значение <= 0 снимает ограничение.
+     */
+    public void setMaxSendRate(int maxSendRate){
+        minSendInterval = maxSendRate > 0? TimeUnit.SECONDS.toNanos(1) / maxSendRate : 0;
+    }
+
+    /**
+     * Настраивает фильтр мелких изменений значений портов.
+     * @param step - минимальное изменение значения порта, %; <= 1 - фильтр отключен.
+     * @param maxAgeMs - максимальная задержка изменения меньше шага, мс.
+     */
+    public void setValueFilter(int step, int maxAgeMs){
+        valueStep = step;
+        valueMaxAge = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxAgeMs));
+    }
+
+    /**
+     * Устанавливает сторожа цикла управления.
+     * @param watchdog - сторож; null - без сторожа.
+     * @param source - номер источника потока отправки в стороже.
+     */
+    public void setWatchdog(ControlWatchdog watchdog, int source){
+        watchdogSource = source;
+        this.watchdog = watchdog;
+        wakeUp();
+    }
+
+    /**
+     * Сообщает, что порты хабов остановлены в обход потока отправки: при следующем проходе
+     * значения портов будут отправлены заново.
+     */
+    public void onPortsStopped(){
+        isPortsStopped.set(true);
+        wakeUp();
+    }
+
+    public void start(){
+        if (thread != null) return;
+        isSending = true;
+        isDirty.set(true);
+        thread = new Thread(this::run, "CommandSender");
+        thread.start();
+    }
+
+    public void stop(){
+        if (thread == null) return;
+        isSending = false;
+        LockSupport.unpark(thread);
+        boolean retry = true;
+        while (retry){
+            try {
+                thread.join();
+                retry = false;
+            }
+            catch (InterruptedException ignored){}
+        }
+        thread = null;
+        lastSendTimes.clear();
+        // поток отправки остановлен: незавершенный разгон начнется заново после start()
+        resetPortConnections(false);
+    }
+
+    /**
+     * Пробуждает поток отправки для повторной проверки соединений портов
+     * (например, после смены дисплея).
+     */
+    public void wakeUp(){
+        isDirty.set(true);
+        Thread t = thread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    @Override
+    public void onAxisValueChanged(BaseControlElement.ControllerAxis axis){
+        wakeUp();
+    }
+
+    private void run(){
+        while (isSending){
+            ControlWatchdog watchdog = this.watchdog;
+            long heartbeat = 0;
+            if (watchdog != null){
+                watchdog.feed(watchdogSource);
+                heartbeat = watchdog.getHeartbeat();
+            }
+            if (!isDirty.getAndSet(false)){
+                if (heartbeat > 0) LockSupport.parkNanos(this, heartbeat);
+                else LockSupport.park(this);
+                continue;
+            }
+            if (watchdog != null && watchdog.isTripped()){
+                // цикл управления пропустил срок: ждем восстановления (onRecovered -> wakeUp)
+                isDirty.set(true);
+                LockSupport.parkNanos(this, heartbeat);
+                continue;
+            }
+            if (isPortsStopped.getAndSet(false)) resetPortConnections(true);
+            long delay = sendChangedValues(System.nanoTime());
+            if (delay > 0){
+                isDirty.set(true);
+                LockSupport.parkNanos(this, heartbeat > 0? Math.min(delay, heartbeat) : delay);
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает ограничители разгона и фильтры соединений портов всех дисплеев: остановка
+     * касается всех хабов, а не только портов текущего дисплея.
+     * @param isPortsStopped - true - порты остановлены: их значения считаются нулевыми,
+     *                       и разгон начнется с нуля.
+     */
+    private void resetPortConnections(boolean isPortsStopped){
+        List<List<PortConnection>> displays = source.getAllPortConnections();
+        for (int d = 0, numOfDisplays = displays.size(); d < numOfDisplays; ++d){
+            List<PortConnection> portConnections = displays.get(d);
+            for (int i = 0, size = portConnections.size(); i < size; ++i){
+                PortConnection portConn = portConnections.get(i);
+                if (isPortsStopped) portConn.port.portValue = 0;
+                portConn.slewLimiter.reset();
+                portConn.valueFilter.reset();
+            }
+        }
+    }
+
+    /**
+     * Отправляет изменившиеся (после характеристики и фильтра) значения осей в порты хабов.
+     * @param now - текущее время, нс.
+     * @return время до следующей допустимой отправки отложенных команд, нс;
+     *         0 - если отложенных команд нет.
+     */
+    private long sendChangedValues(long now){
+        long delay = 0;
+        int step = valueStep;
+        long maxAge = valueMaxAge;
+        List<PortConnection> portConnections = source.getActivePortConnections();
+        for (int i = 0, size = portConnections.size(); i < size; ++i){
+            PortConnection portConn = portConnections.get(i);
+            ResponseCurve curve = portConn.getResponseCurve();
+            int target = portConn.valueFilter.apply(curve.map(portConn.controllerAxis.axisValue),
+                    step, maxAge, now);
+            long pendingDelay = portConn.valueFilter.getPendingDelay(maxAge, now);
+            if (pendingDelay > 0 && (delay == 0 || pendingDelay < delay)) delay = pendingDelay;
+            if (portConn.port.portValue == target) continue;
+
+            long[] lastSendTime = lastSendTimes.get(portConn.hub.address);
+            if (lastSendTime == null){
+                lastSendTime = new long[]{now - minSendInterval};
+                lastSendTimes.put(portConn.hub.address, lastSendTime);
+            }
+            else if (lastSendTime[0] != now && now - lastSendTime[0] < minSendInterval){
+                long wait = minSendInterval - (now - lastSendTime[0]);
+                if (delay == 0 || wait < delay) delay = wait;
+                continue;
+            }
+            int value = portConn.slewLimiter.apply(portConn.port.portValue, target, curve.slewRate, now);
+            if (value != target){
+                // разгон не завершен: следующий шаг - через интервал шага
+                long wait = SlewRateLimiter.getStepInterval(curve.slewRate);
+                if (delay == 0 || wait < delay) delay = wait;
+                if (value == portConn.port.portValue) continue;
+            }
+            portConn.port.portValue = value;
+            portConn.hub.setOutputPortCommand(leService, portConn.port,
+                    portConn.controllerAxis.inputTime, portConn.controllerAxis.changeTime);
+            lastSendTime[0] = now;
+        }
+        return delay;
+    }
+}
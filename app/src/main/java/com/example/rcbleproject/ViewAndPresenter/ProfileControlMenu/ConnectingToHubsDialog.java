@@ -7,6 +7,8 @@ import android.app.Dialog;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,29 +19,42 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.rcbleproject.Bluetooth.HubConnection;
 import com.example.rcbleproject.Model.BluetoothHub;
 import com.example.rcbleproject.Model.Image;
 import com.example.rcbleproject.R;
+import com.example.rcbleproject.ViewAndPresenter.HubDiffCallback;
 import com.example.rcbleproject.ViewAndPresenter.IListViewAdapterForHubs;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 
 public class ConnectingToHubsDialog extends Dialog {
+    private static final String TAG = "ConnectingToHubs";
+    private static final long ANIMATION_PERIOD_MS = 500;
 
     private final List<BluetoothHub> hubs;
     private final ProfileControlActivity activity;
 
     private final Dialog dialogContext;
 
-    private Timer checkAvailabilitiesTimer;
     private String strConnecting;
     private TextView tvHeader;
+    private long startTime;             // время начала подключения, мс (SystemClock.elapsedRealtime)
+    private boolean isDismissed = false;
+
+    private final Runnable animation = new Runnable() {
+        @Override
+        public void run() {
+            updateTextView();
+            tvHeader.postDelayed(this, ANIMATION_PERIOD_MS);
+        }
+    };
 
     RecyclerView rvHubs;
+    HubsListAdapter adapter;
 
     public ConnectingToHubsDialog(ProfileControlActivity activity,
                                   TreeSet<BluetoothHub> hubs){
@@ -55,7 +70,7 @@ public class ConnectingToHubsDialog extends Dialog {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.connecting_to_hubs_dialog);
         rvHubs = findViewById(R.id.rv_hubs);
-        HubsListAdapter adapter = new HubsListAdapter(getContext(), hubs);
+        adapter = new HubsListAdapter(getContext(), hubs);
         rvHubs.setAdapter(adapter);
         activity.setLvAdapterConnectedDevices(adapter);
         dialogContext.setCancelable(false);
@@ -88,23 +103,44 @@ public class ConnectingToHubsDialog extends Dialog {
         else {
             strConnecting = activity.getString(R.string.connecting);
             tvHeader.setText(strConnecting+".");
+            tvHeader.postDelayed(animation, ANIMATION_PERIOD_MS);
+            connectHubs();
+        }
+    }
 
-            checkAvailabilitiesTimer = new Timer();
-            checkAvailabilitiesTimer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    if (checkAllAvailabilities())
-                        dismiss();
-                    activity.runOnUiThread(() -> updateTextView());
-                }
-            }, 1, 500);
+    /**
+     * Запускает подключение ко всем хабам профиля одновременно. Менеджер соединений
+     * ограничивает число параллельных попыток и повторяет неудачные; готовность каждого
+     * хаба отмечается по завершении его future, без периодического опроса.
+     */
+    private void connectHubs(){
+        startTime = SystemClock.elapsedRealtime();
+        for (BluetoothHub hub : hubs){
+            if (hub.availability) continue;
+            CompletableFuture<HubConnection> future = activity.connectDevice(hub.address);
+            if (future == null) continue;
+            future.whenComplete((connection, throwable) -> activity.runOnUiThread(() -> {
+                if (throwable != null || isDismissed) return;
+                adapter.setAvailability(true, hub.address);
+            }));
         }
     }
 
     public void dismiss(){
+        isDismissed = true;
+        if (tvHeader != null) tvHeader.removeCallbacks(animation);
         super.dismiss();
-        if (activity.checkProfileValid() && checkAvailabilitiesTimer != null)
-            checkAvailabilitiesTimer.cancel();
+    }
+
+    /**
+     * Закрывает окно, когда все хабы профиля готовы, и сообщает время подключения профиля.
+     */
+    private void dismissIfAllAvailable(){
+        if (isDismissed || !checkAllAvailabilities()) return;
+        if (startTime > 0)
+            Log.i(TAG, "profile time-to-ready = " + (SystemClock.elapsedRealtime() - startTime)
+                    + " ms, hubs: " + hubs.size());
+        dismiss();
     }
 
     @SuppressLint("SetTextI18n")
@@ -135,36 +171,45 @@ public class ConnectingToHubsDialog extends Dialog {
         HubsListAdapter(Context context, List<BluetoothHub> hubs){
             this.hubs = hubs;
             inflater = LayoutInflater.from(context);
+            setHasStableIds(true);
 
             if (checkAllAvailabilities())
                 dialogContext.dismiss();
         }
 
+        void setAvailability(boolean availability, String address){
+            BluetoothHub hub;
+            for (short idx = 0; idx < hubs.size(); ++idx){
+                hub = hubs.get(idx);
+                if (hub.address.equals(address)){
+                    if (hub.availability == availability) break;
+                    hub.availability = availability;
+                    notifyItemChanged(idx);
+                    break;
+                }
+            }
+            dismissIfAllAvailable();
+        }
+
         @Override
         public boolean addHub(BluetoothHub hub){ return false; }
 
         @Override
         public BluetoothHub removeHub(String address){ return null; }
 
-        @SuppressLint("NotifyDataSetChanged")
         @Override
         public void setAvailability(boolean availability, BluetoothDevice device){
-            BluetoothHub hub;
-            for (short idx = 0; idx < hubs.size(); ++idx){
-                hub = hubs.get(idx);
-                if (hub.address.equals(device.getAddress())){
-                    hub.availability = availability;
-                    notifyDataSetChanged();
-                    break;
-                }
-            }
-            if (checkAllAvailabilities())
-                dialogContext.dismiss();
+            setAvailability(availability, device.getAddress());
         }
 
         @Override
         public int getItemCount(){ return hubs.size(); }
 
+        @Override
+        public long getItemId(int position){
+            return HubDiffCallback.getStableId(hubs.get(position).address);
+        }
+
         @NonNull
         @Override
         public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType){
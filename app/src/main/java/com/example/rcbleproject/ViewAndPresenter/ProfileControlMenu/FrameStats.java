@@ -0,0 +1,67 @@
+package com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Класс FrameStats собирает статистику кадров потока отрисовки: число отрисованных кадров,
+ * число холостых кадров (перерисованных без изменений на экране) и время отрисовки.
+ * Записывает только поток отрисовки, читать можно из любого потока.
+ */
+public class FrameStats {
+    private volatile long renderedFrames = 0;
+    private volatile long idleFrames = 0;
+    private volatile long totalDrawTime = 0;    // нс
+    private volatile long maxDrawTime = 0;      // нс
+
+    /**
+     * Вызывается потоком отрисовки после каждого кадра.
+     * @param isChanged - true, если кадр был запрошен изменением элементов, фокуса, режима
+     *                  или дисплея; false - если кадр перерисован без изменений.
+     * @param drawTime - время отрисовки кадра, нс.
+     */
+    void onFrame(boolean isChanged, long drawTime){
+        renderedFrames++;
+        if (!isChanged) idleFrames++;
+        totalDrawTime += drawTime;
+        if (drawTime > maxDrawTime) maxDrawTime = drawTime;
+    }
+
+    /**
+     * Обнуляет статистику (например, при смене способа отрисовки). Вызывается потоком отрисовки.
+     */
+    void reset(){
+        renderedFrames = 0;
+        idleFrames = 0;
+        totalDrawTime = 0;
+        maxDrawTime = 0;
+    }
+
+    public long getRenderedFrames(){ return renderedFrames; }
+
+    /**
+     * @return число кадров, перерисованных без изменений (в режиме отрисовки по запросу - 0).
+     */
+    public long getIdleFrames(){ return idleFrames; }
+
+    /**
+     * @return среднее время отрисовки кадра, мкс.
+     */
+    public long getAverageDrawTimeUs(){
+        long frames = renderedFrames;
+        return frames == 0? 0 : totalDrawTime / frames / 1000;
+    }
+
+    /**
+     * @return максимальное время отрисовки кадра, мкс.
+     */
+    public long getMaxDrawTimeUs(){ return maxDrawTime / 1000; }
+
+    @NonNull
+    @Override
+    public String toString(){
+        return String.format(Locale.US, "frames: %d, idle: %d, draw avg: %d us, max: %d us",
+                getRenderedFrames(), getIdleFrames(), getAverageDrawTimeUs(), getMaxDrawTimeUs());
+    }
+}
@@ -6,36 +6,48 @@ import static com.example.rcbleproject.Container.currDisIdxPrefKey;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
+import android.view.View;
 
+import com.example.rcbleproject.Bluetooth.HandlerTaskScheduler;
+import com.example.rcbleproject.Bluetooth.HubConnectionManager;
 import com.example.rcbleproject.BuildConfig;
 import com.example.rcbleproject.Container;
+import com.example.rcbleproject.Control.ControlWatchdog;
 import com.example.rcbleproject.Database.DatabaseAdapterDisplays;
 import com.example.rcbleproject.Database.DatabaseAdapterElementsControl;
 import com.example.rcbleproject.Database.DatabaseAdapterPortConnections;
 import com.example.rcbleproject.Database.DatabaseAdapterProfilesControl;
 import com.example.rcbleproject.GridParams;
+import com.example.rcbleproject.Layout.ElementSpatialIndex;
 import com.example.rcbleproject.Model.BaseControlElement;
 import com.example.rcbleproject.Model.BluetoothHub;
-import com.example.rcbleproject.Model.Port;
 import com.example.rcbleproject.Model.PortConnection;
 import com.example.rcbleproject.R;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @SuppressLint("ViewConstructor")
-public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.Callback {
+public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.Callback,
+                                                           CommandSender.IPortConnectionsSource {
     public final int maxNumOfDisplays;
     public final GridParams gridParams;
     private static ArrayList<ArrayList<BaseControlElement>> controlElements;
@@ -43,7 +55,12 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
     private static ArrayList<Long> displayIDs;
     private static TreeMap<Long, BaseControlElement> controlElementTreeMap;
 
-    private DrawingThread drawingThread;
+    private volatile DrawingThread drawingThread;
+    private final boolean isOnDemandRendering;
+    private final FrameStats frameStats = new FrameStats();
+    // способ отрисовки текущей поверхности; меняется только при создании поверхности
+    private volatile ISurfaceRenderer surfaceRenderer;
+    private ISurfaceRenderer pendingRenderer = null;    // для следующей поверхности (главный поток)
     private final Paint paintBackground = new Paint();
     private final Paint paintGrid = new Paint();
 
@@ -54,13 +71,27 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
 
     private final long profileID;
     private boolean isValid = false;
-    private volatile  boolean isSending = false;
     private int countOfDisplays;
     private BaseControlElement focusedElement = null;
     private final ProfileControlActivity activity;
-    private final HashMap<Integer, BaseControlElement> touchedElements = new HashMap<>();
+    private final SparseArray<BaseControlElement> touchedElements = new SparseArray<>();
+    private static final int INDEX_CELL_STEPS = 4;   // размер ячейки индекса поиска в шагах сетки
+    private final IdentityHashMap<List<BaseControlElement>, ElementSpatialIndex<BaseControlElement>> spatialIndexes
+            = new IdentityHashMap<>();   // индексы поиска элементов по дисплеям
     private final TreeSet<BluetoothHub> hubsForProfileControl = new TreeSet<>();
-    private Thread threadSenderCommands;
+    private final CommandSender commandSender;
+    // источники отметок сторожа цикла управления
+    private static final int WATCHDOG_UI = 0, WATCHDOG_SENDER = 1;
+    private ControlWatchdog watchdog;
+    private final Runnable uiHeartbeat = new Runnable() {
+        @Override
+        public void run() {
+            ControlWatchdog watchdog = GameControllersDrawer.this.watchdog;
+            if (watchdog == null) return;
+            watchdog.feed(WATCHDOG_UI);
+            postDelayed(this, watchdog.getHeartbeat() / 1_000_000L);
+        }
+    };
 
     private volatile boolean isGridVisible;
     private volatile int currentDisplayIndex;
@@ -86,41 +117,90 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
         paintGrid.setStyle(Paint.Style.FILL);
 
         maxNumOfDisplays = activity.getResources().getInteger(R.integer.maxNumOfDisplays);
+        isOnDemandRendering = activity.getResources().getBoolean(R.bool.onDemandRendering);
+        surfaceRenderer = activity.getResources().getBoolean(R.bool.hardwareRendering)
+                ? new HardwareSurfaceRenderer() : new SoftwareSurfaceRenderer();
+        commandSender = new CommandSender(activity, this,
+                activity.getResources().getInteger(R.integer.maxCmdRatePerHub));
+        commandSender.setValueFilter(activity.getResources().getInteger(R.integer.portValueStep),
+                activity.getResources().getInteger(R.integer.portValueMaxAge));
     }
 
+    /**
+     * Запускает поток отправки команд и сторожа цикла управления: если главный поток или поток
+     * отправки зависнет дольше controlDeadline, порты всех хабов будут остановлены, и команды
+     * портов будут отбрасываться очередями записи хабов до восстановления цикла.
+     */
     public void startThreadSenderCmds(){
-        if (threadSenderCommands != null) return;
-        isSending = true;
-        threadSenderCommands = new Thread(() ->{
-            while (isSending){
-                for (PortConnection portConn : portConnections.get(currentDisplayIndex)){
-                    if (portConn.port.portValue != portConn.controllerAxis.axisValue){
-                        portConn.port.portValue = portConn.controllerAxis.axisValue;
-                        Port port = portConn.port;
-                        portConn.hub.setOutputPortCommand(activity, port);
+        for (List<PortConnection> portConns : portConnections)
+            for (PortConnection portConn : portConns)
+                portConn.controllerAxis.setAxisValueListener(commandSender);
+        HubConnectionManager connectionManager = Container.getConnectionManager(activity);
+        // остановка от сторожа предыдущего запуска могла остаться действующей
+        connectionManager.resumeAllPorts();
+        watchdog = new ControlWatchdog(2, activity.getResources().getInteger(R.integer.controlDeadline),
+                new HandlerTaskScheduler("ControlWatchdog"), new ControlWatchdog.IListener() {
+                    @Override
+                    public void onDeadlineMissed(int source, long lateness) {
+                        connectionManager.stopAllPorts();
+                        commandSender.onPortsStopped();
+                        if (BuildConfig.DEBUG)
+                            Log.w("APP_TAG", "control loop " + (source == WATCHDOG_UI? "ui" : "sender")
+                                    + " missed deadline by " + lateness / 1_000_000L + " ms, ports stopped");
                     }
-                }
-            }
-        });
-        threadSenderCommands.start();
+
+                    @Override
+                    public void onRecovered() {
+                        connectionManager.resumeAllPorts();
+                        // значения, переданные во время остановки, отброшены: отправляем заново
+                        commandSender.onPortsStopped();
+                    }
+                });
+        watchdog.arm();
+        commandSender.setWatchdog(watchdog, WATCHDOG_SENDER);
+        commandSender.start();
+        post(uiHeartbeat);
     }
 
+    /**
+     * Останавливает поток отправки команд и порты всех хабов; сторож остается активным,
+     * пока поток отправки не завершится.
+     */
     public void stopThreadSenderCmds(){
-        if (threadSenderCommands != null){
-            isSending = false;
-            boolean retry = true;
-            while (retry){
-                try {
-                    threadSenderCommands.join();
-                    retry = false;
-                }
-                catch (InterruptedException e){
-                    if (BuildConfig.DEBUG)
-                        Log.e(getResources().getString(R.string.app_tag), e.toString());
-                }
-            }
-            threadSenderCommands = null;
+        removeCallbacks(uiHeartbeat);
+        commandSender.stop();
+        HubConnectionManager connectionManager = Container.getConnectionManager(activity);
+        connectionManager.stopAllPorts();
+        commandSender.onPortsStopped();
+        if (watchdog != null){
+            commandSender.setWatchdog(null, WATCHDOG_SENDER);
+            watchdog.quit();
+            watchdog = null;
         }
+        // поток отправки завершен: остановка не должна отбрасывать команды других экранов
+        connectionManager.resumeAllPorts();
+        if (portConnections == null) return;
+        for (List<PortConnection> portConns : portConnections)
+            for (PortConnection portConn : portConns)
+                portConn.controllerAxis.setAxisValueListener(null);
+    }
+
+    /**
+     * Возвращает список действующих соединений портов текущего дисплея.
+     * @return список соединений портов.
+     */
+    @Override
+    public List<PortConnection> getActivePortConnections(){
+        return portConnections.get(currentDisplayIndex);
+    }
+
+    /**
+     * Возвращает списки соединений портов всех дисплеев профиля.
+     * @return списки соединений портов по дисплеям.
+     */
+    @Override
+    public List<List<PortConnection>> getAllPortConnections(){
+        return portConnections;
     }
 
     public static ArrayList<ArrayList<BaseControlElement>> getElementsControl() {
@@ -161,6 +241,7 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
         controlElements = new ArrayList<>(maxNumOfDisplays);
         portConnections = new ArrayList<>(maxNumOfDisplays);
         controlElementTreeMap = new TreeMap<>();
+        spatialIndexes.clear();
         isValid = false;
         for (Long displayID : displayIDs){
             ArrayList<BaseControlElement> elements = dbElementsControl.getElementsControlByDisplayID(
@@ -222,6 +303,7 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
         controlElements.get(currentDisplayIndex).remove(focusedElement.elementIndex);
         for (int i = 0; i < controlElements.get(currentDisplayIndex).size(); i++)
             controlElements.get(currentDisplayIndex).get(i).elementIndex = i;
+        invalidateSpatialIndex();
         setFocusOnElementWithUpperIndex();
     }
 
@@ -241,11 +323,11 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
         dbDisplays.deleteDisplayByID(displayIDs.get(currentDisplayIndex));
         if (currentDisplayIndex >= countOfDisplays - 1) {
             currentDisplayIndex--;
-            controlElements.remove(currentDisplayIndex + 1);
+            spatialIndexes.remove(controlElements.remove(currentDisplayIndex + 1));
             displayIDs.remove(currentDisplayIndex + 1);
         }
         else {
-            controlElements.remove(currentDisplayIndex);
+            spatialIndexes.remove(controlElements.remove(currentDisplayIndex));
             displayIDs.remove(currentDisplayIndex);
         }
         countOfDisplays--;
@@ -258,6 +340,7 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
         else currentDisplayIndex++;
         ((ProfileControlActivity)getContext()).showCurrentDisplayNum(currentDisplayIndex, countOfDisplays);
         setFocusOnElementWithUpperIndex();
+        commandSender.wakeUp();
     }
 
     public void prevDisplay(){
@@ -265,6 +348,7 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
         else currentDisplayIndex--;
         ((ProfileControlActivity)getContext()).showCurrentDisplayNum(currentDisplayIndex, countOfDisplays);
         setFocusOnElementWithUpperIndex();
+        commandSender.wakeUp();
     }
 
     public int getNumOfDisplays() {
@@ -279,6 +363,8 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
                 controlElement.alignToTheGrid();
         }
         isGridVisible = visibility;
+        invalidateSpatialIndex();
+        requestRender();
     }
 
     public boolean getGridVisibility(){
@@ -289,7 +375,10 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
     }
 
     public boolean getFocusedElementLocking() { return focusedElement.isElementLocked; }
-    public void setFocusedElementLocking(boolean locking){ focusedElement.isElementLocked = locking; }
+    public void setFocusedElementLocking(boolean locking){
+        focusedElement.isElementLocked = locking;
+        requestRender();
+    }
 
     public long getCurrentDisplayID() { return displayIDs.get(currentDisplayIndex); }
     public int getCountOfElements() { return controlElements.get(currentDisplayIndex).size(); }
@@ -300,6 +389,8 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
     public void setFocusedElementSize(int newElementSize) {
         if (focusedElement == null) return;
         focusedElement.setElementSize(newElementSize);
+        invalidateSpatialIndex();
+        requestRender();
     }
 
     public long getFocusedElementID(){
@@ -317,56 +408,89 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
     }
 
     public void onTouch(MotionEvent event){
+        handleTouch(event);
+        requestRender();
+    }
+
+    private void handleTouch(MotionEvent event){
         ArrayList<BaseControlElement> elementsOnDisplay = controlElements.get(currentDisplayIndex);
         int act = event.getActionMasked();
         int pointerIndex = event.getActionIndex();
         if (activity.getMode() == ProfileControlActivity.MODE_TYPE.EDIT_MODE){
             if (act == MotionEvent.ACTION_DOWN){
-                for (int i = elementsOnDisplay.size() - 1; i >= 0; i--){
-                    BaseControlElement element = elementsOnDisplay.get(i);
-                    if (element.contains(event.getX(pointerIndex), event.getY(pointerIndex))){
-                        setFocus(element);
-                        if (element.onTouch(event, isGridVisible))
-                            openElementControlMenu();
-                        return;
-                    }
+                BaseControlElement element = getSpatialIndex(elementsOnDisplay)
+                        .findTopmost(event.getX(pointerIndex), event.getY(pointerIndex));
+                if (element != null){
+                    setFocus(element);
+                    if (element.onTouch(event, isGridVisible))
+                        openElementControlMenu();
                 }
             }
             else if (focusedElement != null && focusedElement.contains(event.getX(pointerIndex), event.getY(pointerIndex))) {
                 if (focusedElement.onTouch(event, isGridVisible))
                     openElementControlMenu();
             }
+            // по окончании касания элемент мог быть перемещен или выровнен по сетке
+            if (act == MotionEvent.ACTION_UP) invalidateSpatialIndex();
         }
         else {
+            // время касания в шкале System.nanoTime (uptimeMillis - тот же монотонный таймер)
+            long inputTime = event.getEventTime() * 1_000_000L;
             if (act == MotionEvent.ACTION_POINTER_DOWN || act == MotionEvent.ACTION_DOWN){
-                for (int i = elementsOnDisplay.size() - 1; i >= 0; i--){
-                    BaseControlElement element = elementsOnDisplay.get(i);
-                    if (element.contains(event.getX(pointerIndex), event.getY(pointerIndex))){
-                        int pointerID = event.getPointerId(pointerIndex);
-                        element.onControl(pointerID, event);
-                        touchedElements.put(pointerID, element);
-                        return;
-                    }
+                BaseControlElement element = getSpatialIndex(elementsOnDisplay)
+                        .findTopmost(event.getX(pointerIndex), event.getY(pointerIndex));
+                if (element != null){
+                    int pointerID = event.getPointerId(pointerIndex);
+                    element.inputEventTime = inputTime;
+                    element.onControl(pointerID, event);
+                    touchedElements.put(pointerID, element);
                 }
             }
             else if (act == MotionEvent.ACTION_UP || act == MotionEvent.ACTION_POINTER_UP) {
                 int pointerID = event.getPointerId(event.getActionIndex());
-                if (touchedElements.containsKey(pointerID)) {
-                    touchedElements.get(pointerID).onControl(pointerID, event);
+                BaseControlElement element = touchedElements.get(pointerID);
+                if (element != null) {
+                    element.inputEventTime = inputTime;
+                    element.onControl(pointerID, event);
                     touchedElements.remove(pointerID);
                 }
             }
             else {
                 for (int idx = 0; idx < event.getPointerCount(); idx++){
                     int pointerID = event.getPointerId(idx);
-                    if (touchedElements.containsKey(pointerID)){
-                        touchedElements.get(pointerID).onControl(pointerID, event);
-                    }
+                    BaseControlElement element = touchedElements.get(pointerID);
+                    if (element == null) continue;
+                    element.inputEventTime = inputTime;
+                    element.onControl(pointerID, event);
                 }
             }
         }
     }
 
+    /**
+     * Возвращает индекс поиска элементов дисплея, создавая его при первом обращении.
+     */
+    private ElementSpatialIndex<BaseControlElement> getSpatialIndex(
+            ArrayList<BaseControlElement> elementsOnDisplay){
+        ElementSpatialIndex<BaseControlElement> index = spatialIndexes.get(elementsOnDisplay);
+        if (index == null){
+            index = new ElementSpatialIndex<>(elementsOnDisplay, gridParams.step * INDEX_CELL_STEPS,
+                    gridParams.displayWidth, gridParams.displayHeight);
+            spatialIndexes.put(elementsOnDisplay, index);
+        }
+        return index;
+    }
+
+    /**
+     * Помечает устаревшим индекс текущего дисплея после перемещения, изменения размера,
+     * добавления или удаления элементов.
+     */
+    private void invalidateSpatialIndex(){
+        ElementSpatialIndex<BaseControlElement> index =
+                spatialIndexes.get(controlElements.get(currentDisplayIndex));
+        if (index != null) index.invalidate();
+    }
+
     public void openElementControlMenu(){
         activity.onBtElementControlMenuClick();
     }
@@ -375,17 +499,61 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
         if (focusedElement != null) focusedElement.focus = false;
         focusedElement = element;
         if (element != null) focusedElement.focus = true;
+        requestRender();
+    }
+
+    /**
+     * Запрашивает перерисовку после изменения элементов, фокуса, режима или дисплея.
+     */
+    public void requestRender(){
+        DrawingThread thread = drawingThread;
+        if (thread != null) thread.requestRender();
+    }
+
+    /**
+     * @return статистика кадров потока отрисовки.
+     */
+    public FrameStats getFrameStats(){ return frameStats; }
+
+    /**
+     * Переключает способ отрисовки поверхности. Поверхность, уже подключенная к одному способу
+     * (lockCanvas или lockHardwareCanvas), не может быть заблокирована другим, поэтому новый
+     * способ применяется к новой поверхности: текущая пересоздается скрытием и повторным
+     * показом SurfaceView. Статистика кадров при этом сбрасывается, чтобы способы можно было
+     * сравнить. Вызывается в главном потоке.
+     * @param renderer - новый способ отрисовки.
+     */
+    public void setSurfaceRenderer(ISurfaceRenderer renderer){
+        if (renderer == null) return;
+        pendingRenderer = renderer;
+        if (drawingThread == null || getVisibility() != View.VISIBLE) return;
+        setVisibility(View.INVISIBLE);
+        post(() -> setVisibility(View.VISIBLE));
+    }
+
+    /**
+     * @return способ отрисовки, который действует или будет применен к следующей поверхности.
+     */
+    public ISurfaceRenderer getSurfaceRenderer(){
+        return pendingRenderer != null? pendingRenderer : surfaceRenderer;
     }
 
     @Override
     public void surfaceCreated(SurfaceHolder holder){
-        drawingThread = new DrawingThread(holder);
+        if (pendingRenderer != null){
+            surfaceRenderer = pendingRenderer;
+            pendingRenderer = null;
+            frameStats.reset();
+        }
+        drawingThread = new DrawingThread(holder, isOnDemandRendering, surfaceRenderer);
         drawingThread.start();
         if (BuildConfig.DEBUG) Log.v("APP_TAG2", "draw");
     }
 
     @Override
-    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {}
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        requestRender();
+    }
 
     @Override
     public void surfaceDestroyed(SurfaceHolder holder) {
@@ -402,52 +570,144 @@ public class GameControllersDrawer extends SurfaceView implements SurfaceHolder.
             }
         }
         drawingThread = null;
+        if (BuildConfig.DEBUG)
+            Log.v("APP_TAG2", surfaceRenderer.getName() + " renderer, " + frameStats);
     }
 
 
 
-    class DrawingThread extends Thread{
+    /**
+     * Поток отрисовки. Кадры синхронизированы с вертикальной разверткой через Choreographer
+     * потока. В режиме отрисовки по запросу кадр рисуется только после requestRender(),
+     * иначе - на каждом кадре развертки.
+     */
+    class DrawingThread extends HandlerThread implements Choreographer.FrameCallback {
         private final SurfaceHolder holder;
+        private final boolean isOnDemand;
         private volatile boolean running;
-
-        DrawingThread(SurfaceHolder holder){
+        private volatile Handler handler;
+        private Choreographer choreographer;
+        private boolean isFrameScheduled = false;   // изменяется только потоком отрисовки
+        private final AtomicBoolean isRenderRequested = new AtomicBoolean(true);
+        private final Runnable scheduleFrame = this::scheduleFrame;
+        private Bitmap gridLayer;                   // кэш фона с узлами сетки
+        private final ISurfaceRenderer renderer;    // способ отрисовки поверхности потока
+        private boolean isLockFailed = false;       // предыдущая блокировка поверхности не удалась
+
+        DrawingThread(SurfaceHolder holder, boolean isOnDemand, ISurfaceRenderer renderer){
+            super("DrawingThread");
             running = true;
             this.holder = holder;
+            this.isOnDemand = isOnDemand;
+            this.renderer = renderer;
         }
 
         public void setStop(){
             running = false;
+            quit();
+        }
+
+        /**
+         * Запрашивает отрисовку кадра на ближайшей вертикальной развертке.
+         * Повторные запросы до отрисовки кадра объединяются. Вызывается из любого потока.
+         */
+        void requestRender(){
+            if (!isRenderRequested.compareAndSet(false, true)) return;
+            Handler handler = this.handler;
+            if (handler != null) handler.post(scheduleFrame);
         }
 
         @Override
         public void run(){
-            while (running){
-                Canvas c = holder.lockCanvas();
-                if (c != null){
-                    try{
-                        c.drawRect(0, 0, c.getWidth(), c.getHeight(), paintBackground);
-                        if (isGridVisible && activity.getMode() == ProfileControlActivity.MODE_TYPE.EDIT_MODE){
-                            for (int i = gridParams.left; i <= c.getWidth(); i+= gridParams.step)
-                                for (int j = gridParams.top; j <= c.getHeight(); j+= gridParams.step){
-                                    c.drawCircle(i, j, 1, paintGrid);
-                                }
-                        }
-                        if (currentDisplayIndex < controlElements.size()){
-                            ArrayList<BaseControlElement> elementsOnDisplay = controlElements.get(currentDisplayIndex);
-                            for (BaseControlElement element : elementsOnDisplay){
-                                if (element != null)
-                                    element.onDraw(c, activity.getMode());
-                            }
-                        }
-                    }
-                    catch (Exception e){
-                        e.printStackTrace();
-                    }
-                    finally {
-                        holder.unlockCanvasAndPost(c);
+            super.run();
+            if (gridLayer != null) gridLayer.recycle();
+            gridLayer = null;
+        }
+
+        @Override
+        protected void onLooperPrepared(){
+            choreographer = Choreographer.getInstance();
+            handler = new Handler(getLooper());
+            scheduleFrame();
+        }
+
+        private void scheduleFrame(){
+            if (isFrameScheduled || !running) return;
+            isFrameScheduled = true;
+            choreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos){
+            isFrameScheduled = false;
+            if (!running) return;
+            boolean isChanged = isRenderRequested.getAndSet(false);
+            if (isChanged || !isOnDemand){
+                long startTime = SystemClock.elapsedRealtimeNanos();
+                if (drawFrame())
+                    frameStats.onFrame(isChanged, SystemClock.elapsedRealtimeNanos() - startTime);
+                else if (isOnDemand){
+                    // кадр не отрисован: повторяем на следующей развертке
+                    isRenderRequested.set(true);
+                    scheduleFrame();
+                }
+            }
+            if (!isOnDemand) scheduleFrame();
+        }
+
+        /**
+         * @return true - если кадр отрисован; false - если поверхность не удалось заблокировать.
+         */
+        private boolean drawFrame(){
+            Canvas c = renderer.lockCanvas(holder);
+            if (c == null){
+                if (!isLockFailed && BuildConfig.DEBUG)
+                    Log.w("APP_TAG2", renderer.getName() + " renderer: surface lock failed");
+                isLockFailed = true;
+                return false;
+            }
+            isLockFailed = false;
+            try{
+                if (isGridVisible && activity.getMode() == ProfileControlActivity.MODE_TYPE.EDIT_MODE)
+                    c.drawBitmap(getGridLayer(c.getWidth(), c.getHeight()), 0, 0, null);
+                else c.drawRect(0, 0, c.getWidth(), c.getHeight(), paintBackground);
+                if (currentDisplayIndex < controlElements.size()){
+                    ArrayList<BaseControlElement> elementsOnDisplay = controlElements.get(currentDisplayIndex);
+                    ProfileControlActivity.MODE_TYPE mode = activity.getMode();
+                    // индексный цикл - без создания итератора на каждом кадре
+                    for (int i = 0; i < elementsOnDisplay.size(); ++i){
+                        BaseControlElement element = elementsOnDisplay.get(i);
+                        if (element != null)
+                            element.onDraw(c, mode);
                     }
                 }
             }
+            catch (Exception e){
+                e.printStackTrace();
+            }
+            finally {
+                renderer.unlockCanvasAndPost(holder, c);
+            }
+            return true;
+        }
+
+        /**
+         * Возвращает фон с узлами сетки. Фон рисуется один раз и перестраивается только
+         * при изменении размеров поверхности.
+         */
+        private Bitmap getGridLayer(int width, int height){
+            if (gridLayer != null && gridLayer.getWidth() == width && gridLayer.getHeight() == height)
+                return gridLayer;
+            if (gridLayer != null) gridLayer.recycle();
+            // фон непрозрачный - достаточно формата без альфа-канала
+            gridLayer = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            Canvas canvas = new Canvas(gridLayer);
+            canvas.drawRect(0, 0, width, height, paintBackground);
+            for (int i = gridParams.left; i <= width; i+= gridParams.step)
+                for (int j = gridParams.top; j <= height; j+= gridParams.step){
+                    canvas.drawCircle(i, j, 1, paintGrid);
+                }
+            return gridLayer;
         }
     }
 }
@@ -0,0 +1,22 @@
+package com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu;
+
+import android.graphics.Canvas;
+import android.view.SurfaceHolder;
+
+/**
+ * Аппаратная отрисовка: кадр растеризуется GPU (SurfaceHolder.lockHardwareCanvas(), API 26+).
+ * Растровые изображения (фон с сеткой, кэши элементов) загружаются в текстуры и
+ * перезагружаются только после изменения.
+ */
+public class HardwareSurfaceRenderer implements ISurfaceRenderer {
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder){ return holder.lockHardwareCanvas(); }
+
+    @Override
+    public void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas){
+        holder.unlockCanvasAndPost(canvas);
+    }
+
+    @Override
+    public String getName(){ return "hardware"; }
+}
@@ -0,0 +1,30 @@
+package com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu;
+
+import android.graphics.Canvas;
+import android.view.SurfaceHolder;
+
+/**
+ * Способ получения холста поверхности, на которой GameControllersDrawer рисует элементы
+ * управления. Реализации различаются только тем, кто растеризует кадр (процессор или GPU),
+ * поэтому один и тот же профиль можно сравнить на разных способах отрисовки.
+ */
+public interface ISurfaceRenderer {
+    /**
+     * Блокирует поверхность для отрисовки кадра.
+     * @param holder - держатель поверхности.
+     * @return холст для отрисовки; null - если поверхность недоступна.
+     */
+    Canvas lockCanvas(SurfaceHolder holder);
+
+    /**
+     * Отправляет отрисованный кадр на экран и освобождает поверхность.
+     * @param holder - держатель поверхности.
+     * @param canvas - холст, полученный от lockCanvas.
+     */
+    void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas);
+
+    /**
+     * @return название способа отрисовки для журнала и статистики кадров.
+     */
+    String getName();
+}
@@ -0,0 +1,126 @@
+package com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.example.rcbleproject.Bluetooth.HubConnection;
+import com.example.rcbleproject.Bluetooth.HubConnectionManager;
+import com.example.rcbleproject.Bluetooth.HubWriteQueue;
+import com.example.rcbleproject.BuildConfig;
+import com.example.rcbleproject.Container;
+import com.example.rcbleproject.R;
+import com.example.rcbleproject.Telemetry.LatencyHistogram;
+import com.example.rcbleproject.Telemetry.LatencyStats;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Класс LatencyOverlay - отладочный вывод задержек команд поверх экрана управления:
+ * для каждого подключенного хаба показываются p50/p99 задержки от касания до завершения
+ * записи (или до принятия записи стеком, если о завершении стек не сообщает), а также частота
+ * значений портов, переданных в очередь записи, и частота записей в характеристику.
+ * Долгое нажатие сохраняет статистику всех этапов в CSV-файл каталога приложения
+ * (запись выполняется в фоновом потоке).
+ * Используется только в главном потоке.
+ */
+public class LatencyOverlay {
+    private static final long UPDATE_PERIOD_MS = 500;
+
+    private final Context context;
+    private final TextView tvOverlay;
+    private final HubConnectionManager connectionManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final StringBuilder text = new StringBuilder();
+    private boolean isExporting = false;
+    private final Runnable update = new Runnable() {
+        @Override
+        public void run() {
+            updateText();
+            handler.postDelayed(this, UPDATE_PERIOD_MS);
+        }
+    };
+
+    public LatencyOverlay(Context context, TextView tvOverlay){
+        this.context = context;
+        this.tvOverlay = tvOverlay;
+        connectionManager = Container.getConnectionManager(context);
+        tvOverlay.setOnLongClickListener((View v) -> {
+            exportCsv();
+            return true;
+        });
+    }
+
+    public void start(){
+        tvOverlay.setVisibility(View.VISIBLE);
+        handler.removeCallbacks(update);
+        handler.post(update);
+    }
+
+    public void stop(){
+        handler.removeCallbacks(update);
+        tvOverlay.setVisibility(View.GONE);
+    }
+
+    private void updateText(){
+        text.setLength(0);
+        long now = System.nanoTime();
+        for (HubConnection connection : connectionManager.getConnections()){
+            LatencyStats stats = connection.latencyStats;
+            int stage = LatencyStats.COMPLETE;
+            if (stats.getHistogram(stage).getCount() == 0) stage = LatencyStats.WRITE;
+            LatencyHistogram histogram = stats.getHistogram(stage);
+            if (histogram.getCount() == 0) continue;
+            if (text.length() > 0) text.append('\n');
+            text.append(String.format(Locale.US, "%s %s: %.1f / %.1f ms", connection.address,
+                    LatencyStats.getStageName(stage), histogram.getPercentileMicros(50) / 1000f,
+                    histogram.getPercentileMicros(99) / 1000f));
+            HubWriteQueue writeQueue = connection.getWriteQueue();
+            if (writeQueue != null)
+                text.append(String.format(Locale.US, ", %.0f cmd/s, %.0f w/s",
+                        writeQueue.getPortValueRate().getRate(now), writeQueue.getWriteRate().getRate(now)));
+        }
+        tvOverlay.setText(text);
+    }
+
+    /**
+     * Сохраняет статистику задержек всех хабов в файл latency_<время>.csv. Файл записывается
+     * в фоновом потоке, результат сообщается в главном потоке.
+     */
+    private void exportCsv(){
+        if (isExporting) return;
+        File dir = context.getExternalFilesDir(null);
+        if (dir == null){
+            // внешнее хранилище не подключено
+            Toast.makeText(context, R.string.latency_export_unavailable, Toast.LENGTH_LONG).show();
+            return;
+        }
+        isExporting = true;
+        File file = new File(dir, "latency_" + System.currentTimeMillis() + ".csv");
+        new Thread(() -> {
+            String message;
+            try (Writer writer = new FileWriter(file)){
+                writer.append(LatencyStats.CSV_HEADER).append('\n');
+                for (HubConnection connection : connectionManager.getConnections())
+                    connection.latencyStats.writeCsv(writer, connection.address);
+                message = file.getAbsolutePath();
+            } catch (IOException e){
+                if (BuildConfig.DEBUG) Log.e("APP_TAG", "latency csv export failed", e);
+                message = e.getMessage();
+            }
+            String result = message;
+            handler.post(() -> {
+                isExporting = false;
+                Toast.makeText(context, result, Toast.LENGTH_LONG).show();
+            });
+        }, "LatencyCsvExport").start();
+    }
+}
@@ -9,6 +9,7 @@ import static com.example.rcbleproject.Container.numOfElementsPrefKey;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.bluetooth.BluetoothGatt;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.net.Uri;
@@ -31,18 +32,23 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 
+import com.example.rcbleproject.BuildConfig;
 import com.example.rcbleproject.ViewAndPresenter.AddingElementsMenu.AddingElementControlActivity;
 import com.example.rcbleproject.ViewAndPresenter.BluetoothLeService;
 import com.example.rcbleproject.Container;
 import com.example.rcbleproject.Database.DatabaseAdapterDisplays;
 import com.example.rcbleproject.Database.DatabaseAdapterElementsControl;
 import com.example.rcbleproject.Database.DatabaseAdapterProfilesControl;
+import com.example.rcbleproject.Model.BluetoothHub;
 import com.example.rcbleproject.R;
 import com.example.rcbleproject.ViewAndPresenter.SettingPortConnectionsMenu.SettingPortConnectionsActivity;
 import com.example.rcbleproject.ViewAndPresenter.ConfirmRemoveDialogFragment;
 import com.example.rcbleproject.ViewAndPresenter.IRemovable;
 import com.example.rcbleproject.databinding.ActivityProfileControlBinding;
 
+import java.util.ArrayList;
+import java.util.Collection;
+
 public class ProfileControlActivity extends BluetoothLeService implements IRemovable {
     public static final String galleryRequestCode = "gallery_request_code";
 
@@ -51,6 +57,8 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
     private ActivityProfileControlBinding binding;
     private MODE_TYPE mode;
     private ConnectingToHubsDialog dialog = null;
+    private LatencyOverlay latencyOverlay = null;    // только в отладочной сборке
+    private TelemetryOverlay telemetryOverlay;
 
     private int maxNumOfDisplays;
     private boolean isOnCreate = false;
@@ -126,6 +134,9 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
                     @Override
                     public void onStopTrackingTouch(SeekBar seekBar) {}
                 });
+        if (BuildConfig.DEBUG) latencyOverlay = new LatencyOverlay(this, binding.tvLatencyOverlay);
+        telemetryOverlay = new TelemetryOverlay(this, binding.tvTelemetryOverlay,
+                gameControllersDrawer.getHubsForProfileControl());
         isOnCreate = true;
         setMode(MODE_TYPE.GAME_MODE);
     }
@@ -135,10 +146,15 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
         super.onResume();
         isOnCreate = false;
         gameControllersDrawer.updateElementsControl();
+        // хабы профиля известны только после загрузки элементов: сканирование запускается здесь
+        startLEScan();
         menuItemsInit();
         gameControllersDrawer.startThreadSenderCmds();
+        updateConnectionPriority();
         startConnectingToHubsDialog();
         setFullscreenMode();
+        if (latencyOverlay != null) latencyOverlay.start();
+        telemetryOverlay.start();
     }
 
     public void setFullscreenMode(){
@@ -149,6 +165,7 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
     public void setMode(MODE_TYPE newMode){
         if (mode != newMode){
             mode = newMode;
+            updateConnectionPriority();
             if (mode == MODE_TYPE.GAME_MODE) {
                 binding.btAddElementControl.setVisibility(View.GONE);
                 //binding.btElementControlMenu.setVisibility(View.GONE);
@@ -164,9 +181,40 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
                 binding.btBack.setImageDrawable(getDrawable(R.drawable.baseline_save_20));
                 binding.btProfileControlMenu.setText(R.string.profile_parameters);
             }
+            // элементы и сетка рисуются по-разному в игровом режиме и режиме редактирования
+            gameControllersDrawer.requestRender();
         }
     }
 
+    /**
+     * Запрашивает высокий приоритет соединений с хабами в игровом режиме и режим
+     * энергосбережения - в режиме редактирования.
+     */
+    private void updateConnectionPriority(){
+        setConnectionPriority(mode == MODE_TYPE.GAME_MODE
+                ? BluetoothGatt.CONNECTION_PRIORITY_HIGH
+                : BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER);
+    }
+
+    /**
+     * @return false - сканирование запускается в onResume() после загрузки элементов профиля.
+     */
+    @Override
+    protected boolean isScanStartedOnResume(){ return false; }
+
+    /**
+     * @return mac-адреса хабов, используемых профилем: сканирование для их переподключения
+     *         прекращается, как только все они подключены.
+     */
+    @Override
+    protected Collection<String> getHubsToReconnect(){
+        ArrayList<String> addresses = new ArrayList<>();
+        if (gameControllersDrawer == null) return addresses;
+        for (BluetoothHub hub : gameControllersDrawer.getHubsForProfileControl())
+            addresses.add(hub.address);
+        return addresses;
+    }
+
     public boolean checkProfileValid(){
         if (gameControllersDrawer == null) return false;
         return gameControllersDrawer.getIsValid();
@@ -203,6 +251,9 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
 
         item = binding.nwMenuProfileControl.getMenu().findItem(R.id.item_remove_display);
         item.setEnabled(true);
+
+        item = binding.nwMenuProfileControl.getMenu().findItem(R.id.item_hardware_rendering);
+        item.setChecked(gameControllersDrawer.getSurfaceRenderer() instanceof HardwareSurfaceRenderer);
     }
 
     @SuppressLint({"UseCompatLoadingForDrawables", "SetTextI18n"})
@@ -230,14 +281,18 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
     @Override
     protected void onPause(){
         super.onPause();
-        gameControllersDrawer.saveElementsParams();
+        // порты останавливаются до сохранения параметров, чтобы не ждать записи в БД
         gameControllersDrawer.stopThreadSenderCmds();
+        gameControllersDrawer.saveElementsParams();
+        setConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER);
         SharedPreferences preferences = getSharedPreferences(appPrefKey, MODE_PRIVATE);
         preferences.edit().putLong(currDisIdPrefKey +profileID, gameControllersDrawer.getCurrentDisplayID())
                 .putInt(numOfElementsPrefKey+profileID, gameControllersDrawer.getCountOfElements())
                 .putInt(numOfDisplaysPrefKey+profileID, gameControllersDrawer.getNumOfDisplays())
                 .commit();
         stopConnectingToHubsDialog();
+        if (latencyOverlay != null) latencyOverlay.stop();
+        telemetryOverlay.stop();
     }
 
     @Override
@@ -286,6 +341,13 @@ public class ProfileControlActivity extends BluetoothLeService implements IRemov
                     item.setIcon(R.drawable.baseline_grid_on_20);
                 }
                 break;
+            case R.id.item_hardware_rendering:
+                boolean isHardware = !(gameControllersDrawer.getSurfaceRenderer()
+                        instanceof HardwareSurfaceRenderer);
+                gameControllersDrawer.setSurfaceRenderer(isHardware
+                        ? new HardwareSurfaceRenderer() : new SoftwareSurfaceRenderer());
+                item.setChecked(isHardware);
+                break;
             case R.id.item_add_display:
                 if (gameControllersDrawer.getCountOfDisplays() >= maxNumOfDisplays){
                     Toast.makeText(this, R.string.prohibit_add_of_disp, Toast.LENGTH_SHORT).show();
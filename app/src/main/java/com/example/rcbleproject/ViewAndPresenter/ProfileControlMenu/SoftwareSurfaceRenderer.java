@@ -0,0 +1,20 @@
+package com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu;
+
+import android.graphics.Canvas;
+import android.view.SurfaceHolder;
+
+/**
+ * Программная отрисовка: кадр растеризуется процессором (SurfaceHolder.lockCanvas()).
+ */
+public class SoftwareSurfaceRenderer implements ISurfaceRenderer {
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder){ return holder.lockCanvas(); }
+
+    @Override
+    public void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas){
+        holder.unlockCanvasAndPost(canvas);
+    }
+
+    @Override
+    public String getName(){ return "software"; }
+}
@@ -0,0 +1,131 @@
+package com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import com.example.rcbleproject.Bluetooth.HubTelemetry;
+import com.example.rcbleproject.Bluetooth.HubWriteQueue;
+import com.example.rcbleproject.Model.BluetoothHub;
+import com.example.rcbleproject.Protocol.HubMessage;
+import com.example.rcbleproject.Telemetry.TelemetryRing;
+import com.example.rcbleproject.ViewAndPresenter.BluetoothLeService;
+
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Класс TelemetryOverlay выводит поверх экрана управления телеметрию хабов профиля:
+ * заряд батареи, уровень сигнала, нагрузку моторов и скорость валов моторов по портам.
+ * Оверлей - единственный потребитель кольцевых буферов телеметрии хабов (HubTelemetry.getRing()):
+ * при каждом обновлении буферы вычерпываются, а скорость порта вычисляется по пройденному
+ * за период обновления углу и максимальная нагрузка - по всем записям периода.
+ * Используется только в главном потоке.
+ */
+public class TelemetryOverlay {
+    private static final long UPDATE_PERIOD_MS = 1000;
+    private static final char[] PORT_NAMES = {'A', 'B', 'C', 'D'};
+
+    /**
+     * Записи телеметрии одного хаба за период обновления.
+     */
+    private static class HubWindow implements TelemetryRing.ITelemetryConsumer {
+        final int[] lastPositions = new int[HubWriteQueue.MAX_PORTS];
+        final long[] travels = new long[HubWriteQueue.MAX_PORTS];     // пройденный угол, градусы
+        int maxLoad = HubTelemetry.UNKNOWN;
+
+        HubWindow(){
+            for (int idx = 0; idx < HubWriteQueue.MAX_PORTS; ++idx)
+                lastPositions[idx] = HubTelemetry.UNKNOWN;
+        }
+
+        void reset(){
+            for (int idx = 0; idx < HubWriteQueue.MAX_PORTS; ++idx) travels[idx] = 0;
+            maxLoad = HubTelemetry.UNKNOWN;
+        }
+
+        @Override
+        public void onTelemetry(int type, int portNum, int value, long timeNanos){
+            if (type == HubMessage.MOTOR_LOAD) maxLoad = Math.max(maxLoad, value);
+            else if (type == HubMessage.IO_DETACHED && portNum >= 0 && portNum < HubWriteQueue.MAX_PORTS)
+                lastPositions[portNum] = HubTelemetry.UNKNOWN;
+            else if (type == HubMessage.PORT_VALUE && portNum >= 0 && portNum < HubWriteQueue.MAX_PORTS){
+                if (lastPositions[portNum] != HubTelemetry.UNKNOWN)
+                    travels[portNum] += Math.abs(value - lastPositions[portNum]);
+                lastPositions[portNum] = value;
+            }
+        }
+    }
+
+    private final BluetoothLeService leService;
+    private final TextView tvOverlay;
+    private final Collection<BluetoothHub> hubs;
+    private final HashMap<String, HubWindow> windows = new HashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final StringBuilder text = new StringBuilder();
+    private final Runnable update = new Runnable() {
+        @Override
+        public void run() {
+            updateText();
+            handler.postDelayed(this, UPDATE_PERIOD_MS);
+        }
+    };
+
+    /**
+     * @param leService - сервис, через который доступна телеметрия хабов.
+     * @param tvOverlay - поле вывода.
+     * @param hubs - хабы профиля (коллекция может обновляться в главном потоке).
+     */
+    public TelemetryOverlay(BluetoothLeService leService, TextView tvOverlay,
+                            Collection<BluetoothHub> hubs){
+        this.leService = leService;
+        this.tvOverlay = tvOverlay;
+        this.hubs = hubs;
+    }
+
+    public void start(){
+        handler.removeCallbacks(update);
+        handler.post(update);
+    }
+
+    public void stop(){
+        handler.removeCallbacks(update);
+        tvOverlay.setVisibility(View.GONE);
+    }
+
+    private void updateText(){
+        text.setLength(0);
+        for (BluetoothHub hub : hubs){
+            HubTelemetry telemetry = leService.getHubTelemetry(hub.address);
+            if (telemetry == null) continue;
+            HubWindow window = windows.get(hub.address);
+            if (window == null) windows.put(hub.address, window = new HubWindow());
+            window.reset();
+            telemetry.getRing().drain(window);
+
+            if (text.length() > 0) text.append('\n');
+            text.append(hub.getName());
+            appendValue(" ", telemetry.getBatteryLevel(), "%");
+            appendValue(" ", telemetry.getRssi(), " dBm");
+            int load = window.maxLoad != HubTelemetry.UNKNOWN? window.maxLoad : telemetry.getMotorLoad();
+            appendValue(" load ", load, "%");
+            for (int idx = 0; idx < HubWriteQueue.MAX_PORTS; ++idx){
+                // положение неподвижного вала не присылается: берем последнее известное
+                if (window.lastPositions[idx] == HubTelemetry.UNKNOWN)
+                    window.lastPositions[idx] = telemetry.getPortPosition(idx);
+                if (window.lastPositions[idx] == HubTelemetry.UNKNOWN) continue;
+                text.append(' ').append(PORT_NAMES[idx]);
+                appendValue(" ", (int) (window.travels[idx] * 1000 / UPDATE_PERIOD_MS), "°/s");
+            }
+        }
+        tvOverlay.setText(text);
+        tvOverlay.setVisibility(text.length() > 0? View.VISIBLE : View.GONE);
+    }
+
+    private void appendValue(String prefix, int value, String suffix){
+        text.append(prefix);
+        if (value == HubTelemetry.UNKNOWN) text.append('—');
+        else text.append(value).append(suffix);
+    }
+}
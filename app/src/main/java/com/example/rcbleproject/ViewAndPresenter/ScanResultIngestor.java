@@ -0,0 +1,124 @@
+package com.example.rcbleproject.ViewAndPresenter;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.ScanResult;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+
+import com.example.rcbleproject.Model.BluetoothHub;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Класс ScanResultIngestor обрабатывает результаты сканирования в одном фоновом потоке.
+ * Устройства различаются по адресу через HashMap: хаб создается только для первого
+ * объявления устройства, а повторные объявления лишь обновляют время lastTimeAdv.
+ * Сохраненные хабы, к которым запущено подключение, запоминаются отдельно, поэтому их
+ * повторные объявления отбрасываются до отключения хаба (forget).
+ * Изменения списка найденных хабов передаются в главный поток пачками, не чаще одного
+ * раза за период обновления интерфейса.
+ */
+class ScanResultIngestor {
+    private static final int MSG_SCAN_RESULT = 1;
+
+    private final BluetoothLeService service;
+    private final long uiUpdatePeriod;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+
+    private final HashMap<String, BluetoothHub> knownHubs = new HashMap<>();  // только поток разбора
+    private final HashSet<String> savedHubs = new HashSet<>();              // только поток разбора
+    private final ArrayList<BluetoothHub> pendingHubs = new ArrayList<>();   // под монитором pendingHubs
+    private final ArrayList<BluetoothHub> flushedHubs = new ArrayList<>();   // только главный поток
+    private boolean isFlushScheduled = false;                               // под монитором pendingHubs
+
+    private final Runnable flush = this::flush;
+
+    /**
+     * @param service - активность, принимающая найденные хабы.
+     * @param uiUpdatePeriod - минимальный период обновления списка найденных хабов, мс.
+     */
+    ScanResultIngestor(BluetoothLeService service, long uiUpdatePeriod){
+        this.service = service;
+        this.uiUpdatePeriod = uiUpdatePeriod;
+        thread = new HandlerThread("ScanResultIngestor");
+        thread.start();
+        handler = new Handler(thread.getLooper(), msg -> {
+            if (msg.what != MSG_SCAN_RESULT) return false;
+            ingest((ScanResult) msg.obj);
+            return true;
+        });
+    }
+
+    /**
+     * Вызывается из ScanCallback.onScanResult. Сообщение берется из пула Message,
+     * поэтому передача результата в поток разбора не создает новых объектов.
+     */
+    void offer(ScanResult result){
+        handler.obtainMessage(MSG_SCAN_RESULT, result).sendToTarget();
+    }
+
+    /**
+     * Забывает устройство, чтобы его следующее объявление снова добавило хаб в список
+     * найденных или запустило подключение к сохраненному хабу (например, после подключения
+     * или отключения хаба).
+     */
+    void forget(String address){
+        handler.post(() -> {
+            knownHubs.remove(address);
+            savedHubs.remove(address);
+        });
+    }
+
+    void quit(){
+        handler.removeCallbacksAndMessages(null);
+        uiHandler.removeCallbacks(flush);
+        thread.quitSafely();
+    }
+
+    private void ingest(ScanResult result){
+        BluetoothDevice device = result.getDevice();
+        if (device == null) return;
+        String address = device.getAddress();
+        if (savedHubs.contains(address)) return;
+        BluetoothHub hub = knownHubs.get(address);
+        if (hub != null){
+            hub.lastTimeAdv = System.currentTimeMillis();
+            if (!hub.isActive) schedule(hub);
+            return;
+        }
+        if (service.onSavedHubAdvertised(device)){
+            savedHubs.add(address);
+            return;
+        }
+        if (!service.isCollectingFoundHubs()) return;
+        hub = new BluetoothHub(result, service, false);
+        hub.lastTimeAdv = System.currentTimeMillis();
+        knownHubs.put(address, hub);
+        schedule(hub);
+    }
+
+    private void schedule(BluetoothHub hub){
+        synchronized (pendingHubs){
+            if (!pendingHubs.contains(hub)) pendingHubs.add(hub);
+            if (isFlushScheduled) return;
+            isFlushScheduled = true;
+        }
+        uiHandler.postDelayed(flush, uiUpdatePeriod);
+    }
+
+    private void flush(){
+        synchronized (pendingHubs){
+            flushedHubs.addAll(pendingHubs);
+            pendingHubs.clear();
+            isFlushScheduled = false;
+        }
+        service.onHubsFound(flushedHubs);
+        flushedHubs.clear();
+    }
+}
@@ -154,7 +154,6 @@ public class PortConnectionParamsDialog extends Dialog {
         @Override
         public BluetoothHub removeHub(String address){ return null; }
 
-        @SuppressLint("NotifyDataSetChanged")
         @Override
         public void setAvailability(boolean availability, BluetoothDevice device){
             if (typeOfParam == ParamType.HUB){
@@ -162,8 +161,9 @@ public class PortConnectionParamsDialog extends Dialog {
                 for (short idx = 0; idx < paramsList.size(); ++idx){
                     hub = (BluetoothHub) paramsList.get(idx);
                     if (hub.address.equals(device.getAddress())){
+                        if (hub.availability == availability) break;
                         hub.availability = availability;
-                        notifyDataSetChanged();
+                        notifyItemChanged(idx);
                         break;
                     }
                 }
@@ -236,7 +236,7 @@ public class PortConnectionParamsDialog extends Dialog {
                     case CONTROLLER_AXIS:
                         portConnection.controllerAxis = (BaseControlElement.ControllerAxis) param;
                 }
-                activity.notifyDataSetChanged();
+                activity.notifyPortConnectionChanged(portConnection);
                 dialogContext.dismiss();
             });
         }
@@ -8,12 +8,16 @@ import android.annotation.SuppressLint;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.rcbleproject.Container;
 import com.example.rcbleproject.Database.DatabaseAdapterPortConnections;
 import com.example.rcbleproject.Model.BaseControlElement;
@@ -26,12 +30,27 @@ import com.example.rcbleproject.ViewAndPresenter.ProfileControlMenu.GameControll
 import java.util.ArrayList;
 import java.util.List;
 
-public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
+public class PortConnectionsAdapter extends RecyclerView.Adapter<PortConnectionsAdapter.ViewHolder> {
     private final SettingPortConnectionsActivity activity;
     private static final int layout = R.layout.item_port_connection;
     private final ArrayList<Long> displayIds;
     public final List<PortConnection> portConnections;
     public final List<BluetoothHub> hubs;
+    private final AsyncListDiffer<PortConnection> differ =
+            new AsyncListDiffer<>(this, new DiffUtil.ItemCallback<PortConnection>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull PortConnection oldItem,
+                                               @NonNull PortConnection newItem){
+                    return oldItem.getId() == newItem.getId();
+                }
+
+                // подключения изменяются на месте и сообщаются через notifyPortConnectionChanged
+                @Override
+                public boolean areContentsTheSame(@NonNull PortConnection oldItem,
+                                                  @NonNull PortConnection newItem){
+                    return oldItem == newItem;
+                }
+            });
     private final LayoutInflater inflater;
     private final int currentDisplayIndex, numOfDisplays;
     private final DatabaseAdapterPortConnections dbPortConn;
@@ -42,8 +61,6 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
 
     public PortConnectionsAdapter(SettingPortConnectionsActivity context, long currentDisplayID,
                                   int currentDisplayIndex, int numOfDisplays, List<PortConnection> portConnections){
-        super(context, layout, portConnections);
-
         activity = context;
         this.portConnections = portConnections;
         inflater = LayoutInflater.from(context);
@@ -53,6 +70,8 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
         this.dbPortConn = Container.getDbPortConnections(activity);
         initControllersAxes();
         displayIds = GameControllersDrawer.getDisplayIDs();
+        setHasStableIds(true);
+        differ.submitList(new ArrayList<>(portConnections));
     }
 
     private void initControllersAxes(){
@@ -68,6 +87,34 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
         }
     }
 
+    /**
+     * Добавляет подключение порта в конец списка.
+     */
+    public void addPortConnection(PortConnection portConnection){
+        portConnections.add(portConnection);
+        differ.submitList(new ArrayList<>(portConnections));
+    }
+
+    /**
+     * Перепривязывает строку подключения после изменения его хаба, порта или оси.
+     */
+    public void notifyPortConnectionChanged(PortConnection portConnection){
+        int position = differ.getCurrentList().indexOf(portConnection);
+        if (position >= 0) notifyItemChanged(position);
+    }
+
+    private PortConnection getPortConnection(ViewHolder holder){
+        int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) return null;
+        return differ.getCurrentList().get(position);
+    }
+
+    @Override
+    public int getItemCount(){ return differ.getCurrentList().size(); }
+
+    @Override
+    public long getItemId(int position){ return differ.getCurrentList().get(position).getId(); }
+
     @SuppressLint("UseCompatLoadingForDrawables")
     public void setPortsActiveness(ViewHolder holder, boolean activeness){
         isPortsActive = activeness;
@@ -75,15 +122,15 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
             holder.v_port.setBackground(activity.getDrawable(R.drawable.rect_white_border_color_indigo_dye_back));
             holder.tv_port_name.setTextColor(activity.getColor(R.color.white));
             holder.v_port.setOnClickListener((View v) -> {
-                ViewHolder vh = (ViewHolder) ((View)v.getParent()).getTag();
-                PortConnection portConn = portConnections.get(vh.position);
+                PortConnection portConn = getPortConnection(holder);
+                if (portConn == null) return;
                 if (portConn.hub == null) {
                     Toast.makeText(activity, "Сперва выберете хаб", Toast.LENGTH_SHORT).show();
                     return;
                 }
 
                 List<Port> ports = activity.getHubPortsByDisplays().get(displayIds.get(currentDisplayIndex))
-                        .get(portConnections.get(vh.position).hub.address);
+                        .get(portConn.hub.address);
                 if (portConn.port != null){
                     Port p1 = new Port(activity, portConn.hub, portConn.port.portNum, 1);
                     Port p2 = new Port(activity, portConn.hub, portConn.port.portNum, -1);
@@ -96,8 +143,7 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
                         return o1.portNum - o2.portNum;
                     });
                 }
-                new PortConnectionParamsDialog(activity, PORT, portConnections.get(vh.position),
-                        (List) ports).show();
+                new PortConnectionParamsDialog(activity, PORT, portConn, (List) ports).show();
             });
         }
         else {
@@ -108,42 +154,43 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
         }
     }
 
-    @SuppressLint("MissingPermission")
+    @NonNull
     @Override
-    public View getView(int position, View convertView, ViewGroup parent){
-        final ViewHolder viewHolder;
-        PortConnection portConnection = portConnections.get(position);
-        if (convertView == null){
-            convertView = inflater.inflate(layout, parent, false);
-            viewHolder = new ViewHolder(convertView);
-            convertView.setTag(viewHolder);
-            viewHolder.position = position;
-
-            viewHolder.v_hub.setOnClickListener((View v) ->
-                    new PortConnectionParamsDialog(activity, HUB, portConnections.get(viewHolder.position),
-                            (List) hubs).show());
-
-            setPortsActiveness(viewHolder, isPortsActive);
-
-            viewHolder.v_controller_axis.setOnClickListener((View v) -> {
-                ViewHolder holder = (ViewHolder) ((View)v.getParent()).getTag();
-                new PortConnectionParamsDialog(activity, CONTROLLER_AXIS,
-                        portConnections.get(holder.position),
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType){
+        final ViewHolder viewHolder = new ViewHolder(inflater.inflate(layout, parent, false));
+
+        viewHolder.v_hub.setOnClickListener((View v) -> {
+            PortConnection portConn = getPortConnection(viewHolder);
+            if (portConn != null)
+                new PortConnectionParamsDialog(activity, HUB, portConn, (List) hubs).show();
+        });
+
+        setPortsActiveness(viewHolder, isPortsActive);
+
+        viewHolder.v_controller_axis.setOnClickListener((View v) -> {
+            PortConnection portConn = getPortConnection(viewHolder);
+            if (portConn != null)
+                new PortConnectionParamsDialog(activity, CONTROLLER_AXIS, portConn,
                         (List) controllersAxes.get(currentDisplayIndex)).show();
-            });
-            viewHolder.bt_delete_port_conn.setOnClickListener((View v) -> {
-                int pos = ((ViewHolder)((View)v.getParent()).getTag()).position;
-                dbPortConn.delete(activity, portConnections.remove(pos));
-                //ViewHolder holder = (ViewHolder) ((View)v.getParent()).getTag();
-                //Container.getDbPortConnections(activity).deletePortConnection(portConnections.get(holder.position));
-                notifyDataSetChanged();
-            });
-        }
-        else viewHolder = (ViewHolder) convertView.getTag();
-        viewHolder.position = position;
-        setConnectionPortInfo(viewHolder, portConnection);
+        });
+        viewHolder.bt_response_curve.setOnClickListener((View v) -> {
+            PortConnection portConn = getPortConnection(viewHolder);
+            if (portConn != null) new ResponseCurveDialog(activity, portConn).show();
+        });
+        viewHolder.bt_delete_port_conn.setOnClickListener((View v) -> {
+            PortConnection portConn = getPortConnection(viewHolder);
+            if (portConn == null) return;
+            portConnections.remove(portConn);
+            dbPortConn.delete(activity, portConn);
+            differ.submitList(new ArrayList<>(portConnections));
+        });
+        return viewHolder;
+    }
 
-        return convertView;
+    @SuppressLint("MissingPermission")
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position){
+        setConnectionPortInfo(holder, differ.getCurrentList().get(position));
     }
 
     private void setConnectionPortInfo(ViewHolder holder, PortConnection portConnection){
@@ -177,7 +224,7 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
 
     public List<PortConnection> getPortConnections() { return portConnections; }
 
-    private class ViewHolder{
+    static class ViewHolder extends RecyclerView.ViewHolder{
         final View v_hub;
         final TextView tv_hub_name;
         final ImageView iv_hub_icon;
@@ -190,11 +237,11 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
         final TextView tv_controller_axis_name;
         final ImageView iv_controller_axis_icon;
 
+        final ImageButton bt_response_curve;
         final ImageButton bt_delete_port_conn;
 
-        int position = -1;
-
         ViewHolder(View view){
+            super(view);
             v_hub = view.findViewById(R.id.v_hub);
             tv_hub_name = v_hub.findViewById(R.id.tv_hub_name);
             iv_hub_icon = v_hub.findViewById(R.id.iv_hub_icon);
@@ -207,6 +254,7 @@ public class PortConnectionsAdapter extends ArrayAdapter<PortConnection> {
             tv_controller_axis_name = v_controller_axis.findViewById(R.id.tv_controller_axis_name);
             iv_controller_axis_icon = v_controller_axis.findViewById(R.id.iv_controller_axis_icon);
 
+            bt_response_curve = view.findViewById(R.id.bt_response_curve);
             bt_delete_port_conn = view.findViewById(R.id.bt_delete_port_connection);
         }
     }
@@ -0,0 +1,93 @@
+package com.example.rcbleproject.ViewAndPresenter.SettingPortConnectionsMenu;
+
+import android.app.Dialog;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.CheckBox;
+import android.widget.SeekBar;
+import android.widget.TextView;
+
+import com.example.rcbleproject.Container;
+import com.example.rcbleproject.Control.ResponseCurve;
+import com.example.rcbleproject.Model.PortConnection;
+import com.example.rcbleproject.R;
+
+/**
+ * Диалог настройки передаточной характеристики соединения порта (ResponseCurve).
+ */
+public class ResponseCurveDialog extends Dialog {
+    private static final int SLEW_RATE_STEP = 10;   // шаг ползунка скорости разгона, %/с
+    private static final int MAX_SLEW_RATE = 500;   // %/с
+
+    private final SettingPortConnectionsActivity activity;
+    private final PortConnection portConnection;
+
+    private SeekBar sbDeadZone, sbExpo, sbMinOutput, sbMaxOutput, sbSlewRate;
+    private CheckBox cbInverted;
+
+    public ResponseCurveDialog(SettingPortConnectionsActivity activity, PortConnection portConnection){
+        super(activity);
+        this.activity = activity;
+        this.portConnection = portConnection;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState){
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.response_curve_dialog);
+        ResponseCurve curve = portConnection.getResponseCurve();
+        sbDeadZone = initParam(R.id.inc_dead_zone, R.string.curve_dead_zone,
+                ResponseCurve.MAX_DEAD_ZONE, curve.deadZone, false);
+        sbExpo = initParam(R.id.inc_expo, R.string.curve_expo, 100, curve.expo, false);
+        sbMinOutput = initParam(R.id.inc_min_output, R.string.curve_min_output,
+                ResponseCurve.MAX_VALUE, curve.minOutput, false);
+        sbMaxOutput = initParam(R.id.inc_max_output, R.string.curve_max_output,
+                ResponseCurve.MAX_VALUE, curve.maxOutput, false);
+        sbSlewRate = initParam(R.id.inc_slew_rate, R.string.curve_slew_rate,
+                MAX_SLEW_RATE / SLEW_RATE_STEP, curve.slewRate / SLEW_RATE_STEP, true);
+        cbInverted = findViewById(R.id.cb_inverted);
+        cbInverted.setChecked(curve.isInverted);
+        findViewById(R.id.bt_save_curve).setOnClickListener((View v) -> {
+            save();
+            dismiss();
+        });
+    }
+
+    private SeekBar initParam(int includeId, int nameId, int max, int progress, boolean isSlewRate){
+        View param = findViewById(includeId);
+        ((TextView) param.findViewById(R.id.tv_param_name)).setText(nameId);
+        TextView tvValue = param.findViewById(R.id.tv_param_value);
+        SeekBar seekBar = param.findViewById(R.id.sb_param);
+        seekBar.setMax(max);
+        seekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser){
+                setValueText(tvValue, progress, isSlewRate);
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar){}
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar){}
+        });
+        seekBar.setProgress(progress);
+        setValueText(tvValue, progress, isSlewRate);
+        return seekBar;
+    }
+
+    private void setValueText(TextView tvValue, int progress, boolean isSlewRate){
+        if (!isSlewRate) tvValue.setText(activity.getString(R.string.curve_percent, progress));
+        else if (progress == 0) tvValue.setText(R.string.curve_slew_rate_off);
+        else tvValue.setText(activity.getString(R.string.curve_percent_per_second,
+                    progress * SLEW_RATE_STEP));
+    }
+
+    private void save(){
+        ResponseCurve curve = new ResponseCurve(sbDeadZone.getProgress(), sbExpo.getProgress(),
+                sbMinOutput.getProgress(), sbMaxOutput.getProgress(),
+                sbSlewRate.getProgress() * SLEW_RATE_STEP, cbInverted.isChecked());
+        portConnection.setResponseCurve(curve.isLinear()? ResponseCurve.LINEAR : curve);
+        Container.getDbPortConnections(activity).update(portConnection);
+    }
+}
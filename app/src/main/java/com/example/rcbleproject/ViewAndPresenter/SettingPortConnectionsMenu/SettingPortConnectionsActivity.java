@@ -11,9 +11,10 @@ import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
-import android.widget.ListView;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.rcbleproject.ViewAndPresenter.BluetoothLeService;
 import com.example.rcbleproject.Container;
 import com.example.rcbleproject.Database.DatabaseAdapterPortConnections;
@@ -32,7 +33,7 @@ import java.util.TreeMap;
 public class SettingPortConnectionsActivity extends BluetoothLeService {
     private int currentDisplayIndex, numOfDisplays;
     private ArrayList<PortConnectionsAdapter> portConnectionsByDisplays;
-    private ListView lv_controlled_ports;
+    private RecyclerView rv_controlled_ports;
     private long profileID = -1;
     private BaseAppActivity context;
     private DatabaseAdapterPortConnections dbPortConnections;
@@ -60,16 +61,15 @@ public class SettingPortConnectionsActivity extends BluetoothLeService {
         profileID = preferences.getLong(chosenProfControlPrefKey, -1);
         numOfDisplays = preferences.getInt(numOfDisplaysPrefKey+profileID, -1);
 
-        lv_controlled_ports = findViewById(R.id.lv_controlled_ports);
+        rv_controlled_ports = findViewById(R.id.rv_controlled_ports);
         //setLvAdapterConnectedDevices(portConnectionsByDisplays.get(currentDisplayIndex).getConnectedDevicesAdapter());
 
         Button btAddControlledPort = findViewById(R.id.bt_add_controlled_port);
         btAddControlledPort.setOnClickListener((View v) -> {
-            PortConnectionsAdapter adapter = (PortConnectionsAdapter) lv_controlled_ports.getAdapter();
+            PortConnectionsAdapter adapter = (PortConnectionsAdapter) rv_controlled_ports.getAdapter();
             long disId = GameControllersDrawer.getDisplayIDs().get(currentDisplayIndex);
             long id = dbPortConnections.insert(disId);
-            adapter.portConnections.add(new PortConnection(id, disId));
-            adapter.notifyDataSetChanged();
+            adapter.addPortConnection(new PortConnection(id, disId));
         });
         findViewById(R.id.bt_last).setOnClickListener((View v) -> prevDisplay());
         findViewById(R.id.bt_next).setOnClickListener((View v) -> nextDisplay());
@@ -110,21 +110,31 @@ public class SettingPortConnectionsActivity extends BluetoothLeService {
         currentDisplayIndex++;
         if (currentDisplayIndex >= numOfDisplays) currentDisplayIndex = 0;
         showCurrentDisplayNum(currentDisplayIndex, numOfDisplays);
-        lv_controlled_ports.setAdapter(portConnectionsByDisplays.get(currentDisplayIndex));
-        portConnectionsByDisplays.get(currentDisplayIndex).notifyDataSetChanged();
+        rv_controlled_ports.setAdapter(portConnectionsByDisplays.get(currentDisplayIndex));
     }
 
     public void prevDisplay(){
         currentDisplayIndex--;
         if (currentDisplayIndex < 0) currentDisplayIndex = numOfDisplays - 1;
         showCurrentDisplayNum(currentDisplayIndex, numOfDisplays);
-        lv_controlled_ports.setAdapter(portConnectionsByDisplays.get(currentDisplayIndex));
-        portConnectionsByDisplays.get(currentDisplayIndex).notifyDataSetChanged();
+        rv_controlled_ports.setAdapter(portConnectionsByDisplays.get(currentDisplayIndex));
     }
 
+    /**
+     * Вызывается по завершении фоновых операций с БД (например, загрузки имен хабов).
+     */
     @Override
     public void notifyDataSetChanged(){
-        ((PortConnectionsAdapter)lv_controlled_ports.getAdapter()).notifyDataSetChanged();
+        RecyclerView.Adapter<?> adapter = rv_controlled_ports.getAdapter();
+        if (adapter != null) adapter.notifyItemRangeChanged(0, adapter.getItemCount());
+    }
+
+    /**
+     * Перепривязывает строку подключения порта текущего дисплея после выбора его параметра.
+     */
+    public void notifyPortConnectionChanged(PortConnection portConnection){
+        PortConnectionsAdapter adapter = (PortConnectionsAdapter) rv_controlled_ports.getAdapter();
+        if (adapter != null) adapter.notifyPortConnectionChanged(portConnection);
     }
 
     @Override
@@ -133,9 +143,8 @@ public class SettingPortConnectionsActivity extends BluetoothLeService {
         SharedPreferences preferences = getSharedPreferences(appPrefKey, Context.MODE_PRIVATE);
         currentDisplayIndex = preferences.getInt("current_display_index_"+profileID, 0);
         initPortConnectionsByDisplays(this);
-        lv_controlled_ports.setAdapter(portConnectionsByDisplays.get(currentDisplayIndex));
+        rv_controlled_ports.setAdapter(portConnectionsByDisplays.get(currentDisplayIndex));
         showCurrentDisplayNum(currentDisplayIndex, numOfDisplays);
-        notifyDataSetChanged();
     }
 
     @SuppressLint("ApplySharedPref")
@@ -0,0 +1,54 @@
+package com.example.rcbleproject.Benchmarks;
+
+import com.example.rcbleproject.Protocol.HubFrames;
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Protocol.PoweredUpProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+
+/**
+ * Сравнение нового кадра порта с последним записанным перед записью в характеристику
+ * (HubFrames.isEqual, вызывается из HubWriteQueue). Для сравнения приведен Arrays.equals
+ * по копиям значений, как при сравнении с characteristic.getValue().
+ */
+@State(Scope.Thread)
+public class FrameComparisonBenchmark {
+    private final byte[] lastFrame = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+    private final byte[] sameFrame = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+    private final byte[] changedFrame = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+    private int length;
+
+    @Setup
+    public void setup(){
+        HubProtocol protocol = new PoweredUpProtocol();
+        length = protocol.encodePortCommand(0, 50, lastFrame);
+        protocol.encodePortCommand(0, 50, sameFrame);
+        protocol.encodePortCommand(0, 51, changedFrame);
+    }
+
+    /**
+     * Худший случай: кадры совпадают, сравниваются все байты.
+     */
+    @Benchmark
+    public boolean equalFrames(){
+        return HubFrames.isEqual(sameFrame, length, lastFrame, length);
+    }
+
+    /**
+     * Кадры различаются значением (последний байт), сравнение завершается первым байтом.
+     */
+    @Benchmark
+    public boolean changedFrames(){
+        return HubFrames.isEqual(changedFrame, length, lastFrame, length);
+    }
+
+    @Benchmark
+    public boolean arraysEqualsOfCopies(){
+        return Arrays.equals(Arrays.copyOf(sameFrame, length), Arrays.copyOf(lastFrame, length));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.rcbleproject.Benchmarks;
+
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Protocol.PowerFunctionsProtocol;
+import com.example.rcbleproject.Protocol.PoweredUpProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Кодирование команды порта (BluetoothHub.setOutputPortCommand -> HubProtocol.encodePortCommand)
+ * для хабов Powered Up и PowerFunctions в переиспользуемый буфер.
+ */
+@State(Scope.Thread)
+public class FrameEncodingBenchmark {
+    @Param({"PoweredUp", "PowerFunctions"})
+    public String hubType;
+
+    private HubProtocol protocol;
+    private final byte[] frame = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+    private int value = -100;
+
+    @Setup
+    public void setup(){
+        protocol = "PowerFunctions".equals(hubType)? new PowerFunctionsProtocol() : new PoweredUpProtocol();
+    }
+
+    @Benchmark
+    public int encodePortCommand(){
+        value = value >= 100? -100 : value + 1;
+        int length = protocol.encodePortCommand(value & 3, value, frame);
+        return length + frame[length - 1];
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.rcbleproject.Benchmarks;
+
+import com.example.rcbleproject.Layout.ElementSpatialIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Поиск элемента под указателем при касании (GameControllersDrawer.onTouch) среди N элементов
+ * дисплея: индекс ElementSpatialIndex и прежний линейный обход списка с конца.
+ * Элементы - круглые джойстики, равномерно разложенные по экрану 2400x1080.
+ */
+@State(Scope.Thread)
+public class HitTestBenchmark {
+    private static final int WIDTH = 2400, HEIGHT = 1080;
+    private static final float CELL_SIZE = 4 * 18;     // 4 шага сетки по 3 мм при ~420 dpi
+    private static final int NUM_OF_POINTS = 1024;
+
+    @Param({"4", "16", "64", "256"})
+    public int numOfElements;
+
+    private final ArrayList<Circle> elements = new ArrayList<>();
+    private ElementSpatialIndex<Circle> index;
+    private final float[] xs = new float[NUM_OF_POINTS], ys = new float[NUM_OF_POINTS];
+    private int next = 0;
+
+    /**
+     * Круглый элемент с областью касания внутри окружности.
+     */
+    static class Circle implements ElementSpatialIndex.IElement {
+        final float x, y, radius;
+
+        Circle(float x, float y, float radius){
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+        }
+
+        @Override
+        public void getBounds(float[] bounds){
+            bounds[0] = x - radius;
+            bounds[1] = y - radius;
+            bounds[2] = x + radius;
+            bounds[3] = y + radius;
+        }
+
+        @Override
+        public boolean contains(float px, float py){
+            float dx = px - x, dy = py - y;
+            return dx * dx + dy * dy <= radius * radius;
+        }
+    }
+
+    @Setup
+    public void setup(){
+        int cols = (int) Math.ceil(Math.sqrt(numOfElements * (double) WIDTH / HEIGHT));
+        int rows = (numOfElements + cols - 1) / cols;
+        float cellWidth = (float) WIDTH / cols, cellHeight = (float) HEIGHT / rows;
+        float radius = Math.min(cellWidth, cellHeight) * 0.45f;
+        elements.clear();
+        for (int i = 0; i < numOfElements; ++i)
+            elements.add(new Circle((i % cols + 0.5f) * cellWidth, (i / cols + 0.5f) * cellHeight, radius));
+        index = new ElementSpatialIndex<>(elements, CELL_SIZE, WIDTH, HEIGHT);
+        Random random = new Random(1);
+        for (int i = 0; i < NUM_OF_POINTS; ++i){
+            xs[i] = random.nextFloat() * WIDTH;
+            ys[i] = random.nextFloat() * HEIGHT;
+        }
+    }
+
+    @Benchmark
+    public Circle spatialIndex(){
+        int idx = next++ & (NUM_OF_POINTS - 1);
+        return index.findTopmost(xs[idx], ys[idx]);
+    }
+
+    @Benchmark
+    public Circle linearScan(){
+        int idx = next++ & (NUM_OF_POINTS - 1);
+        float x = xs[idx], y = ys[idx];
+        for (int i = elements.size() - 1; i >= 0; --i){
+            Circle element = elements.get(i);
+            if (element.contains(x, y)) return element;
+        }
+        return null;
+    }
+}
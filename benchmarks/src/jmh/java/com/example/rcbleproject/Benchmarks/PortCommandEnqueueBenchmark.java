@@ -0,0 +1,99 @@
+package com.example.rcbleproject.Benchmarks;
+
+import com.example.rcbleproject.Bluetooth.HubWriteQueue;
+import com.example.rcbleproject.Bluetooth.IHubTransport;
+import com.example.rcbleproject.Bluetooth.ITaskScheduler;
+import com.example.rcbleproject.Protocol.PoweredUpProtocol;
+import com.example.rcbleproject.Telemetry.LatencyStats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Путь команды порта через очередь записи хаба: HubWriteQueue.offerPortValue, кодирование
+ * команд изменившихся портов, сборка записи, запись в транспорт и ее подтверждение.
+ * Задачи очереди выполняются в потоке замера, поэтому один вызов проходит весь путь;
+ * профилировщик gc (gc.alloc.rate.norm) показывает выделения памяти на одну команду.
+ */
+@State(Scope.Thread)
+public class PortCommandEnqueueBenchmark {
+    /**
+     * Копит задачи очереди и выполняет их в потоке замера при вызове runPending();
+     * отложенные задачи (повтор, тайм-аут) не нужны.
+     */
+    private static class ManualTaskScheduler implements ITaskScheduler {
+        private final Runnable[] tasks = new Runnable[16];
+        private int count = 0;
+
+        @Override
+        public void post(Runnable task){ tasks[count++] = task; }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs){}
+
+        @Override
+        public void removeCallbacks(Runnable task){}
+
+        @Override
+        public void quit(){}
+
+        void runPending(){
+            for (int idx = 0; idx < count; ++idx){
+                Runnable task = tasks[idx];
+                tasks[idx] = null;
+                task.run();
+            }
+            count = 0;
+        }
+    }
+
+    /**
+     * Транспорт, принимающий любую запись.
+     */
+    private static class NullHubTransport implements IHubTransport {
+        @Override
+        public String getAddress(){ return "00:00:00:00:00:00"; }
+
+        @Override
+        public void setListener(IListener listener){}
+
+        @Override
+        public boolean isReady(){ return true; }
+
+        @Override
+        public boolean write(byte[] value){ return true; }
+
+        @Override
+        public int enableNotifications(){ return NOTIFICATIONS_UNSUPPORTED; }
+    }
+
+    @Param({"1", "4"})
+    public int numOfPorts;
+
+    private final ManualTaskScheduler scheduler = new ManualTaskScheduler();
+    private HubWriteQueue queue;
+    private int value = -100;
+
+    @Setup
+    public void setup(){
+        queue = new HubWriteQueue(new NullHubTransport(), new PoweredUpProtocol(),
+                new LatencyStats(), scheduler);
+    }
+
+    /**
+     * Новые значения numOfPorts портов, их запись и подтверждение записи.
+     */
+    @Benchmark
+    public void offerAndWrite(){
+        value = value >= 100? -100 : value + 1;
+        long time = System.nanoTime();
+        for (int portNum = 0; portNum < numOfPorts; ++portNum)
+            queue.offerPortValue(portNum, value, time, time);
+        scheduler.runPending();
+        queue.onWriteCompleted();
+        scheduler.runPending();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.rcbleproject.Benchmarks;
+
+import com.example.rcbleproject.Bluetooth.HubWriteQueue;
+import com.example.rcbleproject.Bluetooth.PortValueCoalescer;
+import com.example.rcbleproject.Control.ResponseCurve;
+import com.example.rcbleproject.Control.SlewRateLimiter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Путь значения оси до порта хаба (PortConnection): значение оси проходит через передаточную
+ * характеристику (ResponseCurve) и ограничитель разгона (SlewRateLimiter), умножается на
+ * направление вращения порта и передается в PortValueCoalescer, из которого поток очереди
+ * записи забирает маску изменившихся портов и последние значения.
+ */
+@State(Scope.Thread)
+public class PortValueMappingBenchmark {
+    private static final int NUM_OF_VALUES = 256;
+
+    private final PortValueCoalescer coalescer = new PortValueCoalescer(HubWriteQueue.MAX_PORTS);
+    private final int[] axisValues = new int[NUM_OF_VALUES];
+    private final int[] directions = {1, -1, 1, -1};
+    private final ResponseCurve curve = new ResponseCurve(10, 40, 20, 90, 0, false);
+    private final ResponseCurve slewCurve = new ResponseCurve(10, 40, 20, 90, 200, false);
+    private final SlewRateLimiter slewLimiter = new SlewRateLimiter();
+    private int next = 0, portValue = 0;
+    private long time = 0;
+
+    @Setup
+    public void setup(){
+        // значения джойстика -100..100 с шагом, как при плавном движении пальца
+        for (int i = 0; i < NUM_OF_VALUES; ++i) axisValues[i] = (i * 7) % 201 - 100;
+    }
+
+    /**
+     * Одно изменение оси: отображение в значение порта и его передача в очередь.
+     */
+    @Benchmark
+    public boolean mapAndOffer(){
+        int idx = next++ & (NUM_OF_VALUES - 1);
+        int portNum = idx & (HubWriteQueue.MAX_PORTS - 1);
+        return coalescer.put(portNum, axisValues[idx] * directions[portNum]);
+    }
+
+    /**
+     * То же, что mapAndOffer, с отображением через таблицу передаточной характеристики.
+     */
+    @Benchmark
+    public boolean curveMapAndOffer(){
+        int idx = next++ & (NUM_OF_VALUES - 1);
+        int portNum = idx & (HubWriteQueue.MAX_PORTS - 1);
+        return coalescer.put(portNum, curve.map(axisValues[idx]) * directions[portNum]);
+    }
+
+    /**
+     * Характеристика и ограничение разгона (200 %/с) при вызовах раз в 5 мс.
+     */
+    @Benchmark
+    public boolean curveSlewMapAndOffer(){
+        int idx = next++ & (NUM_OF_VALUES - 1);
+        int portNum = idx & (HubWriteQueue.MAX_PORTS - 1);
+        time += 5_000_000L;
+        portValue = slewLimiter.apply(portValue, slewCurve.map(axisValues[idx]), slewCurve.slewRate, time);
+        return coalescer.put(portNum, portValue * directions[portNum]);
+    }
+
+    /**
+     * Изменение всех портов хаба и их выборка потоком очереди записи.
+     */
+    @Benchmark
+    public int mapOfferAndTake(){
+        int idx = next++ & (NUM_OF_VALUES - 1);
+        for (int portNum = 0; portNum < HubWriteQueue.MAX_PORTS; ++portNum)
+            coalescer.put(portNum, axisValues[(idx + portNum) & (NUM_OF_VALUES - 1)] * directions[portNum]);
+        int mask = coalescer.takeDirtyMask(), sum = 0;
+        for (int portNum = 0; portNum < HubWriteQueue.MAX_PORTS; ++portNum)
+            if ((mask & (1 << portNum)) != 0) sum += coalescer.get(portNum);
+        return sum;
+    }
+}
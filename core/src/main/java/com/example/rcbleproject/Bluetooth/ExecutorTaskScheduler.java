@@ -0,0 +1,58 @@
+package com.example.rcbleproject.Bluetooth;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс ExecutorTaskScheduler - реализация ITaskScheduler для обычной JVM на основе
+ * однопоточного ScheduledThreadPoolExecutor (имитация хабов, нагрузочные прогоны и замеры).
+ */
+public class ExecutorTaskScheduler implements ITaskScheduler {
+    private final ScheduledThreadPoolExecutor executor;
+    // отложенные запуски задач, которые можно отменить через removeCallbacks
+    private final HashMap<Runnable, ArrayList<ScheduledFuture<?>>> delayedTasks = new HashMap<>();
+
+    /**
+     * @param name - имя потока исполнителя.
+     */
+    public ExecutorTaskScheduler(String name){
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public synchronized void post(Runnable task){
+        // под монитором quit(): проверка и постановка задачи не разделяются завершением исполнителя
+        if (!executor.isShutdown()) executor.execute(task);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delayMs){
+        if (executor.isShutdown()) return;
+        ArrayList<ScheduledFuture<?>> futures = delayedTasks.get(task);
+        if (futures == null) delayedTasks.put(task, futures = new ArrayList<>(1));
+        for (int i = futures.size() - 1; i >= 0; --i)
+            if (futures.get(i).isDone()) futures.remove(i);
+        futures.add(executor.schedule(task, delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public synchronized void removeCallbacks(Runnable task){
+        ArrayList<ScheduledFuture<?>> futures = delayedTasks.remove(task);
+        if (futures == null) return;
+        for (ScheduledFuture<?> future : futures) future.cancel(false);
+    }
+
+    @Override
+    public synchronized void quit(){
+        delayedTasks.clear();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,479 @@
+package com.example.rcbleproject.Bluetooth;
+
+import com.example.rcbleproject.Protocol.HubFrames;
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Telemetry.LatencyStats;
+import com.example.rcbleproject.Telemetry.RateMeter;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс HubWriteQueue реализует асинхронную очередь записи в характеристику одного хаба.
+ * Все операции с транспортом (IHubTransport) выполняются в потоке очереди (ITaskScheduler),
+ * при этом в каждый момент времени выполняется не более одной операции записи (ограничение
+ * стека Bluetooth в Android). Очередь не зависит от Android, поэтому с имитатором хаба
+ * ее можно нагружать и измерять на обычной JVM.
+ * Для каждого порта хранится только последнее значение (см. PortValueCoalescer), которое
+ * кодируется в кадр непосредственно перед записью, поэтому задержка команды не растет при
+ * перегрузке канала. Служебные сообщения (переименование, сигнал и т.п.) отправляются
+ * в порядке поступления и имеют приоритет над командами портов.
+ * Если протокол хаба допускает несколько сообщений в одной записи, команды всех портов
+ * с новыми значениями упаковываются в одну запись в пределах MTU соединения.
+ * Если запись не подтверждена за WRITE_TIMEOUT_MS, очередь продолжает работу, а подтверждение
+ * этой записи, полученное позже, не снимает ожидание следующей записи.
+ * Команды портов кодируются в заранее выделенные буферы, поэтому в установившемся режиме
+ * отправка команд не выделяет память.
+ * Запись дескриптора для включения уведомлений выполняется той же очередью, так как
+ * стек допускает только одну незавершенную операцию GATT.
+ * Для каждой команды порта в LatencyStats хаба записываются задержки этапов от касания
+ * экрана: передача в очередь, кодирование, принятие записи стеком и ее завершение.
+ * Частоты поступления значений портов и записей в характеристику доступны через
+ * getPortValueRate() и getWriteRate().
+ * Если очередь простаивает дольше интервала обновления (setRefreshInterval), последние
+ * команды портов повторяются одной записью, чтобы хаб, пропустивший команду, пришел
+ * к актуальному состоянию. Повтор выполняется только при пустой очереди и не задерживает
+ * новые команды. stopAllPorts() останавливает все управлявшиеся порты хаба; до вызова
+ * resumePorts() новые значения портов отбрасываются, поэтому команда, переданная одновременно
+ * с остановкой, не может ее отменить.
+ */
+public class HubWriteQueue {
+    public static final int MAX_PORTS = 4;                  // количество портов хаба
+    private static final int MAX_CONTROL_FRAMES = 16;       // емкость очереди служебных сообщений
+    private static final long RETRY_DELAY_MS = 5;           // задержка повтора, если стек занят
+    private static final long WRITE_TIMEOUT_MS = 100;       // ожидание подтверждения записи
+    public static final int DEFAULT_MTU = 23;               // MTU по умолчанию для BLE
+    public static final int ATT_HEADER_LENGTH = 3;          // заголовок ATT в каждой записи
+    private static final int MAX_ATT_VALUE_LENGTH = 512;    // максимальная длина значения характеристики
+
+    private final IHubTransport transport;
+    private final HubProtocol protocol;
+    private final PortValueCoalescer coalescer = new PortValueCoalescer(MAX_PORTS);
+    private final LatencyStats latencyStats;
+    // время касания, вызвавшего последнее значение порта, нс
+    private final AtomicLongArray inputTimes = new AtomicLongArray(MAX_PORTS);
+    // время касания для команд портов текущей записи (только поток очереди)
+    private final long[] sentInputTimes = new long[MAX_PORTS];
+    private int inFlightPortsMask = 0;         // порты записи, ожидающей подтверждения
+    private final RateMeter portValueRate = new RateMeter();   // значения портов, принятые очередью
+    private final RateMeter writeRate = new RateMeter();       // записи, принятые транспортом
+    private final AtomicInteger usedPortsMask = new AtomicInteger();  // порты, получавшие команды
+    private volatile long lastWriteTime = 0;    // время завершения последней записи, нс
+    private volatile long writeCompletedTime = 0;   // время подтверждения текущей записи, нс
+    // номер текущей записи: увеличивается при начале записи и по тайм-ауту (изменяется только
+    // потоком очереди), поэтому подтверждение, полученное при другом номере, устарело
+    private volatile int writeSequence = 0;
+    private volatile int completedWriteSequence = 0;    // номер записи на момент подтверждения
+    private volatile long refreshIntervalMs = 0;
+    private volatile boolean isStopped = false; // порты остановлены до resumePorts()
+    private int refreshPortsMask = 0;           // порты, повторяемые без сравнения с прежним кадром
+    private final ITaskScheduler scheduler;
+
+    // последние записанные кадры портов и кадры текущей записи (меняются местами после записи)
+    private final byte[][] lastPortFrames = new byte[MAX_PORTS][HubProtocol.MAX_PORT_FRAME_LENGTH];
+    private final byte[][] portFrames = new byte[MAX_PORTS][HubProtocol.MAX_PORT_FRAME_LENGTH];
+    private final int[] lastPortFrameLengths = new int[MAX_PORTS];
+    private final int[] portFrameLengths = new int[MAX_PORTS];
+    // буферы записей, индексированные длиной: значение характеристики передается массивом целиком,
+    // поэтому для каждой встречающейся длины выделяется один буфер
+    private final byte[][] writeBuffers = new byte[MAX_ATT_VALUE_LENGTH + 1][];
+    private final ArrayDeque<byte[]> controlFrames = new ArrayDeque<>(MAX_CONTROL_FRAMES);
+    private boolean isWriteInFlight = false;   // изменяется только в потоке очереди
+    private boolean isPumpScheduled = false;
+    private boolean isClosed = false;
+    private boolean isNotificationsRequested = false;
+    private int nextPort = 0;                  // порт, с которого начнется следующий обход
+    private volatile boolean isBatchingEnabled = true;   // упаковка команд нескольких портов в одну запись
+    private volatile int maxWriteLength = DEFAULT_MTU - ATT_HEADER_LENGTH; // макс. длина одной записи
+
+    private final Runnable pump = this::pump;
+    private final Runnable refresh = this::refresh;
+    private final Runnable writeCompleted = this::completeWrite;
+    private final Runnable writeTimeout = () -> {
+        // подтверждение этой записи, если оно придет позже, не относится к следующей
+        ++writeSequence;
+        isWriteInFlight = false;
+        inFlightPortsMask = 0;
+        pump();
+    };
+
+    /**
+     * @param transport - канал записи хаба.
+     * @param latencyStats - статистика задержек команд хаба.
+     * @param scheduler - поток очереди; завершается при закрытии очереди.
+     */
+    public HubWriteQueue(IHubTransport transport, HubProtocol protocol, LatencyStats latencyStats,
+                         ITaskScheduler scheduler){
+        this.transport = transport;
+        this.protocol = protocol;
+        this.latencyStats = latencyStats;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Сохраняет новое значение порта. Еще не отправленное значение того же порта отбрасывается.
+     * @param portNum - номер порта.
+     * @param value - значение порта с учетом направления вращения.
+     * @param inputTime - время касания, вызвавшего команду, нс; 0 - неизвестно.
+     * @param axisTime - время изменения значения оси, нс.
+     * @return true - если значение принято; false - если очередь закрыта или порты остановлены.
+     */
+    public boolean offerPortValue(int portNum, int value, long inputTime, long axisTime){
+        if (portNum < 0 || portNum >= MAX_PORTS || isStopped) return false;
+        synchronized (this){
+            if (isClosed) return false;
+        }
+        latencyStats.record(LatencyStats.AXIS, inputTime, axisTime);
+        latencyStats.record(LatencyStats.SEND, inputTime, System.nanoTime());
+        inputTimes.set(portNum, inputTime);
+        portValueRate.increment();
+        int usedMask;
+        while (((usedMask = usedPortsMask.get()) & (1 << portNum)) == 0
+                && !usedPortsMask.compareAndSet(usedMask, usedMask | (1 << portNum)));
+        boolean isChanged = coalescer.put(portNum, value);
+        boolean isAccepted = !isStopped;
+        if (!isAccepted){
+            // порты остановлены во время передачи значения: значение могло заменить ноль остановки
+            inputTimes.set(portNum, 0);
+            isChanged |= coalescer.put(portNum, 0);
+        }
+        if (isChanged) schedulePump();
+        return isAccepted;
+    }
+
+    /**
+     * Останавливает все порты хаба, получавшие команды. Еще не отправленные значения
+     * этих портов заменяются нулем, а новые значения отбрасываются до вызова resumePorts().
+     * @return true - если команда остановки поставлена в очередь.
+     */
+    public boolean stopAllPorts(){
+        synchronized (this){
+            if (isClosed) return false;
+        }
+        // флаг устанавливается до чтения маски портов: значение, переданное одновременно
+        // с остановкой, заменяется нулем здесь или в offerPortValue
+        isStopped = true;
+        boolean isChanged = false;
+        int mask = usedPortsMask.get();
+        for (int idx = 0; idx < MAX_PORTS; ++idx){
+            if ((mask & (1 << idx)) == 0) continue;
+            inputTimes.set(idx, 0);
+            isChanged |= coalescer.put(idx, 0);
+        }
+        if (isChanged) schedulePump();
+        return true;
+    }
+
+    /**
+     * Снимает остановку портов (stopAllPorts): очередь снова принимает значения портов.
+     */
+    public void resumePorts(){
+        isStopped = false;
+    }
+
+    /**
+     * Устанавливает интервал повтора команд портов при простое очереди.
+     * @param intervalMs - интервал, мс; 0 - повтор отключен.
+     */
+    public void setRefreshInterval(long intervalMs){
+        refreshIntervalMs = Math.max(0, intervalMs);
+        scheduler.removeCallbacks(refresh);
+        if (intervalMs > 0) scheduler.postDelayed(refresh, intervalMs);
+    }
+
+    /**
+     * @return время завершения последней записи в характеристику, нс (System.nanoTime);
+     *         0 - если записей еще не было.
+     */
+    public long getLastWriteTime(){
+        return lastWriteTime;
+    }
+
+    /**
+     * Включает или отключает упаковку команд нескольких портов в одну запись.
+     * @param enabled - флаг пакетного режима.
+     */
+    public void setBatchingEnabled(boolean enabled){
+        isBatchingEnabled = enabled;
+    }
+
+    /**
+     * Устанавливает согласованный MTU соединения, ограничивающий длину одной записи.
+     * @param mtu - MTU соединения.
+     */
+    public void setMtu(int mtu){
+        maxWriteLength = Math.min(MAX_ATT_VALUE_LENGTH,
+                Math.max(DEFAULT_MTU, mtu) - ATT_HEADER_LENGTH);
+    }
+
+    /**
+     * Ставит в очередь служебное сообщение.
+     * @param frame - кадр сообщения.
+     * @return true - если кадр принят; false - если очередь заполнена или закрыта.
+     */
+    public boolean offerFrame(byte[] frame){
+        synchronized (this){
+            if (isClosed || controlFrames.size() >= MAX_CONTROL_FRAMES) return false;
+            controlFrames.addLast(frame);
+        }
+        schedulePump();
+        return true;
+    }
+
+    /**
+     * Ставит в очередь включение уведомлений характеристики хаба. Запись дескриптора
+     * выполняется раньше служебных сообщений.
+     */
+    public void enableNotifications(){
+        synchronized (this){
+            if (isClosed) return;
+            isNotificationsRequested = true;
+        }
+        schedulePump();
+    }
+
+    /**
+     * @return счетчик значений портов, переданных в очередь (до объединения).
+     */
+    public RateMeter getPortValueRate(){
+        return portValueRate;
+    }
+
+    /**
+     * @return счетчик записей в характеристику хаба (команды портов и служебные сообщения).
+     */
+    public RateMeter getWriteRate(){
+        return writeRate;
+    }
+
+    /**
+     * @return поток очереди (в нем же разбираются уведомления хаба).
+     */
+    public ITaskScheduler getScheduler(){
+        return scheduler;
+    }
+
+    /**
+     * Вызывается транспортом (IHubTransport.IListener) по завершении записи
+     * характеристики или дескриптора. Подтверждение относится к записи, выполнявшейся
+     * в момент вызова.
+     */
+    public void onWriteCompleted(){
+        writeCompletedTime = System.nanoTime();
+        completedWriteSequence = writeSequence;
+        scheduler.post(writeCompleted);
+    }
+
+    private void completeWrite(){
+        // подтверждение записи, завершенной по тайм-ауту, или повторное подтверждение
+        if (!isWriteInFlight || completedWriteSequence != writeSequence) return;
+        long time = writeCompletedTime;
+        scheduler.removeCallbacks(writeTimeout);
+        recordLatency(inFlightPortsMask, LatencyStats.COMPLETE, time);
+        lastWriteTime = time;
+        inFlightPortsMask = 0;
+        isWriteInFlight = false;
+        pump();
+    }
+
+    /**
+     * Вызывается после обнаружения сервисов хаба: запускает отправку накопленных кадров.
+     */
+    public void onServicesDiscovered(){
+        schedulePump();
+    }
+
+    /**
+     * Закрывает очередь: ожидающие кадры отбрасываются, поток очереди завершается.
+     */
+    public void close(){
+        synchronized (this){
+            isClosed = true;
+            controlFrames.clear();
+        }
+        coalescer.clear();
+        scheduler.quit();
+    }
+
+    /**
+     * Повторяет последние команды портов, если с завершения последней записи прошло не меньше
+     * интервала обновления, а очередь пуста. Выполняется в потоке очереди.
+     */
+    private void refresh(){
+        long intervalMs = refreshIntervalMs;
+        if (intervalMs <= 0) return;
+        synchronized (this){
+            if (isClosed) return;
+        }
+        long idleMs = (System.nanoTime() - lastWriteTime) / 1_000_000L;
+        if (idleMs >= intervalMs){
+            int mask = usedPortsMask.get();
+            boolean isIdle;
+            synchronized (this){
+                isIdle = controlFrames.isEmpty() && !isNotificationsRequested;
+            }
+            if (mask != 0 && isIdle && !isWriteInFlight && !coalescer.hasPending()){
+                for (int idx = 0; idx < MAX_PORTS; ++idx)
+                    if ((mask & (1 << idx)) != 0) inputTimes.set(idx, 0);
+                refreshPortsMask = mask;
+                coalescer.restoreDirtyMask(mask);
+                pump();
+            }
+            idleMs = 0;
+        }
+        scheduler.postDelayed(refresh, intervalMs - idleMs);
+    }
+
+    private void schedulePump(){
+        synchronized (this){
+            if (isPumpScheduled) return;
+            isPumpScheduled = true;
+        }
+        scheduler.post(pump);
+    }
+
+    private void pump(){
+        synchronized (this){
+            isPumpScheduled = false;
+        }
+        if (isWriteInFlight || !transport.isReady()) return;
+
+        int sentPortsMask = 0;
+        byte[] frame;
+        boolean isNotificationsRequested;
+        synchronized (this){
+            if (isClosed) return;
+            isNotificationsRequested = this.isNotificationsRequested;
+            this.isNotificationsRequested = false;
+        }
+        if (isNotificationsRequested){
+            enableNotificationsNow();
+            return;
+        }
+        synchronized (this){
+            frame = controlFrames.pollFirst();
+        }
+        if (frame == null){
+            sentPortsMask = encodePendingPorts();
+            if (sentPortsMask == 0) return;
+            frame = buildPortsFrame(sentPortsMask);
+        }
+
+        // номер меняется до записи: транспорт может подтвердить ее до возврата из write()
+        ++writeSequence;
+        if (!transport.write(frame)){
+            // стек занят - возвращаем кадр и повторяем позже, не занимая поток ожиданием
+            if (sentPortsMask == 0){
+                synchronized (this){
+                    controlFrames.addFirst(frame);
+                }
+            }
+            else coalescer.restoreDirtyMask(sentPortsMask);
+            scheduler.postDelayed(pump, RETRY_DELAY_MS);
+            return;
+        }
+        writeRate.increment();
+        for (int idx = 0; idx < MAX_PORTS; ++idx){
+            if ((sentPortsMask & (1 << idx)) == 0) continue;
+            byte[] frameBuffer = lastPortFrames[idx];
+            lastPortFrames[idx] = portFrames[idx];
+            portFrames[idx] = frameBuffer;
+            lastPortFrameLengths[idx] = portFrameLengths[idx];
+        }
+        recordLatency(sentPortsMask, LatencyStats.WRITE, System.nanoTime());
+        inFlightPortsMask = sentPortsMask;
+        isWriteInFlight = true;
+        scheduler.postDelayed(writeTimeout, WRITE_TIMEOUT_MS);
+    }
+
+    private void enableNotificationsNow(){
+        ++writeSequence;
+        switch (transport.enableNotifications()){
+            case IHubTransport.NOTIFICATIONS_UNSUPPORTED:
+                pump();
+                return;
+            case IHubTransport.NOTIFICATIONS_BUSY:
+                synchronized (this){
+                    isNotificationsRequested = true;
+                }
+                scheduler.postDelayed(pump, RETRY_DELAY_MS);
+                return;
+            default:
+                isWriteInFlight = true;
+                scheduler.postDelayed(writeTimeout, WRITE_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Кодирует новые значения портов в portFrames. В пакетном режиме в одну запись включаются
+     * команды всех портов, которые помещаются в maxWriteLength, иначе - команда одного порта.
+     * Порты, не вошедшие в запись, остаются в очереди.
+     * @return маска портов, команды которых войдут в запись.
+     */
+    private int encodePendingPorts(){
+        int mask = coalescer.takeDirtyMask();
+        boolean isBatching = isBatchingEnabled && protocol.supportsBatching();
+        int sentPortsMask = 0, length = 0;
+        int firstPort = nextPort;
+        for (int i = 0; mask != 0 && i < MAX_PORTS; ++i){
+            int idx = (firstPort + i) % MAX_PORTS;
+            int bit = 1 << idx;
+            if ((mask & bit) == 0) continue;
+            int frameLength = protocol.encodePortCommand(idx, coalescer.get(idx), portFrames[idx]);
+            // повторная команда (кадр совпадает с последним записанным) не отправляется
+            if (frameLength == 0 || (refreshPortsMask & bit) == 0 && HubFrames.isEqual(portFrames[idx],
+                    frameLength, lastPortFrames[idx], lastPortFrameLengths[idx])) {
+                mask &= ~bit;
+                refreshPortsMask &= ~bit;
+                continue;
+            }
+            if (sentPortsMask != 0 && (!isBatching || length + frameLength > maxWriteLength))
+                break;
+            mask &= ~bit;
+            refreshPortsMask &= ~bit;
+            sentInputTimes[idx] = inputTimes.get(idx);
+            portFrameLengths[idx] = frameLength;
+            sentPortsMask |= bit;
+            length += frameLength;
+            nextPort = (idx + 1) % MAX_PORTS;
+        }
+        if (mask != 0) coalescer.restoreDirtyMask(mask);
+        recordLatency(sentPortsMask, LatencyStats.ENCODE, System.nanoTime());
+        return sentPortsMask;
+    }
+
+    /**
+     * Записывает задержку этапа для команд портов из маски.
+     * @param portsMask - маска портов.
+     * @param stage - этап (LatencyStats.*).
+     * @param time - время этапа, нс.
+     */
+    private void recordLatency(int portsMask, int stage, long time){
+        for (int idx = 0; portsMask != 0 && idx < MAX_PORTS; ++idx){
+            if ((portsMask & (1 << idx)) == 0) continue;
+            portsMask &= ~(1 << idx);
+            latencyStats.record(stage, sentInputTimes[idx], time);
+        }
+    }
+
+    /**
+     * Собирает кадры портов из маски в одну запись.
+     * @param portsMask - маска портов.
+     * @return содержимое записи.
+     */
+    private byte[] buildPortsFrame(int portsMask){
+        int length = 0;
+        for (int idx = 0; idx < MAX_PORTS; ++idx)
+            if ((portsMask & (1 << idx)) != 0) length += portFrameLengths[idx];
+        byte[] frame = writeBuffers[length];
+        if (frame == null) writeBuffers[length] = frame = new byte[length];
+        int offset = 0;
+        for (int idx = 0; idx < MAX_PORTS; ++idx){
+            if ((portsMask & (1 << idx)) == 0) continue;
+            System.arraycopy(portFrames[idx], 0, frame, offset, portFrameLengths[idx]);
+            offset += portFrameLengths[idx];
+        }
+        return frame;
+    }
+}
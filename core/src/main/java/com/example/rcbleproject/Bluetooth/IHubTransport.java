@@ -0,0 +1,56 @@
+package com.example.rcbleproject.Bluetooth;
+
+/**
+ * Интерфейс IHubTransport - канал записи и уведомлений одного хаба под очередью записи
+ * HubWriteQueue. В приложении его реализует GattHubTransport поверх BluetoothGatt,
+ * а на обычной JVM - имитатор хаба (Simulation.FakeHubTransport), поэтому конвейер команд
+ * можно нагружать без оборудования.
+ * Как и стек Bluetooth, транспорт допускает только одну незавершенную операцию записи:
+ * о ее завершении сообщает IListener.onWriteCompleted().
+ */
+public interface IHubTransport {
+    int NOTIFICATIONS_UNSUPPORTED = 0;  // характеристика не поддерживает уведомления
+    int NOTIFICATIONS_BUSY = 1;         // транспорт занят, запрос нужно повторить
+    int NOTIFICATIONS_PENDING = 2;      // запись дескриптора начата, ожидается ее завершение
+
+    /**
+     * Получатель событий транспорта. Вызывается в потоке транспорта (Binder, поток имитатора).
+     */
+    interface IListener {
+        /**
+         * Завершена запись характеристики или дескриптора.
+         */
+        void onWriteCompleted();
+
+        /**
+         * Принято уведомление хаба.
+         * @param data - значение характеристики (копия, принадлежит получателю).
+         */
+        void onNotification(byte[] data);
+    }
+
+    /**
+     * @return mac-адрес хаба.
+     */
+    String getAddress();
+
+    void setListener(IListener listener);
+
+    /**
+     * @return true - если характеристика хаба найдена и запись возможна.
+     */
+    boolean isReady();
+
+    /**
+     * Начинает запись значения характеристики без ответа.
+     * @param value - значение; массив не изменяется до завершения записи.
+     * @return true - если запись принята; false - если транспорт занят.
+     */
+    boolean write(byte[] value);
+
+    /**
+     * Начинает включение уведомлений характеристики.
+     * @return NOTIFICATIONS_UNSUPPORTED, NOTIFICATIONS_BUSY или NOTIFICATIONS_PENDING.
+     */
+    int enableNotifications();
+}
@@ -0,0 +1,25 @@
+package com.example.rcbleproject.Bluetooth;
+
+/**
+ * Интерфейс ITaskScheduler - однопоточный исполнитель задач очереди записи хаба
+ * (по образцу android.os.Handler). В приложении задачи выполняет HandlerThread
+ * (HandlerTaskScheduler), на обычной JVM - ExecutorTaskScheduler.
+ */
+public interface ITaskScheduler {
+    void post(Runnable task);
+
+    /**
+     * @param delayMs - задержка выполнения, мс.
+     */
+    void postDelayed(Runnable task, long delayMs);
+
+    /**
+     * Отменяет еще не выполненные отложенные запуски задачи.
+     */
+    void removeCallbacks(Runnable task);
+
+    /**
+     * Отменяет все ожидающие задачи и завершает поток исполнителя.
+     */
+    void quit();
+}
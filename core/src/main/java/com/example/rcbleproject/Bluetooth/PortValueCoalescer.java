@@ -0,0 +1,71 @@
+package com.example.rcbleproject.Bluetooth;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Класс PortValueCoalescer хранит только последнее значение для каждого порта одного хаба.
+ * Поток отправки записывает значения без блокировок, а поток очереди записи забирает маску
+ * изменившихся портов и кодирует в кадры только актуальные значения. Промежуточные значения,
+ * не успевшие уйти в эфир, отбрасываются до сериализации.
+ */
+public class PortValueCoalescer {
+    private final AtomicIntegerArray values;                    // последние значения портов
+    private final AtomicInteger dirtyMask = new AtomicInteger(0); // маска портов с новыми значениями
+
+    /**
+     * @param numOfPorts - количество портов хаба (не более 32).
+     */
+    public PortValueCoalescer(int numOfPorts){
+        values = new AtomicIntegerArray(numOfPorts);
+    }
+
+    public int getNumOfPorts(){ return values.length(); }
+
+    /**
+     * Сохраняет новое значение порта, заменяя неотправленное.
+     * @param portNum - номер порта.
+     * @param value - значение порта.
+     * @return true - если до вызова у порта не было неотправленного значения.
+     */
+    public boolean put(int portNum, int value){
+        values.set(portNum, value);
+        int bit = 1 << portNum;
+        int mask;
+        do {
+            mask = dirtyMask.get();
+            if ((mask & bit) != 0) return false;
+        } while (!dirtyMask.compareAndSet(mask, mask | bit));
+        return true;
+    }
+
+    /**
+     * Забирает маску портов с неотправленными значениями и сбрасывает ее.
+     * @return маска портов: бит i установлен, если у порта i есть новое значение.
+     */
+    public int takeDirtyMask(){
+        return dirtyMask.getAndSet(0);
+    }
+
+    /**
+     * Возвращает порты в маску неотправленных (если запись не удалась).
+     * @param mask - маска портов.
+     */
+    public void restoreDirtyMask(int mask){
+        int current;
+        do {
+            current = dirtyMask.get();
+        } while (!dirtyMask.compareAndSet(current, current | mask));
+    }
+
+    public boolean hasPending(){ return dirtyMask.get() != 0; }
+
+    public int get(int portNum){ return values.get(portNum); }
+
+    /**
+     * Сбрасывает все неотправленные значения.
+     */
+    public void clear(){
+        dirtyMask.set(0);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.rcbleproject.Control;
+
+/**
+ * Класс ChangeThresholdFilter подавляет мелкие колебания целевого значения порта (дрожание
+ * пальца), каждое из которых стоило бы отдельной записи по радиоканалу. Новое значение
+ * принимается, только если оно отличается от принятого не меньше чем на шаг (гистерезис),
+ * поэтому при движении оси значение порта меняется ступенями не мельче шага. Остановка (0),
+ * крайние значения и смена направления принимаются сразу. Изменения меньше шага принимаются
+ * не чаще одного раза за maxAge: задержанное значение принимается через maxAge после
+ * предыдущего изменения, поэтому порт всегда приходит к точному значению оси.
+ * Используется только потоком отправки команд.
+ */
+public class ChangeThresholdFilter {
+    private int acceptedValue = 0;
+    private long acceptTime = 0;        // время последнего изменения принятого значения, нс
+    private boolean isPending = false;  // есть задержанное значение
+    private boolean isInitialized = false;
+
+    /**
+     * @param value - новое целевое значение порта, -100..100.
+     * @param step - шаг (ширина гистерезиса), %; <= 1 - фильтр отключен.
+     * @param maxAge - максимальное время задержки значения, нс.
+     * @param now - текущее время, нс.
+     * @return принятое целевое значение.
+     */
+    public int apply(int value, int step, long maxAge, long now){
+        isPending = false;
+        if (value == acceptedValue && isInitialized) return acceptedValue;
+        if (!isInitialized || step <= 1 || value == 0 || Math.abs(value) >= ResponseCurve.MAX_VALUE
+                || Integer.signum(value) != Integer.signum(acceptedValue)
+                || Math.abs(value - acceptedValue) >= step || now - acceptTime >= maxAge){
+            acceptedValue = value;
+            acceptTime = now;
+            isInitialized = true;
+            return value;
+        }
+        isPending = true;
+        return acceptedValue;
+    }
+
+    /**
+     * @param maxAge - максимальное время задержки значения, нс.
+     * @param now - текущее время, нс.
+     * @return время до принятия задержанного значения, нс; 0 - задержанного значения нет.
+     */
+    public long getPendingDelay(long maxAge, long now){
+        if (!isPending) return 0;
+        return Math.max(1, maxAge - (now - acceptTime));
+    }
+
+    /**
+     * Сбрасывает фильтр: следующее значение будет принято сразу.
+     */
+    public void reset(){
+        isPending = false;
+        isInitialized = false;
+    }
+}
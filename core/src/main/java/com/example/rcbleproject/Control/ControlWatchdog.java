@@ -0,0 +1,124 @@
+package com.example.rcbleproject.Control;
+
+import com.example.rcbleproject.Bluetooth.ITaskScheduler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс ControlWatchdog следит за тем, что цикл управления работает: каждый источник
+ * (например, главный поток и поток отправки команд) должен вызывать feed() не реже одного
+ * раза за время heartbeat. Если хотя бы один источник не отметился дольше deadline,
+ * сторож один раз сообщает о пропуске срока (получатель останавливает порты всех хабов)
+ * и остается сработавшим, пока все источники снова не отметятся.
+ * Проверки выполняются в собственном потоке (ITaskScheduler), поэтому зависание главного
+ * потока или потока отправки команд не мешает сторожу сработать.
+ */
+public class ControlWatchdog {
+    /**
+     * Получатель событий сторожа (вызывается в потоке сторожа).
+     */
+    public interface IListener {
+        /**
+         * @param source - номер источника, пропустившего срок.
+         * @param lateness - время с последней отметки источника, нс.
+         */
+        void onDeadlineMissed(int source, long lateness);
+
+        void onRecovered();
+    }
+
+    private static final int CHECKS_PER_DEADLINE = 4;
+
+    private final ITaskScheduler scheduler;
+    private final IListener listener;
+    private final long deadline;                // нс
+    private final long checkPeriodMs;
+    private final AtomicLongArray feedTimes;    // время последней отметки каждого источника, нс
+    private volatile boolean isArmed = false;
+    private volatile boolean isTripped = false;
+
+    private final Runnable check = this::check;
+
+    /**
+     * @param numOfSources - количество источников отметок.
+     * @param deadlineMs - допустимое время без отметки источника, мс.
+     * @param scheduler - поток сторожа; завершается в quit().
+     * @param listener - получатель событий сторожа.
+     */
+    public ControlWatchdog(int numOfSources, long deadlineMs, ITaskScheduler scheduler,
+                           IListener listener){
+        this.scheduler = scheduler;
+        this.listener = listener;
+        deadline = Math.max(1, deadlineMs) * 1_000_000L;
+        checkPeriodMs = Math.max(1, deadlineMs / CHECKS_PER_DEADLINE);
+        feedTimes = new AtomicLongArray(numOfSources);
+    }
+
+    /**
+     * Отмечает, что источник работает.
+     * @param source - номер источника.
+     */
+    public void feed(int source){
+        feedTimes.set(source, System.nanoTime());
+    }
+
+    /**
+     * @return период, с которым источник должен вызывать feed(), нс.
+     */
+    public long getHeartbeat(){
+        return checkPeriodMs * 1_000_000L;
+    }
+
+    /**
+     * @return true - если срок пропущен и источники еще не восстановились.
+     */
+    public boolean isTripped(){ return isTripped; }
+
+    /**
+     * Запускает проверки; все источники считаются отметившимися в момент запуска.
+     */
+    public void arm(){
+        long now = System.nanoTime();
+        for (int source = 0; source < feedTimes.length(); ++source) feedTimes.set(source, now);
+        isTripped = false;
+        isArmed = true;
+        scheduler.removeCallbacks(check);
+        scheduler.postDelayed(check, checkPeriodMs);
+    }
+
+    public void disarm(){
+        isArmed = false;
+        scheduler.removeCallbacks(check);
+    }
+
+    /**
+     * Останавливает проверки и завершает поток сторожа.
+     */
+    public void quit(){
+        disarm();
+        scheduler.quit();
+    }
+
+    private void check(){
+        if (!isArmed) return;
+        long now = System.nanoTime();
+        int lateSource = -1;
+        long lateness = 0;
+        for (int source = 0; source < feedTimes.length(); ++source){
+            long elapsed = now - feedTimes.get(source);
+            if (elapsed > deadline && elapsed > lateness){
+                lateSource = source;
+                lateness = elapsed;
+            }
+        }
+        if (lateSource >= 0 && !isTripped){
+            isTripped = true;
+            listener.onDeadlineMissed(lateSource, lateness);
+        }
+        else if (lateSource < 0 && isTripped){
+            isTripped = false;
+            listener.onRecovered();
+        }
+        scheduler.postDelayed(check, checkPeriodMs);
+    }
+}
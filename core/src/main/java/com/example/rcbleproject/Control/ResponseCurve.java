@@ -0,0 +1,99 @@
+package com.example.rcbleproject.Control;
+
+/**
+ * Класс ResponseCurve - передаточная характеристика соединения порта: отображение значения
+ * оси элемента управления (-100..100) в значение порта (-100..100) до учета направления
+ * вращения порта. Характеристика задается зоной нечувствительности, экспонентой, минимальной
+ * и максимальной мощностью и инверсией и заранее вычисляется в таблицу, поэтому map()
+ * стоит одного обращения к массиву. Ограничение скорости изменения (slewRate) зависит
+ * от времени и применяется отдельно (SlewRateLimiter). Экземпляры неизменяемы.
+ */
+public final class ResponseCurve {
+    public static final int MAX_VALUE = 100;
+    public static final int MAX_DEAD_ZONE = 90;
+    public static final ResponseCurve LINEAR = new ResponseCurve(0, 0, 0, MAX_VALUE, 0, false);
+
+    public final int deadZone;      // зона нечувствительности около нуля, % хода оси
+    public final int expo;          // доля кубической составляющей, %: 0 - линейная характеристика
+    public final int minOutput;     // минимальная ненулевая мощность (трогание мотора), %
+    public final int maxOutput;     // максимальная мощность, %
+    public final int slewRate;      // макс. скорость роста мощности, %/с; 0 - без ограничения
+    public final boolean isInverted;
+    private final byte[] table = new byte[2 * MAX_VALUE + 1];
+
+    /**
+     * Параметры приводятся к допустимым диапазонам.
+     * @param deadZone - 0..MAX_DEAD_ZONE.
+     * @param expo - 0..100.
+     * @param minOutput - 0..maxOutput.
+     * @param maxOutput - 0..100.
+     * @param slewRate - >= 0.
+     * @param isInverted - инверсия (дополнительно к направлению вращения порта).
+     */
+    public ResponseCurve(int deadZone, int expo, int minOutput, int maxOutput, int slewRate,
+                         boolean isInverted){
+        this.deadZone = clamp(deadZone, 0, MAX_DEAD_ZONE);
+        this.expo = clamp(expo, 0, 100);
+        this.maxOutput = clamp(maxOutput, 0, MAX_VALUE);
+        this.minOutput = clamp(minOutput, 0, this.maxOutput);
+        this.slewRate = Math.max(0, slewRate);
+        this.isInverted = isInverted;
+        for (int value = -MAX_VALUE; value <= MAX_VALUE; ++value)
+            table[value + MAX_VALUE] = (byte) compute(value);
+    }
+
+    /**
+     * @param axisValue - значение оси, -100..100 (значения вне диапазона ограничиваются).
+     * @return значение порта, -100..100.
+     */
+    public int map(int axisValue){
+        if (axisValue > MAX_VALUE) axisValue = MAX_VALUE;
+        else if (axisValue < -MAX_VALUE) axisValue = -MAX_VALUE;
+        return table[axisValue + MAX_VALUE];
+    }
+
+    /**
+     * @return true - если характеристика не изменяет значения оси.
+     */
+    public boolean isLinear(){
+        return deadZone == 0 && expo == 0 && minOutput == 0 && maxOutput == MAX_VALUE
+                && slewRate == 0 && !isInverted;
+    }
+
+    private int compute(int value){
+        int magnitude = Math.abs(value);
+        if (magnitude <= deadZone) return 0;
+        double x = (double) (magnitude - deadZone) / (MAX_VALUE - deadZone);   // 0..1
+        double e = expo / 100.0;
+        double curve = (1 - e) * x + e * x * x * x;
+        int output = (int) Math.round(minOutput + (maxOutput - minOutput) * curve);
+        if (output == 0 && maxOutput > 0) output = 1;     // вне зоны нечувствительности - не ноль
+        output = Math.min(output, maxOutput);
+        if (value < 0) output = -output;
+        return isInverted? -output : output;
+    }
+
+    private static int clamp(int value, int min, int max){
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if (this == obj) return true;
+        if (!(obj instanceof ResponseCurve)) return false;
+        ResponseCurve other = (ResponseCurve) obj;
+        return deadZone == other.deadZone && expo == other.expo && minOutput == other.minOutput
+                && maxOutput == other.maxOutput && slewRate == other.slewRate
+                && isInverted == other.isInverted;
+    }
+
+    @Override
+    public int hashCode(){
+        int hash = deadZone;
+        hash = 31 * hash + expo;
+        hash = 31 * hash + minOutput;
+        hash = 31 * hash + maxOutput;
+        hash = 31 * hash + slewRate;
+        return 31 * hash + (isInverted? 1 : 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.rcbleproject.Control;
+
+/**
+ * Класс SlewRateLimiter ограничивает скорость роста мощности порта (ResponseCurve.slewRate).
+ * Ограничивается только разгон: уменьшение мощности и остановка выполняются сразу, а при смене
+ * направления мощность сначала сбрасывается до нуля. Используется только потоком отправки команд.
+ */
+public class SlewRateLimiter {
+    private long lastTime = 0;          // время последнего шага разгона, нс
+    private boolean isRamping = false;  // идет разгон (целевое значение еще не достигнуто)
+
+    /**
+     * Вычисляет следующее значение порта на пути к целевому. Первый шаг разгона (1%) выполняется
+     * сразу, следующие - по мере прошедшего времени.
+     * @param current - текущее (последнее отправленное) значение порта.
+     * @param target - целевое значение (ResponseCurve.map()).
+     * @param slewRate - макс. скорость роста, %/с; 0 - без ограничения.
+     * @param now - текущее время, нс.
+     * @return значение для отправки; равно current, если для шага еще не прошло времени.
+     */
+    public int apply(int current, int target, int slewRate, long now){
+        int targetSign = Integer.signum(target), currentSign = Integer.signum(current);
+        if (slewRate <= 0 || target == current
+                || Math.abs(target) < Math.abs(current) && targetSign != -currentSign){
+            isRamping = false;
+            return target;
+        }
+        if (targetSign == -currentSign){
+            // смена направления: сначала останавливаемся
+            isRamping = false;
+            return 0;
+        }
+        long step = 1;
+        if (isRamping){
+            long elapsed = now - lastTime;
+            step = elapsed >= 1_000_000_000L? Long.MAX_VALUE : slewRate * elapsed / 1_000_000_000L;
+            if (step == 0) return current;
+        }
+        lastTime = now;
+        if (step >= Math.abs(target - current)){
+            isRamping = false;
+            return target;
+        }
+        isRamping = true;
+        return target > current? current + (int) step : current - (int) step;
+    }
+
+    /**
+     * @return время одного шага (1%) при заданной скорости, нс (не меньше 1 нс, так как 0
+     *         означает отсутствие ограничения); 0 - без ограничения.
+     */
+    public static long getStepInterval(int slewRate){
+        return slewRate <= 0? 0 : Math.max(1, 1_000_000_000L / slewRate);
+    }
+
+    public void reset(){ isRamping = false; }
+}
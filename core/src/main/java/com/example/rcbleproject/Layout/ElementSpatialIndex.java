@@ -0,0 +1,97 @@
+package com.example.rcbleproject.Layout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс ElementSpatialIndex - равномерная сетка ячеек над элементами управления одного дисплея
+ * для поиска элемента под указателем. В ячейке хранятся элементы, границы которых ее
+ * пересекают, в порядке списка дисплея, поэтому верхний элемент - последний подходящий
+ * в ячейке. Индекс перестраивается лениво при первом поиске после invalidate() (перемещение,
+ * изменение размера, добавление или удаление элементов).
+ * Класс не зависит от Android, поэтому поиск можно измерять на обычной JVM.
+ * Используется только в одном потоке (в приложении - главном).
+ * @param <T> - тип элемента.
+ */
+public class ElementSpatialIndex<T extends ElementSpatialIndex.IElement> {
+    /**
+     * Элемент, размещаемый в индексе.
+     */
+    public interface IElement {
+        /**
+         * Записывает границы элемента, содержащие всю область касания.
+         * @param bounds - массив {left, top, right, bottom}.
+         */
+        void getBounds(float[] bounds);
+
+        /**
+         * @return true - если точка лежит в области касания элемента.
+         */
+        boolean contains(float x, float y);
+    }
+
+    private final List<T> elements;
+    private final float cellSize;
+    private final int cols, rows;
+    private final ArrayList<ArrayList<T>> cells;
+    private final float[] bounds = new float[4];
+    private boolean isValid = false;
+
+    /**
+     * @param elements - список элементов дисплея (порядок списка - порядок отрисовки).
+     * @param cellSize - размер ячейки, px.
+     * @param width - ширина дисплея, px.
+     * @param height - высота дисплея, px.
+     */
+    public ElementSpatialIndex(List<T> elements, float cellSize, int width, int height){
+        this.elements = elements;
+        this.cellSize = Math.max(1, cellSize);
+        cols = (int) (width / this.cellSize) + 1;
+        rows = (int) (height / this.cellSize) + 1;
+        cells = new ArrayList<>(cols * rows);
+        for (int i = 0; i < cols * rows; ++i) cells.add(new ArrayList<>());
+    }
+
+    /**
+     * Помечает индекс устаревшим; он будет перестроен при следующем поиске.
+     */
+    public void invalidate(){ isValid = false; }
+
+    /**
+     * Находит верхний элемент, содержащий точку.
+     * @param x - координата X указателя.
+     * @param y - координата Y указателя.
+     * @return верхний элемент под указателем; null - если элемента нет.
+     */
+    public T findTopmost(float x, float y){
+        if (!isValid) rebuild();
+        ArrayList<T> cell = cells.get(getRow(y) * cols + getCol(x));
+        for (int i = cell.size() - 1; i >= 0; --i){
+            T element = cell.get(i);
+            if (element.contains(x, y)) return element;
+        }
+        return null;
+    }
+
+    private void rebuild(){
+        for (int i = 0; i < cells.size(); ++i) cells.get(i).clear();
+        for (int i = 0; i < elements.size(); ++i){
+            T element = elements.get(i);
+            if (element == null) continue;
+            element.getBounds(bounds);
+            int right = getCol(bounds[2]), bottom = getRow(bounds[3]);
+            for (int row = getRow(bounds[1]); row <= bottom; ++row)
+                for (int col = getCol(bounds[0]); col <= right; ++col)
+                    cells.get(row * cols + col).add(element);
+        }
+        isValid = true;
+    }
+
+    private int getCol(float x){
+        return Math.min(cols - 1, Math.max(0, (int) (x / cellSize)));
+    }
+
+    private int getRow(float y){
+        return Math.min(rows - 1, Math.max(0, (int) (y / cellSize)));
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.rcbleproject.Protocol;
+
+/**
+ * Класс HubFrames - операции над закодированными кадрами сообщений хаба, хранящимися
+ * в переиспользуемых буферах (длина кадра может быть меньше длины буфера).
+ */
+public final class HubFrames {
+    private HubFrames() {}
+
+    /**
+     * Сравнивает два кадра без выделения памяти. Байты сравниваются с конца кадра, так как
+     * кадры команд одного порта обычно различаются только значением в последних байтах.
+     * @param frame - буфер первого кадра.
+     * @param length - длина первого кадра.
+     * @param otherFrame - буфер второго кадра.
+     * @param otherLength - длина второго кадра.
+     * @return true - если кадры совпадают.
+     */
+    public static boolean isEqual(byte[] frame, int length, byte[] otherFrame, int otherLength){
+        if (length != otherLength) return false;
+        for (int i = length - 1; i >= 0; --i)
+            if (frame[i] != otherFrame[i]) return false;
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.rcbleproject.Protocol;
+
+/**
+ * Класс HubMessage содержит результат разбора одного сообщения хаба.
+ * Экземпляр переиспользуется при разборе, поэтому поля изменяемые.
+ */
+public class HubMessage {
+    public static final int UNKNOWN = 0;        // сообщение, не используемое приложением
+    public static final int BATTERY = 1;        // value - заряд батареи, %
+    public static final int IO_ATTACHED = 2;    // к порту portNum подключено устройство с типом value
+    public static final int IO_DETACHED = 3;    // от порта portNum отключено устройство
+    public static final int PORT_VALUE = 4;     // value - значение датчика порта portNum
+    public static final int PORT_FEEDBACK = 5;  // value - флаги выполнения команды порта portNum
+    public static final int RSSI = 6;           // value - уровень сигнала хаба, дБм
+    public static final int MOTOR_LOAD = 7;     // value - ток моторов хаба, % диапазона датчика
+
+    public int type = UNKNOWN;
+    public int portNum = -1;
+    public int value = 0;
+
+    public void set(int type, int portNum, int value){
+        this.type = type;
+        this.portNum = portNum;
+        this.value = value;
+    }
+}
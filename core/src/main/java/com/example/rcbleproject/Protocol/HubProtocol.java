@@ -0,0 +1,106 @@
+package com.example.rcbleproject.Protocol;
+
+import java.util.UUID;
+
+/**
+ * Интерфейс HubProtocol описывает протокол одного семейства хабов: UUID сервиса и
+ * характеристики, количество портов, кодирование команд и разбор сообщений хаба.
+ * Реализации не зависят от Android, поэтому их можно тестировать и измерять на обычной JVM.
+ */
+public interface HubProtocol {
+    int MAX_PORT_FRAME_LENGTH = 8;  // максимальная длина кадра команды одного порта
+
+    /**
+     * @return идентификатор типа хаба (хранится в БД).
+     */
+    int getHubTypeId();
+
+    /**
+     * @return UUID BLE-сервиса, объявляемого хабом.
+     */
+    UUID getServiceUuid();
+
+    /**
+     * @return UUID характеристики для обмена сообщениями с хабом.
+     */
+    UUID getCharacteristicUuid();
+
+    /**
+     * @return количество выходных портов хаба.
+     */
+    int getNumOfPorts();
+
+    /**
+     * Кодирует команду порта в переданный буфер без выделения памяти.
+     * @param portNum - номер порта.
+     * @param value - значение порта с учетом направления вращения (-100..100).
+     * @param dst - буфер длиной не менее MAX_PORT_FRAME_LENGTH.
+     * @return длина кадра команды; 0 - если хаб не поддерживает команду.
+     */
+    int encodePortCommand(int portNum, int value, byte[] dst);
+
+    /**
+     * Сообщает, можно ли передавать команды нескольких портов в одной записи (кадры
+     * следуют друг за другом без разделителей).
+     * @return true - если хаб разбирает несколько сообщений из одной записи.
+     */
+    boolean supportsBatching();
+
+    /**
+     * @return кадр включения сигнала (индикации) хаба; null - если не поддерживается.
+     */
+    byte[] encodeAlarmOn();
+
+    /**
+     * @return кадр выключения сигнала хаба; null - если сигнал выключается сам.
+     */
+    byte[] encodeAlarmOff();
+
+    /**
+     * @return максимальная длина имени хаба в байтах UTF-8; 0 - если имя хаба не изменяется.
+     */
+    int getMaxNameLength();
+
+    /**
+     * Кодирует команду переименования хаба.
+     * @param name - новое имя в UTF-8 длиной не более getMaxNameLength().
+     * @return кадр команды; null - если переименование не поддерживается.
+     */
+    byte[] encodeRename(byte[] name);
+
+    /**
+     * @return кадр подписки на уведомления о заряде батареи; null - если не поддерживается.
+     */
+    byte[] encodeBatterySubscription();
+
+    /**
+     * Кодирует подписку на значения датчика устройства, подключенного к порту.
+     * @param portNum - номер порта.
+     * @param ioTypeId - тип подключенного устройства (из сообщения IO_ATTACHED).
+     * @return кадр подписки; null - если устройство не сообщает значения.
+     */
+    byte[] encodePortValueSubscription(int portNum, int ioTypeId);
+
+    /**
+     * @param ioTypeId - тип подключенного устройства (из сообщения IO_ATTACHED).
+     * @return true - если устройство - встроенный датчик тока моторов хаба; его значения
+     *         (PORT_VALUE) переводятся в нагрузку через decodeMotorLoad().
+     */
+    boolean isMotorLoadSensor(int ioTypeId);
+
+    /**
+     * @param value - значение датчика тока моторов.
+     * @return нагрузка моторов хаба, % диапазона датчика.
+     */
+    int decodeMotorLoad(int value);
+
+    /**
+     * Разбирает одно сообщение хаба.
+     * @param data - принятые данные.
+     * @param offset - смещение начала сообщения.
+     * @param length - количество доступных байт, начиная с offset.
+     * @param out - структура для результата (переиспользуется, чтобы не выделять память).
+     * @return количество разобранных байт; 0 - если данные не содержат целого сообщения.
+     */
+    int decodeMessage(byte[] data, int offset, int length, HubMessage out);
+}
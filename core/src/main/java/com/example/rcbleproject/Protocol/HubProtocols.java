@@ -0,0 +1,51 @@
+package com.example.rcbleproject.Protocol;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс HubProtocols - реестр поддерживаемых протоколов хабов. Поиск протокола по UUID
+ * объявляемого сервиса и по идентификатору типа хаба выполняется за O(1).
+ * Новое семейство хабов добавляется регистрацией его реализации HubProtocol.
+ */
+public final class HubProtocols {
+    private static final ConcurrentHashMap<UUID, HubProtocol> byServiceUuid = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, HubProtocol> byHubTypeId = new ConcurrentHashMap<>();
+
+    static {
+        register(new PowerFunctionsProtocol());
+        register(new PoweredUpProtocol());
+    }
+
+    private HubProtocols() {}
+
+    public static void register(HubProtocol protocol){
+        byServiceUuid.put(protocol.getServiceUuid(), protocol);
+        byHubTypeId.put(protocol.getHubTypeId(), protocol);
+    }
+
+    /**
+     * @param serviceUuid - UUID сервиса из рекламного пакета хаба.
+     * @return протокол хаба; null - если сервис не принадлежит известному хабу.
+     */
+    public static HubProtocol forServiceUuid(UUID serviceUuid){
+        return serviceUuid == null? null : byServiceUuid.get(serviceUuid);
+    }
+
+    /**
+     * @param hubTypeId - идентификатор типа хаба.
+     * @return протокол хаба; null - если тип неизвестен.
+     */
+    public static HubProtocol forHubTypeId(int hubTypeId){
+        return byHubTypeId.get(hubTypeId);
+    }
+
+    /**
+     * @return UUID сервисов всех известных хабов (для фильтров сканирования).
+     */
+    public static Collection<UUID> getServiceUuids(){
+        return Collections.unmodifiableCollection(byServiceUuid.keySet());
+    }
+}
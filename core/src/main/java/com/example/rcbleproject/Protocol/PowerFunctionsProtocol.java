@@ -0,0 +1,74 @@
+package com.example.rcbleproject.Protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Протокол хаба PowerFunctions (gecko): команда порта - три байта {'0', порт, скорость 0..7}.
+ * Хаб не сообщает телеметрию и не поддерживает переименование.
+ */
+public class PowerFunctionsProtocol implements HubProtocol {
+    public static final int HUB_TYPE_ID = 0;
+    private static final UUID SERVICE_UUID = UUID.fromString("4ad77a12-4a0b-4daa-a715-ae0cb0427ed3");
+    private static final UUID CHARACTERISTIC_UUID = UUID.fromString("39789f14-68f7-46f8-92f1-623cde4bdfc7");
+    private static final int NUM_OF_PORTS = 4;
+    private static final byte[] ALARM_ON = "1".getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public int getHubTypeId() { return HUB_TYPE_ID; }
+
+    @Override
+    public UUID getServiceUuid() { return SERVICE_UUID; }
+
+    @Override
+    public UUID getCharacteristicUuid() { return CHARACTERISTIC_UUID; }
+
+    @Override
+    public int getNumOfPorts() { return NUM_OF_PORTS; }
+
+    @Override
+    public int encodePortCommand(int portNum, int value, byte[] dst){
+        int speed = (int)(value * 0.07f + (value < 0? -0.5 : 0.5));
+        dst[0] = '0';
+        dst[1] = (byte) portNum;
+        dst[2] = (byte) Math.min(7, speed);
+        return 3;
+    }
+
+    @Override
+    public boolean supportsBatching(){
+        // формат команд хаба не содержит длины, поэтому несколько команд в записи не разделить
+        return false;
+    }
+
+    @Override
+    public byte[] encodeAlarmOn() { return ALARM_ON.clone(); }
+
+    @Override
+    public byte[] encodeAlarmOff() { return null; }
+
+    @Override
+    public int getMaxNameLength() { return 0; }
+
+    @Override
+    public byte[] encodeRename(byte[] name) { return null; }
+
+    @Override
+    public byte[] encodeBatterySubscription() { return null; }
+
+    @Override
+    public byte[] encodePortValueSubscription(int portNum, int ioTypeId) { return null; }
+
+    @Override
+    public boolean isMotorLoadSensor(int ioTypeId) { return false; }
+
+    @Override
+    public int decodeMotorLoad(int value) { return value; }
+
+    @Override
+    public int decodeMessage(byte[] data, int offset, int length, HubMessage out){
+        if (length <= 0) return 0;
+        out.set(HubMessage.UNKNOWN, -1, 0);
+        return length;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.rcbleproject.Protocol;
+
+import java.util.UUID;
+
+/**
+ * Протокол хабов LEGO Powered Up (LEGO Wireless Protocol 3.0). Каждое сообщение начинается
+ * с заголовка {длина, id хаба, тип сообщения}, поэтому несколько сообщений могут следовать
+ * друг за другом в одной записи или уведомлении.
+ */
+public class PoweredUpProtocol implements HubProtocol {
+    public static final int HUB_TYPE_ID = 1;
+    private static final UUID SERVICE_UUID = UUID.fromString("00001623-1212-EFDE-1623-785FEABCD123");
+    private static final UUID CHARACTERISTIC_UUID = UUID.fromString("00001624-1212-EFDE-1623-785FEABCD123");
+    private static final int NUM_OF_PORTS = 4;
+    private static final int MAX_NAME_LENGTH = 14;
+
+    // типы сообщений
+    public static final byte HUB_PROPERTIES = 0x01;
+    public static final byte HUB_ACTIONS = 0x02;
+    public static final byte HUB_ATTACHED_IO = 0x04;
+    public static final byte PORT_INPUT_FORMAT_SETUP = 0x41;
+    public static final byte PORT_VALUE_SINGLE = 0x45;
+    public static final byte PORT_OUTPUT_COMMAND = (byte) 0x81;
+    public static final byte PORT_OUTPUT_FEEDBACK = (byte) 0x82;
+
+    // свойства хаба
+    public static final byte PROPERTY_ADVERTISING_NAME = 0x01;
+    public static final byte PROPERTY_BATTERY_VOLTAGE = 0x06;
+    public static final byte OPERATION_SET = 0x01;
+    public static final byte OPERATION_ENABLE_UPDATES = 0x02;
+    public static final byte OPERATION_UPDATE = 0x06;
+
+    // режим POS моторов с энкодером: положение вала в градусах (4 байта)
+    private static final byte MODE_POSITION = 0x02;
+    private static final int POSITION_DELTA = 5;     // минимальное изменение положения для уведомления
+    // встроенный датчик тока хаба, режим CUR L: ток моторов 0..MAX_CURRENT_RAW
+    private static final int IO_TYPE_CURRENT = 0x15;
+    private static final byte MODE_CURRENT = 0x00;
+    private static final int MAX_CURRENT_RAW = 4095;
+    private static final int CURRENT_DELTA = 41;     // ~1% диапазона
+
+    @Override
+    public int getHubTypeId() { return HUB_TYPE_ID; }
+
+    @Override
+    public UUID getServiceUuid() { return SERVICE_UUID; }
+
+    @Override
+    public UUID getCharacteristicUuid() { return CHARACTERISTIC_UUID; }
+
+    @Override
+    public int getNumOfPorts() { return NUM_OF_PORTS; }
+
+    @Override
+    public int encodePortCommand(int portNum, int value, byte[] dst){
+        // StartPower(Power): немедленное выполнение, без обратной связи
+        dst[0] = 0x07;
+        dst[1] = 0x00;
+        dst[2] = PORT_OUTPUT_COMMAND;
+        dst[3] = (byte) portNum;
+        dst[4] = 0x10;
+        dst[5] = 0x01;
+        dst[6] = (byte) value;
+        return 7;
+    }
+
+    @Override
+    public boolean supportsBatching(){
+        // сообщения содержат длину в заголовке, поэтому хаб разбирает их подряд
+        return true;
+    }
+
+    @Override
+    public byte[] encodeAlarmOn() { return new byte[]{0x04, 0x00, HUB_ACTIONS, 0x05}; }
+
+    @Override
+    public byte[] encodeAlarmOff() { return new byte[]{0x04, 0x00, HUB_ACTIONS, 0x06}; }
+
+    @Override
+    public int getMaxNameLength() { return MAX_NAME_LENGTH; }
+
+    @Override
+    public byte[] encodeRename(byte[] name){
+        if (name.length > MAX_NAME_LENGTH) return null;
+        byte[] message = new byte[5 + name.length];
+        message[0] = (byte) message.length;
+        message[1] = 0x00;
+        message[2] = HUB_PROPERTIES;
+        message[3] = PROPERTY_ADVERTISING_NAME;
+        message[4] = OPERATION_SET;
+        System.arraycopy(name, 0, message, 5, name.length);
+        return message;
+    }
+
+    @Override
+    public byte[] encodeBatterySubscription(){
+        return new byte[]{0x05, 0x00, HUB_PROPERTIES, PROPERTY_BATTERY_VOLTAGE, OPERATION_ENABLE_UPDATES};
+    }
+
+    @Override
+    public byte[] encodePortValueSubscription(int portNum, int ioTypeId){
+        if (isMotorLoadSensor(ioTypeId))
+            return new byte[]{0x0A, 0x00, PORT_INPUT_FORMAT_SETUP, (byte) portNum, MODE_CURRENT,
+                    CURRENT_DELTA, 0x00, 0x00, 0x00, 0x01};
+        if (!isTachoMotor(ioTypeId)) return null;
+        return new byte[]{0x0A, 0x00, PORT_INPUT_FORMAT_SETUP, (byte) portNum, MODE_POSITION,
+                POSITION_DELTA, 0x00, 0x00, 0x00, 0x01};
+    }
+
+    @Override
+    public boolean isMotorLoadSensor(int ioTypeId){ return ioTypeId == IO_TYPE_CURRENT; }
+
+    @Override
+    public int decodeMotorLoad(int value){
+        return Math.max(0, Math.min(100, value * 100 / MAX_CURRENT_RAW));
+    }
+
+    /**
+     * @param ioTypeId - тип устройства.
+     * @return true - если устройство является мотором с энкодером.
+     */
+    private static boolean isTachoMotor(int ioTypeId){
+        switch (ioTypeId){
+            case 0x26:  // Medium Linear Motor
+            case 0x2E:  // Technic Large Motor
+            case 0x2F:  // Technic XL Motor
+            case 0x30:  // Technic Medium Angular Motor
+            case 0x31:  // Technic Large Angular Motor
+            case 0x41:  // Small Angular Motor
+            case 0x4B:  // Technic Medium Angular Motor (серый)
+            case 0x4C:  // Technic Large Angular Motor (серый)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int decodeMessage(byte[] data, int offset, int length, HubMessage out){
+        if (length < 3) return 0;
+        int msgLength = data[offset] & 0xFF;
+        int headerLength = 3;
+        if ((msgLength & 0x80) != 0){
+            // длина больше 127 кодируется двумя байтами
+            msgLength = (msgLength & 0x7F) | ((data[offset + 1] & 0xFF) << 7);
+            headerLength = 4;
+        }
+        if (msgLength < headerLength || msgLength > length) return 0;
+        int type = data[offset + headerLength - 1];
+        int payload = offset + headerLength;
+        int payloadLength = msgLength - headerLength;
+        out.set(HubMessage.UNKNOWN, -1, 0);
+        switch (type){
+            case HUB_PROPERTIES:
+                if (payloadLength >= 3 && data[payload] == PROPERTY_BATTERY_VOLTAGE
+                        && data[payload + 1] == OPERATION_UPDATE)
+                    out.set(HubMessage.BATTERY, -1, data[payload + 2] & 0xFF);
+                break;
+            case HUB_ATTACHED_IO:
+                if (payloadLength < 2) break;
+                int event = data[payload + 1];
+                if (event == 0x00) out.set(HubMessage.IO_DETACHED, data[payload] & 0xFF, 0);
+                else if (payloadLength >= 4)
+                    out.set(HubMessage.IO_ATTACHED, data[payload] & 0xFF,
+                            (data[payload + 2] & 0xFF) | ((data[payload + 3] & 0xFF) << 8));
+                break;
+            case PORT_VALUE_SINGLE:
+                if (payloadLength >= 2)
+                    out.set(HubMessage.PORT_VALUE, data[payload] & 0xFF,
+                            readSignedLE(data, payload + 1, Math.min(4, payloadLength - 1)));
+                break;
+            case PORT_OUTPUT_FEEDBACK:
+                if (payloadLength >= 2)
+                    out.set(HubMessage.PORT_FEEDBACK, data[payload] & 0xFF, data[payload + 1] & 0xFF);
+                break;
+        }
+        return msgLength;
+    }
+
+    /**
+     * Читает целое со знаком в порядке little-endian.
+     * @param size - размер значения в байтах (1, 2 или 4).
+     */
+    private static int readSignedLE(byte[] data, int offset, int size){
+        switch (size){
+            case 1: return data[offset];
+            case 2: case 3: return (short)((data[offset] & 0xFF) | (data[offset + 1] << 8));
+            default: return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8)
+                    | ((data[offset + 2] & 0xFF) << 16) | (data[offset + 3] << 24);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.rcbleproject.Simulation;
+
+import com.example.rcbleproject.Bluetooth.IHubTransport;
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Protocol.PowerFunctionsProtocol;
+import com.example.rcbleproject.Protocol.PoweredUpProtocol;
+import com.example.rcbleproject.Telemetry.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс FakeHubTransport - имитатор хаба Powered Up (LWP3) или PowerFunctions (gecko)
+ * в памяти процесса, реализующий IHubTransport без Android и оборудования.
+ * Модель канала: принятые записи попадают в буфер передачи контроллера емкостью
+ * Config.txBufferPackets; в каждом событии соединения (раз в Config.connectionIntervalUs)
+ * в эфир уходит не более Config.packetsPerEvent пакетов. Как и в Android, о завершении записи
+ * без ответа сообщается, когда в буфере есть место, поэтому при перегрузке канала очередь
+ * записи ждет событий соединения. Пакет теряется с вероятностью Config.lossRate (команда
+ * не доходит до хаба), а запись отклоняется "занятым стеком" с вероятностью Config.rejectRate.
+ * Доставленные кадры разбираются по протоколу хаба: последние значения портов, число команд
+ * и задержка от записи до доставки доступны для проверки. Все имитаторы используют один
+ * общий поток событий соединения.
+ */
+public class FakeHubTransport implements IHubTransport {
+    /**
+     * Параметры имитации канала.
+     */
+    public static class Config {
+        public long connectionIntervalUs = 7500;    // интервал соединения, мкс (7.5 мс - HIGH)
+        public int packetsPerEvent = 4;              // пакетов в одном событии соединения
+        public int txBufferPackets = 8;              // емкость буфера передачи контроллера
+        public double lossRate = 0;                  // вероятность потери пакета, 0..1
+        public double rejectRate = 0;                // вероятность отказа в записи, 0..1
+        public long seed = 1;                        // зерно генератора для воспроизводимости
+    }
+
+    private static ScheduledExecutorService radio = null;
+
+    private final String address;
+    private final HubProtocol protocol;
+    private final Config config;
+    private final Random random;
+    private final ArrayDeque<Packet> txBuffer = new ArrayDeque<>();
+    private final ArrayDeque<byte[]> notifications = new ArrayDeque<>();
+    private final AtomicIntegerArray portValues;
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final AtomicLong acceptedWrites = new AtomicLong(0);
+    private final AtomicLong rejectedWrites = new AtomicLong(0);
+    private final AtomicLong deliveredPackets = new AtomicLong(0);
+    private final AtomicLong lostPackets = new AtomicLong(0);
+    private final AtomicLong portCommands = new AtomicLong(0);
+    private volatile IListener listener = null;
+    private ScheduledFuture<?> connectionEvents = null;
+    // поля ниже изменяются под монитором имитатора
+    private boolean isCompletionPending = false;   // запись принята, завершение еще не сообщено
+    private boolean isDescriptorPending = false;   // запись дескриптора завершится в событии соединения
+    private boolean isNotificationsEnabled = false;
+    private int batteryLevel = 100;
+
+    private static class Packet {
+        final byte[] data;
+        final long writeTime;       // нс
+
+        Packet(byte[] data, long writeTime){
+            this.data = data;
+            this.writeTime = writeTime;
+        }
+    }
+
+    /**
+     * @param address - mac-адрес имитируемого хаба.
+     * @param protocol - протокол хаба (PoweredUpProtocol или PowerFunctionsProtocol).
+     * @param config - параметры канала.
+     */
+    public FakeHubTransport(String address, HubProtocol protocol, Config config){
+        this.address = address;
+        this.protocol = protocol;
+        this.config = config;
+        random = new Random(config.seed);
+        portValues = new AtomicIntegerArray(protocol.getNumOfPorts());
+    }
+
+    private static synchronized ScheduledExecutorService getRadio(){
+        if (radio == null){
+            radio = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "FakeHubRadio");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return radio;
+    }
+
+    /**
+     * Начинает события соединения ("подключает" хаб).
+     */
+    public synchronized void connect(){
+        if (connectionEvents != null) return;
+        connectionEvents = getRadio().scheduleAtFixedRate(this::onConnectionEvent,
+                config.connectionIntervalUs, config.connectionIntervalUs, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Останавливает события соединения; непереданные пакеты отбрасываются.
+     */
+    public synchronized void disconnect(){
+        if (connectionEvents != null) connectionEvents.cancel(false);
+        connectionEvents = null;
+        txBuffer.clear();
+        notifications.clear();
+        isCompletionPending = false;
+        isDescriptorPending = false;
+    }
+
+    @Override
+    public String getAddress(){ return address; }
+
+    @Override
+    public void setListener(IListener listener){ this.listener = listener; }
+
+    @Override
+    public synchronized boolean isReady(){ return connectionEvents != null; }
+
+    @Override
+    public synchronized boolean write(byte[] value){
+        if (connectionEvents == null || isCompletionPending || isDescriptorPending
+                || random.nextDouble() < config.rejectRate){
+            rejectedWrites.incrementAndGet();
+            return false;
+        }
+        txBuffer.addLast(new Packet(value.clone(), System.nanoTime()));
+        acceptedWrites.incrementAndGet();
+        isCompletionPending = true;
+        // пока в буфере есть место, стек сообщает о завершении сразу (вне вызова write)
+        if (txBuffer.size() < config.txBufferPackets) getRadio().execute(this::completeWrite);
+        return true;
+    }
+
+    @Override
+    public synchronized int enableNotifications(){
+        if (protocol.encodeBatterySubscription() == null) return NOTIFICATIONS_UNSUPPORTED;
+        if (connectionEvents == null || isCompletionPending || isDescriptorPending)
+            return NOTIFICATIONS_BUSY;
+        isDescriptorPending = true;
+        return NOTIFICATIONS_PENDING;
+    }
+
+    /**
+     * Устанавливает заряд батареи, о котором хаб сообщает по подписке.
+     * @param batteryLevel - заряд, %.
+     */
+    public synchronized void setBatteryLevel(int batteryLevel){
+        this.batteryLevel = batteryLevel;
+        if (isNotificationsEnabled && protocol.getHubTypeId() == PoweredUpProtocol.HUB_TYPE_ID)
+            notifications.addLast(encodeBatteryUpdate());
+    }
+
+    /**
+     * @return последнее значение, принятое хабом для порта: мощность -100..100 для Powered Up,
+     *         скорость -7..7 для PowerFunctions.
+     */
+    public int getPortValue(int portNum){ return portValues.get(portNum); }
+
+    public long getAcceptedWrites(){ return acceptedWrites.get(); }
+
+    public long getRejectedWrites(){ return rejectedWrites.get(); }
+
+    public long getDeliveredPackets(){ return deliveredPackets.get(); }
+
+    public long getLostPackets(){ return lostPackets.get(); }
+
+    /**
+     * @return количество команд портов, принятых хабом (в одном пакете их может быть несколько).
+     */
+    public long getPortCommands(){ return portCommands.get(); }
+
+    /**
+     * @return задержки от принятия записи до доставки пакета хабу.
+     */
+    public LatencyHistogram getDeliveryLatency(){ return deliveryLatency; }
+
+    private void completeWrite(){
+        synchronized (this){
+            if (!isCompletionPending) return;
+            isCompletionPending = false;
+        }
+        IListener listener = this.listener;
+        if (listener != null) listener.onWriteCompleted();
+    }
+
+    private void onConnectionEvent(){
+        boolean isWriteCompleted = false, isDescriptorWritten = false;
+        byte[] notification;
+        synchronized (this){
+            long now = System.nanoTime();
+            for (int i = 0; i < config.packetsPerEvent && !txBuffer.isEmpty(); ++i){
+                Packet packet = txBuffer.pollFirst();
+                if (random.nextDouble() < config.lossRate){
+                    lostPackets.incrementAndGet();
+                    continue;
+                }
+                deliveredPackets.incrementAndGet();
+                deliveryLatency.recordNanos(now - packet.writeTime);
+                applyFrame(packet.data);
+            }
+            if (isCompletionPending && txBuffer.size() < config.txBufferPackets){
+                isCompletionPending = false;
+                isWriteCompleted = true;
+            }
+            if (isDescriptorPending){
+                isDescriptorPending = false;
+                isNotificationsEnabled = true;
+                isDescriptorWritten = true;
+            }
+            notification = notifications.pollFirst();
+        }
+        IListener listener = this.listener;
+        if (listener == null) return;
+        if (isWriteCompleted || isDescriptorWritten) listener.onWriteCompleted();
+        if (notification != null) listener.onNotification(notification);
+    }
+
+    /**
+     * Разбирает доставленный кадр как хаб соответствующего протокола.
+     */
+    private void applyFrame(byte[] data){
+        if (protocol.getHubTypeId() == PowerFunctionsProtocol.HUB_TYPE_ID){
+            // {'0', порт, скорость}; одна команда в записи
+            if (data.length >= 3 && data[0] == '0' && data[1] >= 0 && data[1] < portValues.length()){
+                portValues.set(data[1], data[2]);
+                portCommands.incrementAndGet();
+            }
+            return;
+        }
+        // сообщения LWP3 следуют подряд, первый байт - длина сообщения
+        for (int offset = 0; offset + 3 <= data.length; ){
+            int length = data[offset] & 0xFF;
+            if (length < 3 || offset + length > data.length) return;
+            byte type = data[offset + 2];
+            if (type == PoweredUpProtocol.PORT_OUTPUT_COMMAND && length >= 7){
+                int portNum = data[offset + 3];
+                if (portNum >= 0 && portNum < portValues.length()){
+                    portValues.set(portNum, data[offset + 6]);
+                    portCommands.incrementAndGet();
+                }
+            }
+            else if (type == PoweredUpProtocol.HUB_PROPERTIES && length >= 5
+                    && data[offset + 3] == PoweredUpProtocol.PROPERTY_BATTERY_VOLTAGE
+                    && data[offset + 4] == PoweredUpProtocol.OPERATION_ENABLE_UPDATES
+                    && isNotificationsEnabled)
+                notifications.addLast(encodeBatteryUpdate());
+            offset += length;
+        }
+    }
+
+    private byte[] encodeBatteryUpdate(){
+        return new byte[]{0x06, 0x00, PoweredUpProtocol.HUB_PROPERTIES,
+                PoweredUpProtocol.PROPERTY_BATTERY_VOLTAGE, PoweredUpProtocol.OPERATION_UPDATE,
+                (byte) batteryLevel};
+    }
+}
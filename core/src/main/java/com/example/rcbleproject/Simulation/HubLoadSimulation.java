@@ -0,0 +1,188 @@
+package com.example.rcbleproject.Simulation;
+
+import com.example.rcbleproject.Bluetooth.ExecutorTaskScheduler;
+import com.example.rcbleproject.Bluetooth.HubWriteQueue;
+import com.example.rcbleproject.Bluetooth.IHubTransport;
+import com.example.rcbleproject.Protocol.HubProtocol;
+import com.example.rcbleproject.Protocol.PowerFunctionsProtocol;
+import com.example.rcbleproject.Protocol.PoweredUpProtocol;
+import com.example.rcbleproject.Telemetry.LatencyHistogram;
+import com.example.rcbleproject.Telemetry.LatencyStats;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Класс HubLoadSimulation - нагрузочный прогон конвейера команд (HubWriteQueue) на обычной JVM
+ * с несколькими десятками имитаторов хабов (FakeHubTransport). Поток-источник с частотой rate
+ * меняет значения всех портов всех хабов, как поток отправки команд приложения; по окончании
+ * выводится статистика задержек каждого хаба (CSV, как в экспорте LatencyOverlay) и итог
+ * по пропускной способности. Если задан minWritesPerSec и средняя частота доставленных
+ * записей на хаб ниже него, процесс завершается с кодом 1, поэтому прогон можно использовать
+ * на сборочной машине для обнаружения регрессий.
+ * Параметры (key=value): hubs=24 seconds=10 rate=100 intervalUs=7500 packetsPerEvent=4
+ * loss=0 reject=0 pfShare=0.25 batching=true minWritesPerSec=0.
+ * Запуск: ./gradlew :core:simulateHubs -Pargs="hubs=48 loss=0.01".
+ */
+public class HubLoadSimulation {
+    private final int numOfHubs;
+    private final long durationMs;
+    private final int rate;                     // изменений значений портов в секунду
+    private final double pfShare;               // доля хабов PowerFunctions
+    private final boolean isBatchingEnabled;
+    private final double minWritesPerSec;
+    private final FakeHubTransport.Config config = new FakeHubTransport.Config();
+
+    private final ArrayList<FakeHubTransport> transports = new ArrayList<>();
+    private final ArrayList<HubWriteQueue> queues = new ArrayList<>();
+    private final ArrayList<LatencyStats> stats = new ArrayList<>();
+    private long offeredValues = 0;
+
+    public HubLoadSimulation(String[] args){
+        Params params = new Params(args);
+        numOfHubs = params.getInt("hubs", 24);
+        durationMs = params.getInt("seconds", 10) * 1000L;
+        rate = Math.max(1, params.getInt("rate", 100));
+        pfShare = params.getDouble("pfShare", 0.25);
+        isBatchingEnabled = Boolean.parseBoolean(params.get("batching", "true"));
+        minWritesPerSec = params.getDouble("minWritesPerSec", 0);
+        config.connectionIntervalUs = params.getInt("intervalUs", (int) config.connectionIntervalUs);
+        config.packetsPerEvent = params.getInt("packetsPerEvent", config.packetsPerEvent);
+        config.lossRate = params.getDouble("loss", config.lossRate);
+        config.rejectRate = params.getDouble("reject", config.rejectRate);
+    }
+
+    public static void main(String[] args) throws Exception {
+        HubLoadSimulation simulation = new HubLoadSimulation(args);
+        simulation.run();
+        boolean isPassed = simulation.report(System.out);
+        System.exit(isPassed? 0 : 1);
+    }
+
+    /**
+     * Подключает имитаторы, нагружает очереди записи в течение заданного времени
+     * и закрывает их.
+     */
+    public void run() throws InterruptedException {
+        HubProtocol poweredUp = new PoweredUpProtocol(), powerFunctions = new PowerFunctionsProtocol();
+        int numOfPfHubs = (int) Math.round(numOfHubs * pfShare);
+        for (int i = 0; i < numOfHubs; ++i){
+            HubProtocol protocol = i < numOfPfHubs? powerFunctions : poweredUp;
+            String address = String.format(Locale.US, "00:00:00:00:%02X:%02X", i >> 8, i & 0xFF);
+            config.seed = i + 1;
+            FakeHubTransport transport = new FakeHubTransport(address, protocol, copy(config));
+            LatencyStats latencyStats = new LatencyStats();
+            HubWriteQueue queue = new HubWriteQueue(transport, protocol, latencyStats,
+                    new ExecutorTaskScheduler("HubWriteQueue-" + address));
+            queue.setBatchingEnabled(isBatchingEnabled);
+            transport.setListener(new IHubTransport.IListener() {
+                @Override
+                public void onWriteCompleted() { queue.onWriteCompleted(); }
+
+                @Override
+                public void onNotification(byte[] data) {}
+            });
+            transport.connect();
+            queue.onServicesDiscovered();
+            transports.add(transport);
+            queues.add(queue);
+            stats.add(latencyStats);
+        }
+
+        long periodNs = 1_000_000_000L / rate;
+        long start = System.nanoTime(), end = start + durationMs * 1_000_000L;
+        for (long tick = 0, next = start; next < end; ++tick, next += periodNs){
+            long delay = next - System.nanoTime();
+            if (delay > 0) Thread.sleep(delay / 1_000_000L, (int) (delay % 1_000_000L));
+            long now = System.nanoTime();
+            for (int i = 0; i < queues.size(); ++i){
+                for (int port = 0; port < HubWriteQueue.MAX_PORTS; ++port){
+                    // пилообразный сигнал -100..100 со сдвигом фазы по портам и хабам
+                    int value = (int) ((tick * 7 + port * 50 + i * 13) % 201) - 100;
+                    queues.get(i).offerPortValue(port, value, now, now);
+                    offeredValues++;
+                }
+            }
+        }
+        // даем очередям отправить последние значения
+        Thread.sleep(Math.max(50, config.connectionIntervalUs * 4 / 1000));
+        for (int i = 0; i < queues.size(); ++i){
+            queues.get(i).close();
+            transports.get(i).disconnect();
+        }
+    }
+
+    /**
+     * Выводит статистику прогона.
+     * @return false - если частота доставленных записей ниже minWritesPerSec.
+     */
+    public boolean report(PrintStream out) throws IOException {
+        out.println(LatencyStats.CSV_HEADER);
+        long accepted = 0, rejected = 0, delivered = 0, lost = 0, commands = 0;
+        long worstDeliveryP99 = 0;  // мкс
+        for (int i = 0; i < transports.size(); ++i){
+            FakeHubTransport transport = transports.get(i);
+            stats.get(i).writeCsv(out, transport.getAddress());
+            accepted += transport.getAcceptedWrites();
+            rejected += transport.getRejectedWrites();
+            delivered += transport.getDeliveredPackets();
+            lost += transport.getLostPackets();
+            commands += transport.getPortCommands();
+            LatencyHistogram histogram = transport.getDeliveryLatency();
+            worstDeliveryP99 = Math.max(worstDeliveryP99, histogram.getPercentileMicros(99));
+        }
+        double seconds = durationMs / 1000.0;
+        double writesPerSec = numOfHubs == 0? 0 : delivered / seconds / numOfHubs;
+        out.println();
+        out.println(String.format(Locale.US, "hubs: %d, duration: %.1f s, offered values: %d",
+                numOfHubs, seconds, offeredValues));
+        out.println(String.format(Locale.US,
+                "writes accepted: %d, rejected: %d, delivered: %d, lost: %d, port commands: %d",
+                accepted, rejected, delivered, lost, commands));
+        out.println(String.format(Locale.US,
+                "delivered writes per hub: %.1f/s, worst per-hub p99 delivery latency: %.2f ms",
+                writesPerSec, worstDeliveryP99 / 1000.0));
+        if (writesPerSec < minWritesPerSec){
+            out.println(String.format(Locale.US, "FAILED: %.1f writes/s per hub < %.1f",
+                    writesPerSec, minWritesPerSec));
+            return false;
+        }
+        return true;
+    }
+
+    private static FakeHubTransport.Config copy(FakeHubTransport.Config config){
+        FakeHubTransport.Config copy = new FakeHubTransport.Config();
+        copy.connectionIntervalUs = config.connectionIntervalUs;
+        copy.packetsPerEvent = config.packetsPerEvent;
+        copy.txBufferPackets = config.txBufferPackets;
+        copy.lossRate = config.lossRate;
+        copy.rejectRate = config.rejectRate;
+        copy.seed = config.seed;
+        return copy;
+    }
+
+    /**
+     * Параметры командной строки вида key=value.
+     */
+    private static class Params {
+        private final String[] args;
+
+        Params(String[] args){ this.args = args; }
+
+        String get(String key, String defaultValue){
+            for (String arg : args)
+                if (arg.startsWith(key + "=")) return arg.substring(key.length() + 1);
+            return defaultValue;
+        }
+
+        int getInt(String key, int defaultValue){
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+        }
+
+        double getDouble(String key, double defaultValue){
+            return Double.parseDouble(get(key, String.valueOf(defaultValue)));
+        }
+    }
+}
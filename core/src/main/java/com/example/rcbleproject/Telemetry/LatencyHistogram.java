@@ -0,0 +1,86 @@
+package com.example.rcbleproject.Telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс LatencyHistogram - гистограмма задержек с логарифмически-линейными корзинами
+ * (по образцу HdrHistogram): каждая степень двойки делится на SUB_BUCKETS равных корзин,
+ * поэтому относительная погрешность значения не превышает 1/SUB_BUCKETS (около 6%).
+ * Значения хранятся в микросекундах. Запись выполняется без блокировок и выделения памяти
+ * из любого числа потоков; чтение допускает одновременную запись (снимок может не включать
+ * последние записи).
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;                    // ~19 часов в микросекундах
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    static final int NUM_OF_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_OF_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong(0);
+    private final AtomicLong maxValue = new AtomicLong(0);
+
+    /**
+     * Записывает задержку.
+     * @param nanos - задержка, нс. Отрицательные значения отбрасываются.
+     */
+    public void recordNanos(long nanos){
+        if (nanos < 0) return;
+        long micros = Math.min(MAX_VALUE, nanos / 1000);
+        counts.incrementAndGet(getBucketIndex(micros));
+        totalCount.incrementAndGet();
+        long max;
+        do {
+            max = maxValue.get();
+            if (micros <= max) break;
+        } while (!maxValue.compareAndSet(max, micros));
+    }
+
+    public long getCount(){ return totalCount.get(); }
+
+    /**
+     * @return максимальная записанная задержка, мкс.
+     */
+    public long getMaxMicros(){ return maxValue.get(); }
+
+    /**
+     * Возвращает задержку, которую не превышает заданная доля записей.
+     * @param percentile - процентиль, от 0 до 100.
+     * @return верхняя граница корзины процентиля, мкс; 0 - если записей нет.
+     */
+    public long getPercentileMicros(double percentile){
+        long count = totalCount.get();
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+        long accumulated = 0;
+        for (int idx = 0; idx < NUM_OF_BUCKETS; ++idx){
+            accumulated += counts.get(idx);
+            if (accumulated >= target) return Math.min(getBucketUpperBound(idx), maxValue.get());
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Обнуляет гистограмму. Записи, выполняемые одновременно со сбросом, могут быть потеряны.
+     */
+    public void reset(){
+        for (int idx = 0; idx < NUM_OF_BUCKETS; ++idx) counts.set(idx, 0);
+        totalCount.set(0);
+        maxValue.set(0);
+    }
+
+    static int getBucketIndex(long value){
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >> shift);
+    }
+
+    static long getBucketUpperBound(int idx){
+        if (idx < 2 * SUB_BUCKETS) return idx;
+        int shift = idx / SUB_BUCKETS - 1;
+        long mantissa = idx - (long) shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
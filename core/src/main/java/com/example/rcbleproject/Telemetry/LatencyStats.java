@@ -0,0 +1,69 @@
+package com.example.rcbleproject.Telemetry;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Класс LatencyStats собирает задержки команд одного хаба по этапам пути от касания экрана
+ * до завершения записи в характеристику. Все задержки этапов отсчитываются от времени события
+ * касания (MotionEvent), поэтому разность соседних этапов - вклад одного звена:
+ * AXIS - изменение значения оси элемента управления (onControl);
+ * SEND - передача значения потоком отправки команд в очередь записи хаба;
+ * ENCODE - кодирование кадра команды порта;
+ * WRITE - запись принята стеком (writeCharacteristic вернул true);
+ * COMPLETE - стек сообщил о завершении записи (onCharacteristicWrite).
+ */
+public class LatencyStats {
+    public static final int AXIS = 0;
+    public static final int SEND = 1;
+    public static final int ENCODE = 2;
+    public static final int WRITE = 3;
+    public static final int COMPLETE = 4;
+    public static final int NUM_OF_STAGES = 5;
+    private static final String[] STAGE_NAMES = {"axis", "send", "encode", "write", "complete"};
+
+    public static final String CSV_HEADER = "hub,stage,count,p50_us,p90_us,p99_us,max_us";
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[NUM_OF_STAGES];
+
+    public LatencyStats(){
+        for (int stage = 0; stage < NUM_OF_STAGES; ++stage)
+            histograms[stage] = new LatencyHistogram();
+    }
+
+    /**
+     * Записывает задержку этапа.
+     * @param stage - этап (AXIS ... COMPLETE).
+     * @param inputTime - время события касания, нс (System.nanoTime); 0 - время неизвестно,
+     *                  и задержка не записывается.
+     * @param stageTime - время этапа, нс (System.nanoTime).
+     */
+    public void record(int stage, long inputTime, long stageTime){
+        if (inputTime == 0) return;
+        histograms[stage].recordNanos(stageTime - inputTime);
+    }
+
+    public LatencyHistogram getHistogram(int stage){ return histograms[stage]; }
+
+    public static String getStageName(int stage){ return STAGE_NAMES[stage]; }
+
+    public void reset(){
+        for (LatencyHistogram histogram : histograms) histogram.reset();
+    }
+
+    /**
+     * Выводит строки CSV (без заголовка CSV_HEADER) по всем этапам, в которых есть записи.
+     * @param out - получатель строк.
+     * @param hub - идентификатор хаба (mac-адрес) для первого столбца.
+     */
+    public void writeCsv(Appendable out, String hub) throws IOException {
+        for (int stage = 0; stage < NUM_OF_STAGES; ++stage){
+            LatencyHistogram histogram = histograms[stage];
+            if (histogram.getCount() == 0) continue;
+            out.append(String.format(Locale.US, "%s,%s,%d,%d,%d,%d,%d\n", hub, STAGE_NAMES[stage],
+                    histogram.getCount(), histogram.getPercentileMicros(50),
+                    histogram.getPercentileMicros(90), histogram.getPercentileMicros(99),
+                    histogram.getMaxMicros()));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.rcbleproject.Telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс RateMeter считает события (например, записи в характеристику хаба) и вычисляет их
+ * частоту между опросами. Счет событий допускается из любого потока, частоту обычно
+ * запрашивает один поток вывода статистики.
+ */
+public class RateMeter {
+    // минимальный интервал между отсчетами, нс: при более частых опросах частота не пересчитывается
+    private static final long MIN_SAMPLE_INTERVAL = 250_000_000L;
+
+    private final AtomicLong count = new AtomicLong();
+    private long sampleCount = 0, sampleTime = 0;   // последний отсчет
+    private double rate = 0;
+
+    public void increment(){ count.incrementAndGet(); }
+
+    public long getCount(){ return count.get(); }
+
+    /**
+     * @param now - текущее время, нс (System.nanoTime).
+     * @return частота событий с предыдущего отсчета, 1/с; 0 при первом опросе.
+     */
+    public synchronized double getRate(long now){
+        long elapsed = now - sampleTime;
+        if (sampleTime != 0 && elapsed < MIN_SAMPLE_INTERVAL) return rate;
+        long current = count.get();
+        rate = sampleTime == 0? 0 : (current - sampleCount) * 1e9 / elapsed;
+        sampleCount = current;
+        sampleTime = now;
+        return rate;
+    }
+}
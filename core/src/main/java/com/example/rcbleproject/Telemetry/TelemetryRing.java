@@ -0,0 +1,90 @@
+package com.example.rcbleproject.Telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс TelemetryRing - кольцевой буфер записей телеметрии хаба без блокировок для одного
+ * производителя (поток разбора уведомлений) и одного потребителя. Записи хранятся
+ * в параллельных массивах примитивов, поэтому запись и чтение не выделяют память.
+ * При переполнении новая запись замещает самую старую (буфер хранит последние записи),
+ * а количество замещенных записей учитывается в getOverwrittenCount().
+ * Производитель сдвигает начало буфера через CAS, поэтому потребитель подтверждает каждую
+ * прочитанную запись CAS начала и перечитывает ее, если производитель успел ее заместить.
+ */
+public class TelemetryRing {
+    /**
+     * Получатель записей телеметрии при чтении буфера.
+     */
+    public interface ITelemetryConsumer {
+        void onTelemetry(int type, int portNum, int value, long timeNanos);
+    }
+
+    private final int mask;
+    private final int[] types, ports, values;
+    private final long[] times;
+    private final AtomicLong head = new AtomicLong(0);  // индекс следующей записи для чтения
+    private final AtomicLong tail = new AtomicLong(0);  // индекс следующей записи для добавления
+    private final AtomicLong overwrittenCount = new AtomicLong(0);
+
+    /**
+     * @param capacity - емкость буфера, округляется вверх до степени двойки.
+     */
+    public TelemetryRing(int capacity){
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        types = new int[size];
+        ports = new int[size];
+        values = new int[size];
+        times = new long[size];
+    }
+
+    /**
+     * Добавляет запись, при заполненном буфере замещая самую старую.
+     * Вызывается только потоком-производителем.
+     * @return true - если запись добавлена без замещения.
+     */
+    public boolean offer(int type, int portNum, int value, long timeNanos){
+        long t = tail.get();
+        boolean isOverwritten = false;
+        for (long h = head.get(); t - h > mask; h = head.get()){
+            // освобождаем ячейку самой старой записи до ее перезаписи
+            if (head.compareAndSet(h, t - mask)){
+                overwrittenCount.incrementAndGet();
+                isOverwritten = true;
+                break;
+            }
+        }
+        int idx = (int) t & mask;
+        types[idx] = type;
+        ports[idx] = portNum;
+        values[idx] = value;
+        times[idx] = timeNanos;
+        tail.lazySet(t + 1);
+        return !isOverwritten;
+    }
+
+    /**
+     * Передает потребителю все накопленные записи. Вызывается только потоком-потребителем.
+     * @return количество прочитанных записей.
+     */
+    public int drain(ITelemetryConsumer consumer){
+        int count = 0;
+        long t = tail.get();
+        for (long h = head.get(); h < t; h = head.get()){
+            int idx = (int) h & mask;
+            int type = types[idx], portNum = ports[idx], value = values[idx];
+            long time = times[idx];
+            // запись действительна, только если производитель не сдвинул начало за нее
+            if (!head.compareAndSet(h, h + 1)) continue;
+            consumer.onTelemetry(type, portNum, value, time);
+            ++count;
+        }
+        return count;
+    }
+
+    public int size(){ return (int)(tail.get() - head.get()); }
+
+    public int capacity(){ return mask + 1; }
+
+    public long getOverwrittenCount(){ return overwrittenCount.get(); }
+}
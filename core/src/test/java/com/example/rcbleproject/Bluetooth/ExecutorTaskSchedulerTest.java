@@ -0,0 +1,72 @@
+package com.example.rcbleproject.Bluetooth;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ExecutorTaskSchedulerTest {
+    private static final int ITERATIONS = 500;
+
+    @Test
+    public void runsPostedAndDelayedTasks() throws InterruptedException {
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler("TestScheduler");
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.post(done::countDown);
+        scheduler.postDelayed(done::countDown, 1);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        scheduler.quit();
+    }
+
+    @Test
+    public void removeCallbacksCancelsDelayedTask() throws InterruptedException {
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler("TestScheduler");
+        AtomicInteger runs = new AtomicInteger();
+        Runnable task = runs::incrementAndGet;
+        scheduler.postDelayed(task, 20);
+        scheduler.removeCallbacks(task);
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.postDelayed(done::countDown, 40);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        scheduler.quit();
+    }
+
+    @Test
+    public void postAfterQuitIsIgnored() throws InterruptedException {
+        ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler("TestScheduler");
+        scheduler.quit();
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.post(runs::incrementAndGet);
+        scheduler.postDelayed(runs::incrementAndGet, 1);
+        Thread.sleep(20);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void postRacingQuitDoesNotThrow() throws InterruptedException {
+        for (int iteration = 0; iteration < ITERATIONS; ++iteration){
+            ExecutorTaskScheduler scheduler = new ExecutorTaskScheduler("TestScheduler");
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            CountDownLatch started = new CountDownLatch(1);
+            Thread poster = new Thread(() -> {
+                started.countDown();
+                try {
+                    for (int i = 0; i < 1000; ++i) scheduler.post(() -> {});
+                }
+                catch (Throwable e){
+                    error.set(e);
+                }
+            });
+            poster.start();
+            started.await();
+            scheduler.quit();
+            poster.join();
+            assertNull("iteration " + iteration + ": " + error.get(), error.get());
+        }
+    }
+}
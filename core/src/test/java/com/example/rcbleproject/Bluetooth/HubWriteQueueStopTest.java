@@ -0,0 +1,150 @@
+package com.example.rcbleproject.Bluetooth;
+
+import com.example.rcbleproject.Protocol.PoweredUpProtocol;
+import com.example.rcbleproject.Telemetry.LatencyStats;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Остановка портов (stopAllPorts) при одновременной передаче значений из других потоков:
+ * после остановки хаб должен получить ноль для каждого порта, получавшего команды,
+ * а значения, переданные после остановки, не должны доходить до хаба до resumePorts().
+ */
+public class HubWriteQueueStopTest {
+    private static final int ITERATIONS = 200;
+    private static final int PRODUCERS = 2;
+    private static final long DRAIN_TIMEOUT_MS = 2000;
+
+    /**
+     * Транспорт, разбирающий команды портов Powered Up в момент записи. О завершении
+     * записи сообщается отдельным потоком, как в стеке Bluetooth.
+     */
+    private static class RecordingTransport implements IHubTransport {
+        final AtomicIntegerArray portValues = new AtomicIntegerArray(HubWriteQueue.MAX_PORTS);
+        private volatile IListener listener;
+        private final ExecutorTaskScheduler stack = new ExecutorTaskScheduler("TestStack");
+        private final Runnable complete = () -> listener.onWriteCompleted();
+
+        @Override
+        public String getAddress(){ return "00:00:00:00:00:01"; }
+
+        @Override
+        public void setListener(IListener listener){ this.listener = listener; }
+
+        @Override
+        public boolean isReady(){ return true; }
+
+        @Override
+        public boolean write(byte[] value){
+            for (int offset = 0; offset + 7 <= value.length; offset += value[offset])
+                if (value[offset + 2] == PoweredUpProtocol.PORT_OUTPUT_COMMAND)
+                    portValues.set(value[offset + 3], value[offset + 6]);
+            stack.post(complete);
+            return true;
+        }
+
+        @Override
+        public int enableNotifications(){ return NOTIFICATIONS_UNSUPPORTED; }
+
+        void close(){ stack.quit(); }
+    }
+
+    @Test
+    public void stopWinsOverConcurrentPortValues() throws Exception {
+        for (int iteration = 0; iteration < ITERATIONS; ++iteration)
+            runIteration(iteration);
+    }
+
+    private void runIteration(int iteration) throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        HubWriteQueue queue = new HubWriteQueue(transport, new PoweredUpProtocol(),
+                new LatencyStats(), new ExecutorTaskScheduler("TestQueue"));
+        transport.setListener(new IHubTransport.IListener() {
+            @Override
+            public void onWriteCompleted(){ queue.onWriteCompleted(); }
+
+            @Override
+            public void onNotification(byte[] data){}
+        });
+
+        AtomicBoolean isStopped = new AtomicBoolean(false);
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        AtomicLong acceptedAfterStop = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(PRODUCERS);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; ++p){
+            int producer = p;
+            producers[p] = new Thread(() -> {
+                started.countDown();
+                for (int value = 1; isRunning.get(); value = value % 100 + 1){
+                    boolean wasStopped = isStopped.get();
+                    int portNum = (value + producer) % HubWriteQueue.MAX_PORTS;
+                    if (queue.offerPortValue(portNum, value, 0, 0) && wasStopped)
+                        acceptedAfterStop.incrementAndGet();
+                }
+            });
+            producers[p].start();
+        }
+        started.await();
+        Thread.sleep(1);
+
+        assertTrue(queue.stopAllPorts());
+        isStopped.set(true);
+        Thread.sleep(2);
+        isRunning.set(false);
+        for (Thread producer : producers) producer.join();
+
+        try {
+            assertEquals("iteration " + iteration + ": values accepted after stop",
+                    0, acceptedAfterStop.get());
+            awaitQueue(queue);
+            awaitStoppedPorts(transport, iteration);
+            // значения после остановки отбрасываются, а не откладываются до ее снятия
+            assertFalse(queue.offerPortValue(0, 50, 0, 0));
+            Thread.sleep(5);
+            awaitQueue(queue);
+            assertEquals(0, transport.portValues.get(0));
+
+            queue.resumePorts();
+            assertTrue(queue.offerPortValue(0, 50, 0, 0));
+            awaitPortValue(transport, 0, 50, iteration);
+        }
+        finally {
+            queue.close();
+            transport.close();
+        }
+    }
+
+    /**
+     * Ожидает завершения задач, уже поставленных в поток очереди: после этого записи
+     * портов могут только приближаться к последним значениям.
+     */
+    private static void awaitQueue(HubWriteQueue queue) throws InterruptedException {
+        CountDownLatch barrier = new CountDownLatch(1);
+        queue.getScheduler().post(barrier::countDown);
+        assertTrue(barrier.await(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private static void awaitStoppedPorts(RecordingTransport transport, int iteration)
+            throws InterruptedException {
+        for (int portNum = 0; portNum < HubWriteQueue.MAX_PORTS; ++portNum)
+            awaitPortValue(transport, portNum, 0, iteration);
+    }
+
+    private static void awaitPortValue(RecordingTransport transport, int portNum, int value,
+                                       int iteration) throws InterruptedException {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_MS * 1_000_000L;
+        while (transport.portValues.get(portNum) != value && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertEquals("iteration " + iteration + ": port " + portNum,
+                value, transport.portValues.get(portNum));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.rcbleproject.Bluetooth;
+
+import com.example.rcbleproject.Protocol.PoweredUpProtocol;
+import com.example.rcbleproject.Telemetry.LatencyStats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Подтверждения и тайм-ауты записей очереди. Задачи очереди выполняются в потоке теста
+ * (ManualTaskScheduler), а отложенный тайм-аут записи - вызовом runDelayed().
+ */
+public class HubWriteQueueTest {
+    /**
+     * Транспорт, принимающий любую запись; подтверждения вызываются тестом.
+     */
+    private static class RecordingTransport implements IHubTransport {
+        final ArrayList<byte[]> writes = new ArrayList<>();
+
+        @Override
+        public String getAddress(){ return "00:00:00:00:00:02"; }
+
+        @Override
+        public void setListener(IListener listener){}
+
+        @Override
+        public boolean isReady(){ return true; }
+
+        @Override
+        public boolean write(byte[] value){
+            writes.add(value.clone());
+            return true;
+        }
+
+        @Override
+        public int enableNotifications(){ return NOTIFICATIONS_UNSUPPORTED; }
+
+        int lastPortValue(){ return writes.get(writes.size() - 1)[6]; }
+    }
+
+    private final ManualTaskScheduler scheduler = new ManualTaskScheduler();
+    private final RecordingTransport transport = new RecordingTransport();
+    private HubWriteQueue queue;
+
+    @Before
+    public void setUp(){
+        queue = new HubWriteQueue(transport, new PoweredUpProtocol(), new LatencyStats(), scheduler);
+    }
+
+    private void offer(int value){
+        assertTrue(queue.offerPortValue(0, value, 0, 0));
+        scheduler.runPending();
+    }
+
+    @Test
+    public void writesOneAtATime(){
+        offer(10);
+        assertEquals(1, transport.writes.size());
+        assertEquals(10, transport.lastPortValue());
+
+        // пока запись не подтверждена, новое значение ждет
+        offer(20);
+        assertEquals(1, transport.writes.size());
+
+        queue.onWriteCompleted();
+        scheduler.runPending();
+        assertEquals(2, transport.writes.size());
+        assertEquals(20, transport.lastPortValue());
+    }
+
+    @Test
+    public void timeoutReleasesQueue(){
+        offer(10);
+        offer(20);
+        assertEquals(1, transport.writes.size());
+
+        scheduler.runDelayed();
+        assertEquals(2, transport.writes.size());
+        assertEquals(20, transport.lastPortValue());
+    }
+
+    @Test
+    public void completionAfterTimeoutDoesNotCompleteNextWrite(){
+        offer(10);
+        // подтверждение первой записи получено, но обработано потоком очереди после тайм-аута,
+        // который уже начал следующую запись
+        queue.onWriteCompleted();
+        assertTrue(queue.offerPortValue(0, 20, 0, 0));
+        scheduler.runDelayed();
+        assertEquals(2, transport.writes.size());
+        assertEquals(20, transport.lastPortValue());
+
+        // вторая запись все еще ожидает подтверждения
+        offer(30);
+        assertEquals(2, transport.writes.size());
+
+        queue.onWriteCompleted();
+        scheduler.runPending();
+        assertEquals(3, transport.writes.size());
+        assertEquals(30, transport.lastPortValue());
+    }
+
+    @Test
+    public void completionWithoutWriteIsIgnored(){
+        offer(10);
+        scheduler.runDelayed();
+        // запоздалое подтверждение, когда записи нет
+        queue.onWriteCompleted();
+        scheduler.runPending();
+
+        offer(20);
+        assertEquals(2, transport.writes.size());
+        offer(30);
+        assertEquals(2, transport.writes.size());
+        assertTrue(scheduler.getDelayedCount() > 0);
+    }
+}
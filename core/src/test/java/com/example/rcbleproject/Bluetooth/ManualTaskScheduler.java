@@ -0,0 +1,73 @@
+package com.example.rcbleproject.Bluetooth;
+
+import java.util.ArrayList;
+
+/**
+ * Исполнитель задач для тестов: задачи выполняются в потоке теста только при вызове
+ * runPending() и runDelayed(), поэтому порядок событий полностью задается тестом.
+ */
+public class ManualTaskScheduler implements ITaskScheduler {
+    private final ArrayList<Runnable> tasks = new ArrayList<>();
+    private final ArrayList<Runnable> delayedTasks = new ArrayList<>();
+    private boolean isQuit = false;
+
+    @Override
+    public synchronized void post(Runnable task){
+        if (!isQuit) tasks.add(task);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delayMs){
+        if (!isQuit) delayedTasks.add(task);
+    }
+
+    @Override
+    public synchronized void removeCallbacks(Runnable task){
+        while (delayedTasks.remove(task));
+    }
+
+    @Override
+    public synchronized void quit(){
+        isQuit = true;
+        tasks.clear();
+        delayedTasks.clear();
+    }
+
+    public synchronized boolean isQuit(){ return isQuit; }
+
+    /**
+     * @return true - если задача ожидает отложенного запуска.
+     */
+    public synchronized boolean isDelayed(Runnable task){
+        return delayedTasks.contains(task);
+    }
+
+    public synchronized int getDelayedCount(){ return delayedTasks.size(); }
+
+    /**
+     * Выполняет задачи, поставленные через post(), включая поставленные во время выполнения.
+     */
+    public void runPending(){
+        Runnable task;
+        while ((task = poll(tasks)) != null) task.run();
+    }
+
+    /**
+     * Выполняет ожидающие отложенные задачи (как если бы их задержка истекла), затем
+     * задачи, поставленные ими через post(). Отложенные задачи, поставленные во время
+     * выполнения, остаются ожидающими.
+     */
+    public void runDelayed(){
+        ArrayList<Runnable> due;
+        synchronized (this){
+            due = new ArrayList<>(delayedTasks);
+            delayedTasks.clear();
+        }
+        for (Runnable task : due) task.run();
+        runPending();
+    }
+
+    private synchronized Runnable poll(ArrayList<Runnable> list){
+        return list.isEmpty()? null : list.remove(0);
+    }
+}
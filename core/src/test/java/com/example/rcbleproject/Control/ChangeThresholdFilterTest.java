@@ -0,0 +1,97 @@
+package com.example.rcbleproject.Control;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChangeThresholdFilterTest {
+    private static final long MS = 1_000_000L;
+    private static final int STEP = 5;
+    private static final long MAX_AGE = 100 * MS;
+    private static final long START = 1000 * MS;
+
+    private final ChangeThresholdFilter filter = new ChangeThresholdFilter();
+
+    @Test
+    public void acceptsFirstValue(){
+        assertEquals(3, filter.apply(3, STEP, MAX_AGE, START));
+        assertEquals(0, filter.getPendingDelay(MAX_AGE, START));
+    }
+
+    @Test
+    public void acceptsImmediately(){
+        int[][] cases = {
+                // принятое значение, новое значение
+                {40, 45},       // изменение на шаг
+                {40, 30},
+                {40, 0},        // остановка
+                {98, 100},      // крайние значения
+                {-98, -100},
+                {2, -2},        // смена направления
+                {-2, 2},
+        };
+        for (int[] c : cases){
+            filter.reset();
+            filter.apply(c[0], STEP, MAX_AGE, START);
+            assertEquals(c[0] + " -> " + c[1], c[1], filter.apply(c[1], STEP, MAX_AGE, START + MS));
+            assertEquals(0, filter.getPendingDelay(MAX_AGE, START + MS));
+        }
+    }
+
+    @Test
+    public void subStepChangeIsHeldThenFlushedAfterMaxAge(){
+        filter.apply(40, STEP, MAX_AGE, START);
+        assertEquals(40, filter.apply(42, STEP, MAX_AGE, START + 10 * MS));
+        assertEquals(90 * MS, filter.getPendingDelay(MAX_AGE, START + 10 * MS));
+
+        // значение все еще задержано, новое мелкое изменение заменяет задержанное
+        assertEquals(40, filter.apply(43, STEP, MAX_AGE, START + 60 * MS));
+        assertEquals(40 * MS, filter.getPendingDelay(MAX_AGE, START + 60 * MS));
+
+        // через maxAge после предыдущего изменения задержанное значение принимается
+        assertEquals(43, filter.apply(43, STEP, MAX_AGE, START + MAX_AGE));
+        assertEquals(0, filter.getPendingDelay(MAX_AGE, START + MAX_AGE));
+
+        // отсчет maxAge начинается заново от принятия
+        assertEquals(43, filter.apply(44, STEP, MAX_AGE, START + MAX_AGE + MS));
+        assertEquals(MAX_AGE - MS, filter.getPendingDelay(MAX_AGE, START + MAX_AGE + MS));
+    }
+
+    @Test
+    public void returnToAcceptedValueClearsPending(){
+        filter.apply(40, STEP, MAX_AGE, START);
+        filter.apply(42, STEP, MAX_AGE, START + MS);
+        assertEquals(40, filter.apply(40, STEP, MAX_AGE, START + 2 * MS));
+        assertEquals(0, filter.getPendingDelay(MAX_AGE, START + 2 * MS));
+    }
+
+    @Test
+    public void overduePendingValueReportsMinimalDelay(){
+        filter.apply(40, STEP, MAX_AGE, START);
+        filter.apply(42, STEP, MAX_AGE, START + MS);
+        assertEquals(1, filter.getPendingDelay(MAX_AGE, START + 2 * MAX_AGE));
+    }
+
+    @Test
+    public void smallStepDisablesFilter(){
+        for (int step = -1; step <= 1; ++step){
+            filter.reset();
+            filter.apply(40, step, MAX_AGE, START);
+            assertEquals("step " + step, 41, filter.apply(41, step, MAX_AGE, START + MS));
+            assertEquals(0, filter.getPendingDelay(MAX_AGE, START + MS));
+        }
+        filter.reset();
+        filter.apply(40, 2, MAX_AGE, START);
+        assertEquals(40, filter.apply(41, 2, MAX_AGE, START + MS));
+    }
+
+    @Test
+    public void resetAcceptsNextValue(){
+        filter.apply(40, STEP, MAX_AGE, START);
+        filter.apply(42, STEP, MAX_AGE, START + MS);
+        filter.reset();
+        assertEquals(0, filter.getPendingDelay(MAX_AGE, START + MS));
+        assertEquals(41, filter.apply(41, STEP, MAX_AGE, START + 2 * MS));
+        assertEquals(0, filter.getPendingDelay(MAX_AGE, START + 2 * MS));
+    }
+}
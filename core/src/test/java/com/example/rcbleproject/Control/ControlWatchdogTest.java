@@ -0,0 +1,158 @@
+package com.example.rcbleproject.Control;
+
+import com.example.rcbleproject.Bluetooth.ManualTaskScheduler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Проверки сторожа выполняются вручную (ManualTaskScheduler.runDelayed), поэтому тест
+ * задает только время между отметками источников; сроки выбраны с большим запасом.
+ */
+public class ControlWatchdogTest {
+    private static final long DEADLINE_MS = 40;
+    private static final long LATE_MS = DEADLINE_MS + 20;
+
+    private final ManualTaskScheduler scheduler = new ManualTaskScheduler();
+    private final ArrayList<String> events = new ArrayList<>();
+    private final ArrayList<Long> latenesses = new ArrayList<>();
+    private ControlWatchdog watchdog;
+
+    @Before
+    public void setUp(){
+        watchdog = new ControlWatchdog(2, DEADLINE_MS, scheduler, new ControlWatchdog.IListener() {
+            @Override
+            public void onDeadlineMissed(int source, long lateness){
+                events.add("missed " + source);
+                latenesses.add(lateness);
+            }
+
+            @Override
+            public void onRecovered(){
+                events.add("recovered");
+            }
+        });
+    }
+
+    @Test
+    public void heartbeatIsQuarterOfDeadline(){
+        assertEquals(DEADLINE_MS / 4 * 1_000_000L, watchdog.getHeartbeat());
+    }
+
+    @Test
+    public void checksOnlyWhenArmed(){
+        assertEquals(0, scheduler.getDelayedCount());
+        watchdog.arm();
+        assertEquals(1, scheduler.getDelayedCount());
+        // повторный запуск не добавляет вторую цепочку проверок
+        watchdog.arm();
+        assertEquals(1, scheduler.getDelayedCount());
+        watchdog.disarm();
+        assertEquals(0, scheduler.getDelayedCount());
+    }
+
+    @Test
+    public void fedSourcesDoNotTrip(){
+        watchdog.arm();
+        for (int i = 0; i < 5; ++i){
+            watchdog.feed(0);
+            watchdog.feed(1);
+            scheduler.runDelayed();
+        }
+        assertTrue(events.isEmpty());
+        assertFalse(watchdog.isTripped());
+        assertEquals(1, scheduler.getDelayedCount());
+    }
+
+    @Test
+    public void missedDeadlineTripsOnce() throws InterruptedException {
+        watchdog.arm();
+        Thread.sleep(LATE_MS);
+        watchdog.feed(0);
+        scheduler.runDelayed();
+        assertEquals(1, events.size());
+        assertEquals("missed 1", events.get(0));
+        assertTrue(latenesses.get(0) >= LATE_MS * 1_000_000L);
+        assertTrue(watchdog.isTripped());
+
+        // пока источник не отметился, событие не повторяется
+        scheduler.runDelayed();
+        scheduler.runDelayed();
+        assertEquals(1, events.size());
+        assertTrue(watchdog.isTripped());
+    }
+
+    @Test
+    public void reportsLatestSource() throws InterruptedException {
+        watchdog.arm();
+        Thread.sleep(LATE_MS);
+        watchdog.feed(1);
+        Thread.sleep(LATE_MS);
+        scheduler.runDelayed();
+        // оба источника опоздали, сообщается о дольше всех не отмечавшемся
+        assertEquals(1, events.size());
+        assertEquals("missed 0", events.get(0));
+        assertTrue(latenesses.get(0) >= 2 * LATE_MS * 1_000_000L);
+    }
+
+    @Test
+    public void recoversWhenAllSourcesFeed() throws InterruptedException {
+        watchdog.arm();
+        Thread.sleep(LATE_MS);
+        scheduler.runDelayed();
+        assertTrue(watchdog.isTripped());
+
+        // одного отметившегося источника недостаточно
+        watchdog.feed(0);
+        scheduler.runDelayed();
+        assertTrue(watchdog.isTripped());
+        assertEquals(1, events.size());
+
+        watchdog.feed(1);
+        scheduler.runDelayed();
+        assertFalse(watchdog.isTripped());
+        assertEquals(2, events.size());
+        assertEquals("recovered", events.get(1));
+
+        // после восстановления сторож снова срабатывает при пропуске срока
+        Thread.sleep(LATE_MS);
+        scheduler.runDelayed();
+        assertEquals(3, events.size());
+        assertTrue(events.get(2).startsWith("missed"));
+    }
+
+    @Test
+    public void armResetsTrip() throws InterruptedException {
+        watchdog.arm();
+        Thread.sleep(LATE_MS);
+        scheduler.runDelayed();
+        assertTrue(watchdog.isTripped());
+
+        watchdog.arm();
+        assertFalse(watchdog.isTripped());
+        scheduler.runDelayed();
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void disarmedWatchdogIgnoresMissedDeadline() throws InterruptedException {
+        watchdog.arm();
+        watchdog.disarm();
+        Thread.sleep(LATE_MS);
+        scheduler.runDelayed();
+        assertTrue(events.isEmpty());
+        assertFalse(watchdog.isTripped());
+    }
+
+    @Test
+    public void quitStopsScheduler(){
+        watchdog.arm();
+        watchdog.quit();
+        assertTrue(scheduler.isQuit());
+        assertEquals(0, scheduler.getDelayedCount());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.rcbleproject.Control;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResponseCurveTest {
+    private static final ResponseCurve[] CURVES = {
+            ResponseCurve.LINEAR,
+            new ResponseCurve(10, 0, 0, 100, 0, false),
+            new ResponseCurve(0, 100, 0, 100, 0, false),
+            new ResponseCurve(0, 50, 0, 100, 0, false),
+            new ResponseCurve(0, 0, 20, 80, 0, false),
+            new ResponseCurve(25, 40, 10, 90, 50, true),
+            new ResponseCurve(ResponseCurve.MAX_DEAD_ZONE, 100, 0, 100, 0, false),
+            new ResponseCurve(0, 0, 0, 0, 0, false),
+    };
+
+    @Test
+    public void mapTable(){
+        int[][] cases = {
+                // deadZone, expo, minOutput, maxOutput, isInverted, ось, ожидаемое значение
+                // зона нечувствительности
+                {10, 0, 0, 100, 0, 0, 0},
+                {10, 0, 0, 100, 0, 10, 0},
+                {10, 0, 0, 100, 0, -10, 0},
+                {10, 0, 0, 100, 0, 11, 1},
+                {10, 0, 0, 100, 0, 55, 50},
+                {10, 0, 0, 100, 0, 100, 100},
+                {10, 0, 0, 100, 0, -100, -100},
+                {ResponseCurve.MAX_DEAD_ZONE, 0, 0, 100, 0, 90, 0},
+                {ResponseCurve.MAX_DEAD_ZONE, 0, 0, 100, 0, 91, 10},
+                // экспонента: концы диапазона сохраняются, середина опускается
+                {0, 100, 0, 100, 0, 100, 100},
+                {0, 100, 0, 100, 0, -100, -100},
+                {0, 100, 0, 100, 0, 50, 13},
+                {0, 100, 0, 100, 0, 1, 1},
+                {0, 100, 0, 100, 0, 0, 0},
+                {0, 50, 0, 100, 0, 50, 31},
+                {0, 50, 0, 100, 0, 100, 100},
+                // минимальная и максимальная мощность
+                {0, 0, 20, 80, 0, 1, 21},
+                {0, 0, 20, 80, 0, 50, 50},
+                {0, 0, 20, 80, 0, 100, 80},
+                {0, 0, 20, 80, 0, -100, -80},
+                {0, 0, 0, 0, 0, 100, 0},
+                // инверсия
+                {0, 0, 0, 100, 1, 40, -40},
+                {0, 0, 0, 100, 1, -100, 100},
+                {10, 0, 0, 100, 1, 5, 0},
+        };
+        for (int[] c : cases){
+            ResponseCurve curve = new ResponseCurve(c[0], c[1], c[2], c[3], 0, c[4] != 0);
+            assertEquals(String.format("deadZone %d expo %d output %d..%d inverted %d axis %d",
+                    c[0], c[1], c[2], c[3], c[4], c[5]), c[6], curve.map(c[5]));
+        }
+    }
+
+    @Test
+    public void linearIsIdentity(){
+        assertTrue(ResponseCurve.LINEAR.isLinear());
+        for (int value = -ResponseCurve.MAX_VALUE; value <= ResponseCurve.MAX_VALUE; ++value)
+            assertEquals(value, ResponseCurve.LINEAR.map(value));
+    }
+
+    @Test
+    public void signSymmetry(){
+        for (ResponseCurve curve : CURVES)
+            for (int value = 0; value <= ResponseCurve.MAX_VALUE; ++value)
+                assertEquals("axis " + value, -curve.map(value), curve.map(-value));
+    }
+
+    @Test
+    public void monotonicOutsideDeadZone(){
+        for (ResponseCurve curve : CURVES){
+            int sign = curve.isInverted? -1 : 1;
+            for (int value = 1; value <= ResponseCurve.MAX_VALUE; ++value){
+                assertTrue("axis " + value, sign * curve.map(value) >= sign * curve.map(value - 1));
+                if (value > curve.deadZone && curve.maxOutput > 0)
+                    assertNotEquals("axis " + value, 0, curve.map(value));
+            }
+        }
+    }
+
+    @Test
+    public void clampsAxisToRange(){
+        for (ResponseCurve curve : CURVES){
+            assertEquals(curve.map(ResponseCurve.MAX_VALUE), curve.map(150));
+            assertEquals(curve.map(ResponseCurve.MAX_VALUE), curve.map(Integer.MAX_VALUE));
+            assertEquals(curve.map(-ResponseCurve.MAX_VALUE), curve.map(-101));
+            assertEquals(curve.map(-ResponseCurve.MAX_VALUE), curve.map(Integer.MIN_VALUE));
+            assertTrue(Math.abs(curve.map(ResponseCurve.MAX_VALUE)) <= ResponseCurve.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void clampsParameters(){
+        ResponseCurve curve = new ResponseCurve(200, -5, 150, 120, -1, false);
+        assertEquals(ResponseCurve.MAX_DEAD_ZONE, curve.deadZone);
+        assertEquals(0, curve.expo);
+        assertEquals(ResponseCurve.MAX_VALUE, curve.maxOutput);
+        assertEquals(ResponseCurve.MAX_VALUE, curve.minOutput);
+        assertEquals(0, curve.slewRate);
+
+        curve = new ResponseCurve(-1, 150, 60, 40, 0, false);
+        assertEquals(0, curve.deadZone);
+        assertEquals(100, curve.expo);
+        assertEquals(40, curve.minOutput);
+    }
+
+    @Test
+    public void isLinear(){
+        assertTrue(new ResponseCurve(0, 0, 0, 100, 0, false).isLinear());
+        assertFalse(new ResponseCurve(1, 0, 0, 100, 0, false).isLinear());
+        assertFalse(new ResponseCurve(0, 1, 0, 100, 0, false).isLinear());
+        assertFalse(new ResponseCurve(0, 0, 1, 100, 0, false).isLinear());
+        assertFalse(new ResponseCurve(0, 0, 0, 99, 0, false).isLinear());
+        assertFalse(new ResponseCurve(0, 0, 0, 100, 1, false).isLinear());
+        assertFalse(new ResponseCurve(0, 0, 0, 100, 0, true).isLinear());
+    }
+
+    @Test
+    public void equalsAndHashCode(){
+        ResponseCurve curve = new ResponseCurve(25, 40, 10, 90, 50, true);
+        ResponseCurve same = new ResponseCurve(25, 40, 10, 90, 50, true);
+        assertEquals(curve, same);
+        assertEquals(curve.hashCode(), same.hashCode());
+        assertEquals(ResponseCurve.LINEAR, new ResponseCurve(0, 0, 0, 100, 0, false));
+        assertNotEquals(curve, new ResponseCurve(25, 40, 10, 90, 50, false));
+        assertNotEquals(curve, new ResponseCurve(25, 40, 10, 90, 60, true));
+    }
+}
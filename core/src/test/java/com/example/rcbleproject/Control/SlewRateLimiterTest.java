@@ -0,0 +1,89 @@
+package com.example.rcbleproject.Control;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SlewRateLimiterTest {
+    private static final long MS = 1_000_000L;
+    private static final long SECOND = 1_000_000_000L;
+
+    private final SlewRateLimiter limiter = new SlewRateLimiter();
+
+    @Test
+    public void passesThroughWithoutRamp(){
+        long[][] cases = {
+                // текущее, целевое, скорость, ожидаемое
+                {0, 100, 0, 100},       // без ограничения
+                {0, -100, 0, -100},
+                {50, 50, 100, 50},      // значение не меняется
+                {80, 20, 100, 20},      // снижение мощности - сразу
+                {-80, -20, 100, -20},
+                {60, 0, 100, 0},        // остановка - сразу
+                {50, -50, 100, 0},      // смена направления - сначала остановка
+                {-50, 50, 100, 0},
+        };
+        for (long[] c : cases){
+            limiter.reset();
+            assertEquals(String.format("%d -> %d at %d", c[0], c[1], c[2]),
+                    c[3], limiter.apply((int) c[0], (int) c[1], (int) c[2], 0));
+        }
+    }
+
+    @Test
+    public void rampsUpAtSlewRate(){
+        long start = 10 * SECOND;
+        // первый шаг сразу
+        assertEquals(1, limiter.apply(0, 50, 100, start));
+        // 100 %/с: шаг раз в 10 мс, меньший интервал не дает шага
+        assertEquals(1, limiter.apply(1, 50, 100, start + 5 * MS));
+        assertEquals(2, limiter.apply(1, 50, 100, start + 10 * MS));
+        assertEquals(4, limiter.apply(2, 50, 100, start + 30 * MS));
+        assertEquals(50, limiter.apply(4, 50, 100, start + 30 * MS + SECOND));
+        // цель достигнута: следующий разгон снова начинается с немедленного шага
+        assertEquals(51, limiter.apply(50, 60, 100, start + 30 * MS + SECOND));
+    }
+
+    @Test
+    public void rampsUpNegative(){
+        assertEquals(-1, limiter.apply(0, -50, 200, 0));
+        assertEquals(-3, limiter.apply(-1, -50, 200, 10 * MS));
+        assertEquals(-50, limiter.apply(-3, -50, 200, 10 * MS + 2 * SECOND));
+    }
+
+    @Test
+    public void resetRestartsRamp(){
+        assertEquals(1, limiter.apply(0, 100, 100, 0));
+        limiter.reset();
+        // после сброса время с прошлого шага не учитывается
+        assertEquals(2, limiter.apply(1, 100, 100, 5 * SECOND));
+    }
+
+    @Test
+    public void stepInterval(){
+        long[][] cases = {
+                // скорость, интервал шага, нс
+                {0, 0},
+                {-10, 0},
+                {1, SECOND},
+                {100, 10 * MS},
+                {500, 2 * MS},
+                {1_000_000_000, 1},
+                {Integer.MAX_VALUE, 1},
+        };
+        for (long[] c : cases)
+            assertEquals("slewRate " + c[0], c[1], SlewRateLimiter.getStepInterval((int) c[0]));
+    }
+
+    @Test
+    public void reachesTargetAtMaxSlewRate(){
+        // 500 %/с - наибольшая скорость в настройках соединения порта
+        assertEquals(1, limiter.apply(0, 100, 500, 0));
+        assertEquals(100, limiter.apply(1, 100, 500, 99 * SlewRateLimiter.getStepInterval(500)));
+
+        limiter.reset();
+        assertEquals(1, limiter.apply(0, 100, Integer.MAX_VALUE, 0));
+        // произведение скорости и времени не переполняется
+        assertEquals(100, limiter.apply(1, 100, Integer.MAX_VALUE, SECOND - 1));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.rcbleproject.Protocol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HubFramesTest {
+    private static final byte[] FRAME = {0x07, 0x00, (byte) 0x81, 0x01, 0x10, 0x01, 0x64};
+
+    @Test
+    public void isEqual_sameFrames(){
+        assertTrue(HubFrames.isEqual(FRAME, FRAME.length, FRAME.clone(), FRAME.length));
+        assertTrue(HubFrames.isEqual(FRAME, 0, new byte[0], 0));
+    }
+
+    @Test
+    public void isEqual_differentLengths(){
+        assertFalse(HubFrames.isEqual(FRAME, FRAME.length, FRAME, FRAME.length - 1));
+    }
+
+    @Test
+    public void isEqual_differentBytes(){
+        for (int i = 0; i < FRAME.length; ++i){
+            byte[] other = FRAME.clone();
+            ++other[i];
+            assertFalse("byte " + i, HubFrames.isEqual(FRAME, FRAME.length, other, other.length));
+        }
+    }
+
+    @Test
+    public void isEqual_comparesOnlyFrameLength(){
+        // переиспользуемые буферы длиннее кадра: байты после кадра не учитываются
+        byte[] buffer = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+        byte[] otherBuffer = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+        System.arraycopy(FRAME, 0, buffer, 0, FRAME.length);
+        System.arraycopy(FRAME, 0, otherBuffer, 0, FRAME.length);
+        buffer[FRAME.length] = 0x55;
+        otherBuffer[FRAME.length] = (byte) 0xAA;
+        assertTrue(HubFrames.isEqual(buffer, FRAME.length, otherBuffer, FRAME.length));
+    }
+}
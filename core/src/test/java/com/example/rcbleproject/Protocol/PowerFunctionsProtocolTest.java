@@ -0,0 +1,69 @@
+package com.example.rcbleproject.Protocol;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Кадры команд протокола Power Functions (хаб на плате с ИК-передатчиком).
+ */
+public class PowerFunctionsProtocolTest {
+    private final PowerFunctionsProtocol protocol = new PowerFunctionsProtocol();
+
+    @Test
+    public void encodePortCommand_scalesToSevenSteps(){
+        int[][] cases = {
+                // значение, скорость Power Functions
+                {0, 0},
+                {7, 0},
+                {8, 1},
+                {50, 4},
+                {-50, -4},
+                {100, 7},
+                {-100, -7},
+        };
+        for (int[] c : cases){
+            byte[] dst = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+            int length = protocol.encodePortCommand(2, c[0], dst);
+            assertEquals(3, length);
+            assertArrayEquals("value " + c[0], new byte[]{'0', 2, (byte) c[1]},
+                    Arrays.copyOf(dst, length));
+        }
+    }
+
+    @Test
+    public void supportsBatching(){
+        assertFalse(protocol.supportsBatching());
+    }
+
+    @Test
+    public void encodeAlarmOn_returnsCopy(){
+        byte[] alarm = protocol.encodeAlarmOn();
+        assertArrayEquals(new byte[]{'1'}, alarm);
+        alarm[0] = 0;
+        assertArrayEquals(new byte[]{'1'}, protocol.encodeAlarmOn());
+    }
+
+    @Test
+    public void unsupportedCommands(){
+        assertNull(protocol.encodeAlarmOff());
+        assertEquals(0, protocol.getMaxNameLength());
+        assertNull(protocol.encodeRename(new byte[]{'H'}));
+        assertNull(protocol.encodeBatterySubscription());
+        assertNull(protocol.encodePortValueSubscription(0, 0x2E));
+        assertFalse(protocol.isMotorLoadSensor(0x15));
+    }
+
+    @Test
+    public void decodeMessage_consumesWholeNotification(){
+        HubMessage message = new HubMessage();
+        message.set(HubMessage.BATTERY, 1, 1);
+        byte[] data = {'o', 'k', 0x0A};
+        assertEquals(3, protocol.decodeMessage(data, 0, data.length, message));
+        assertEquals(HubMessage.UNKNOWN, message.type);
+        assertEquals(-1, message.portNum);
+        assertEquals(0, protocol.decodeMessage(data, 3, 0, message));
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.rcbleproject.Protocol;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Кадры команд и разбор сообщений протокола Powered Up (LWP3).
+ */
+public class PoweredUpProtocolTest {
+    private final PoweredUpProtocol protocol = new PoweredUpProtocol();
+    private final HubMessage message = new HubMessage();
+
+    private static byte[] bytes(int... values){
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; ++i) result[i] = (byte) values[i];
+        return result;
+    }
+
+    private static byte[] concat(byte[]... parts){
+        int length = 0;
+        for (byte[] part : parts) length += part.length;
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts){
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    private void assertMessage(int type, int portNum, int value){
+        assertEquals("type", type, message.type);
+        assertEquals("portNum", portNum, message.portNum);
+        assertEquals("value", value, message.value);
+    }
+
+    @Test
+    public void encodePortCommand_writesStartPower(){
+        int[][] cases = {
+                // порт, значение, последний байт кадра
+                {0, 0, 0x00},
+                {1, 100, 0x64},
+                {2, -100, 0x9C},
+                {3, -1, 0xFF},
+        };
+        for (int[] c : cases){
+            byte[] dst = new byte[HubProtocol.MAX_PORT_FRAME_LENGTH];
+            int length = protocol.encodePortCommand(c[0], c[1], dst);
+            assertEquals(7, length);
+            assertArrayEquals("port " + c[0] + " value " + c[1],
+                    bytes(0x07, 0x00, 0x81, c[0], 0x10, 0x01, c[2]),
+                    Arrays.copyOf(dst, length));
+        }
+    }
+
+    @Test
+    public void supportsBatching(){
+        assertTrue(protocol.supportsBatching());
+    }
+
+    @Test
+    public void encodeAlarm(){
+        assertArrayEquals(bytes(0x04, 0x00, 0x02, 0x05), protocol.encodeAlarmOn());
+        assertArrayEquals(bytes(0x04, 0x00, 0x02, 0x06), protocol.encodeAlarmOff());
+    }
+
+    @Test
+    public void encodeRename_setsAdvertisingName(){
+        byte[] name = "Hub".getBytes(StandardCharsets.US_ASCII);
+        assertArrayEquals(bytes(0x08, 0x00, 0x01, 0x01, 0x01, 'H', 'u', 'b'),
+                protocol.encodeRename(name));
+    }
+
+    @Test
+    public void encodeRename_rejectsLongName(){
+        assertNotNull(protocol.encodeRename(new byte[protocol.getMaxNameLength()]));
+        assertNull(protocol.encodeRename(new byte[protocol.getMaxNameLength() + 1]));
+    }
+
+    @Test
+    public void encodeBatterySubscription(){
+        assertArrayEquals(bytes(0x05, 0x00, 0x01, 0x06, 0x02), protocol.encodeBatterySubscription());
+    }
+
+    @Test
+    public void encodePortValueSubscription(){
+        // мотор с энкодером: режим POS, дельта 5, уведомления включены
+        assertArrayEquals(bytes(0x0A, 0x00, 0x41, 0x01, 0x02, 0x05, 0x00, 0x00, 0x00, 0x01),
+                protocol.encodePortValueSubscription(1, 0x2E));
+        // датчик тока: режим CUR L, дельта 41
+        assertArrayEquals(bytes(0x0A, 0x00, 0x41, 0x3B, 0x00, 0x29, 0x00, 0x00, 0x00, 0x01),
+                protocol.encodePortValueSubscription(0x3B, 0x15));
+        // мотор без энкодера
+        assertNull(protocol.encodePortValueSubscription(0, 0x01));
+    }
+
+    @Test
+    public void decodeMotorLoad_clampsToPercent(){
+        int[][] cases = {{0, 0}, {2048, 50}, {4095, 100}, {5000, 100}, {-10, 0}};
+        for (int[] c : cases)
+            assertEquals("raw " + c[0], c[1], protocol.decodeMotorLoad(c[0]));
+        assertTrue(protocol.isMotorLoadSensor(0x15));
+        assertFalse(protocol.isMotorLoadSensor(0x2E));
+    }
+
+    @Test
+    public void decodeMessage_battery(){
+        byte[] data = bytes(0x06, 0x00, 0x01, 0x06, 0x06, 0x55);
+        assertEquals(6, protocol.decodeMessage(data, 0, data.length, message));
+        assertMessage(HubMessage.BATTERY, -1, 85);
+    }
+
+    @Test
+    public void decodeMessage_attachedAndDetachedIo(){
+        byte[] attached = bytes(0x0F, 0x00, 0x04, 0x01, 0x01, 0x2E, 0x00,
+                0x00, 0x00, 0x00, 0x10, 0x00, 0x00, 0x00, 0x10);
+        assertEquals(15, protocol.decodeMessage(attached, 0, attached.length, message));
+        assertMessage(HubMessage.IO_ATTACHED, 1, 0x2E);
+
+        byte[] detached = bytes(0x05, 0x00, 0x04, 0x01, 0x00);
+        assertEquals(5, protocol.decodeMessage(detached, 0, detached.length, message));
+        assertMessage(HubMessage.IO_DETACHED, 1, 0);
+    }
+
+    @Test
+    public void decodeMessage_portValueSizes(){
+        byte[] int32 = bytes(0x08, 0x00, 0x45, 0x00, 0xF0, 0xD8, 0xFF, 0xFF);
+        assertEquals(8, protocol.decodeMessage(int32, 0, int32.length, message));
+        assertMessage(HubMessage.PORT_VALUE, 0, -10000);
+
+        byte[] int16 = bytes(0x06, 0x00, 0x45, 0x01, 0xFE, 0xFF);
+        assertEquals(6, protocol.decodeMessage(int16, 0, int16.length, message));
+        assertMessage(HubMessage.PORT_VALUE, 1, -2);
+
+        byte[] int8 = bytes(0x05, 0x00, 0x45, 0x02, 0xF6);
+        assertEquals(5, protocol.decodeMessage(int8, 0, int8.length, message));
+        assertMessage(HubMessage.PORT_VALUE, 2, -10);
+    }
+
+    @Test
+    public void decodeMessage_portFeedback(){
+        byte[] data = bytes(0x05, 0x00, 0x82, 0x03, 0x0A);
+        assertEquals(5, protocol.decodeMessage(data, 0, data.length, message));
+        assertMessage(HubMessage.PORT_FEEDBACK, 3, 0x0A);
+    }
+
+    @Test
+    public void decodeMessage_unknownTypeIsSkipped(){
+        byte[] data = bytes(0x05, 0x00, 0x03, 0x01, 0x02);
+        message.set(HubMessage.BATTERY, 1, 1);
+        assertEquals(5, protocol.decodeMessage(data, 0, data.length, message));
+        assertMessage(HubMessage.UNKNOWN, -1, 0);
+    }
+
+    @Test
+    public void decodeMessage_batchOfMessages(){
+        byte[] data = concat(
+                bytes(0x06, 0x00, 0x01, 0x06, 0x06, 0x40),
+                bytes(0x08, 0x00, 0x45, 0x01, 0x68, 0x01, 0x00, 0x00),
+                bytes(0x05, 0x00, 0x04, 0x02, 0x00));
+        int[][] expected = {
+                {HubMessage.BATTERY, -1, 64, 6},
+                {HubMessage.PORT_VALUE, 1, 360, 8},
+                {HubMessage.IO_DETACHED, 2, 0, 5},
+        };
+        int offset = 0;
+        for (int[] e : expected){
+            int consumed = protocol.decodeMessage(data, offset, data.length - offset, message);
+            assertEquals("length at " + offset, e[3], consumed);
+            assertMessage(e[0], e[1], e[2]);
+            offset += consumed;
+        }
+        assertEquals(data.length, offset);
+        assertEquals(0, protocol.decodeMessage(data, offset, 0, message));
+    }
+
+    @Test
+    public void decodeMessage_truncatedMessageInBatch(){
+        byte[] data = concat(
+                bytes(0x05, 0x00, 0x82, 0x00, 0x0A),
+                bytes(0x08, 0x00, 0x45, 0x01, 0x68));
+        assertEquals(5, protocol.decodeMessage(data, 0, data.length, message));
+        assertEquals(0, protocol.decodeMessage(data, 5, data.length - 5, message));
+    }
+
+    @Test
+    public void decodeMessage_twoByteLength(){
+        // длина 130 = 0x02 | (0x01 << 7): первый байт 0x82, заголовок из 4 байт
+        byte[] data = new byte[130];
+        byte[] header = bytes(0x82, 0x01, 0x00, 0x01, 0x06, 0x06, 0x21);
+        System.arraycopy(header, 0, data, 0, header.length);
+        assertEquals(130, protocol.decodeMessage(data, 0, data.length, message));
+        assertMessage(HubMessage.BATTERY, -1, 0x21);
+
+        // за длинным сообщением следует обычное
+        byte[] batch = concat(data, bytes(0x05, 0x00, 0x82, 0x01, 0x0A));
+        int consumed = protocol.decodeMessage(batch, 0, batch.length, message);
+        assertEquals(130, consumed);
+        assertEquals(5, protocol.decodeMessage(batch, consumed, batch.length - consumed, message));
+        assertMessage(HubMessage.PORT_FEEDBACK, 1, 0x0A);
+    }
+
+    @Test
+    public void decodeMessage_twoByteLengthLongerThanData(){
+        byte[] data = new byte[129];
+        System.arraycopy(bytes(0x82, 0x01, 0x00, 0x01), 0, data, 0, 4);
+        assertEquals(0, protocol.decodeMessage(data, 0, data.length, message));
+    }
+
+    @Test
+    public void decodeMessage_rejectsInvalidLength(){
+        assertEquals(0, protocol.decodeMessage(bytes(0x05, 0x00), 0, 2, message));
+        assertEquals(0, protocol.decodeMessage(bytes(0x02, 0x00, 0x01), 0, 3, message));
+        assertEquals(0, protocol.decodeMessage(bytes(0x06, 0x00, 0x01, 0x06), 0, 4, message));
+    }
+}
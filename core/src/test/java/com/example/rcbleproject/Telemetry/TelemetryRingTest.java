@@ -0,0 +1,106 @@
+package com.example.rcbleproject.Telemetry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Все поля записи вычисляются из ее порядкового номера, поэтому потребитель может проверить,
+ * что запись не разорвана (поля от разных записей), не повторена и прочитана по порядку.
+ */
+public class TelemetryRingTest {
+    private static final int CONCURRENT_RECORDS = 2_000_000;
+
+    private static int portOf(int seq){ return seq * 7; }
+
+    private static int valueOf(int seq){ return ~seq; }
+
+    private static long timeOf(int seq){ return seq * 31L + 1; }
+
+    private static void offer(TelemetryRing ring, int seq){
+        ring.offer(seq, portOf(seq), valueOf(seq), timeOf(seq));
+    }
+
+    /**
+     * Проверяет целостность и порядок прочитанных записей.
+     */
+    private static class CheckingConsumer implements TelemetryRing.ITelemetryConsumer {
+        int last = -1;
+        long count = 0;
+        String error = null;
+
+        @Override
+        public void onTelemetry(int type, int portNum, int value, long timeNanos){
+            ++count;
+            if (error != null) return;
+            if (portNum != portOf(type) || value != valueOf(type) || timeNanos != timeOf(type))
+                error = "torn record " + type + ": " + portNum + ", " + value + ", " + timeNanos;
+            else if (type <= last)
+                error = "record " + type + " after " + last;
+            last = type;
+        }
+    }
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo(){
+        assertEquals(64, new TelemetryRing(64).capacity());
+        assertEquals(128, new TelemetryRing(100).capacity());
+    }
+
+    @Test
+    public void drainsInOrder(){
+        TelemetryRing ring = new TelemetryRing(8);
+        for (int seq = 0; seq < 5; ++seq) offer(ring, seq);
+        assertEquals(5, ring.size());
+
+        ArrayList<Integer> drained = new ArrayList<>();
+        assertEquals(5, ring.drain((type, portNum, value, time) -> drained.add(type)));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), drained);
+        assertEquals(0, ring.size());
+        assertEquals(0, ring.drain((type, portNum, value, time) -> fail()));
+    }
+
+    @Test
+    public void overflowReplacesOldestRecords(){
+        TelemetryRing ring = new TelemetryRing(4);
+        for (int seq = 0; seq < 4; ++seq)
+            assertTrue(ring.offer(seq, portOf(seq), valueOf(seq), timeOf(seq)));
+        for (int seq = 4; seq < 6; ++seq)
+            assertFalse(ring.offer(seq, portOf(seq), valueOf(seq), timeOf(seq)));
+        assertEquals(2, ring.getOverwrittenCount());
+        assertEquals(4, ring.size());
+
+        CheckingConsumer consumer = new CheckingConsumer();
+        assertEquals(4, ring.drain(consumer));
+        assertNull(consumer.error);
+        assertEquals(5, consumer.last);
+    }
+
+    @Test
+    public void singleProducerSingleConsumer() throws InterruptedException {
+        TelemetryRing ring = new TelemetryRing(64);
+        AtomicBoolean isProducing = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> {
+            for (int seq = 0; seq < CONCURRENT_RECORDS; ++seq) offer(ring, seq);
+            isProducing.set(false);
+        }, "TelemetryProducer");
+
+        CheckingConsumer consumer = new CheckingConsumer();
+        long drained = 0;
+        producer.start();
+        while (isProducing.get()) drained += ring.drain(consumer);
+        producer.join();
+        drained += ring.drain(consumer);
+
+        assertNull(consumer.error, consumer.error);
+        assertEquals(consumer.count, drained);
+        assertEquals(CONCURRENT_RECORDS, drained + ring.getOverwrittenCount());
+        // последняя запись не может быть замещена: после нее производитель ничего не добавлял
+        assertEquals(CONCURRENT_RECORDS - 1, consumer.last);
+        assertEquals(0, ring.size());
+    }
+}